@@ -0,0 +1,61 @@
+package com.github.yeetmanlord.raycast_util.benchmark;
+
+import com.github.yeetmanlord.raycast_util.BlockAccess;
+import org.bukkit.Material;
+
+/**
+ * Reads the blocks of a {@link SyntheticWorld} straight from its array, so benchmarks of {@link com.github.yeetmanlord.raycast_util.RayTracer}
+ * measure the tracer and not the {@link java.lang.reflect.Proxy} stand-ins. Sections that are all air are known up front, like a
+ * {@link com.github.yeetmanlord.raycast_util.SnapshotBlockAccess} knows them from its chunk snapshots.
+ */
+public class ArrayBlockAccess implements BlockAccess {
+
+    private static final int SECTIONS = SyntheticWorld.SIZE >> 4;
+
+    private final Material[] types;
+
+    private final boolean[] emptySections = new boolean[SECTIONS * SECTIONS * SECTIONS];
+
+    /**
+     * @param types Block types of the world, indexed by {@link SyntheticWorld#index(int, int, int)}
+     */
+    ArrayBlockAccess(Material[] types) {
+        this.types = types;
+        for (int sectionX = 0; sectionX < SECTIONS; sectionX++) {
+            for (int sectionY = 0; sectionY < SECTIONS; sectionY++) {
+                for (int sectionZ = 0; sectionZ < SECTIONS; sectionZ++) {
+                    emptySections[(sectionX * SECTIONS + sectionY) * SECTIONS + sectionZ] = isAir(sectionX, sectionY, sectionZ);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Material getType(int x, int y, int z) {
+        if (x < 0 || y < 0 || z < 0 || x >= SyntheticWorld.SIZE || y >= SyntheticWorld.SIZE || z >= SyntheticWorld.SIZE) {
+            return Material.AIR;
+        }
+        return types[SyntheticWorld.index(x, y, z)];
+    }
+
+    @Override
+    public boolean isSectionEmpty(int sectionX, int sectionY, int sectionZ) {
+        if (sectionX < 0 || sectionY < 0 || sectionZ < 0 || sectionX >= SECTIONS || sectionY >= SECTIONS || sectionZ >= SECTIONS) {
+            return true;
+        }
+        return emptySections[(sectionX * SECTIONS + sectionY) * SECTIONS + sectionZ];
+    }
+
+    private boolean isAir(int sectionX, int sectionY, int sectionZ) {
+        for (int x = sectionX << 4; x < (sectionX + 1) << 4; x++) {
+            for (int y = sectionY << 4; y < (sectionY + 1) << 4; y++) {
+                for (int z = sectionZ << 4; z < (sectionZ + 1) << 4; z++) {
+                    if (types[SyntheticWorld.index(x, y, z)] != Material.AIR) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+}
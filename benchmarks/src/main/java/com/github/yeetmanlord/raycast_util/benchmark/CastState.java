@@ -0,0 +1,75 @@
+package com.github.yeetmanlord.raycast_util.benchmark;
+
+import com.github.yeetmanlord.raycast_util.HitboxSnapshot;
+import org.bukkit.Location;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.util.Vector;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * A {@link SyntheticWorld} and a set of entities ray-casting in random directions from inside it. Every benchmark call takes the next
+ * caster, so one run covers rays that hit blocks, rays that hit entities and rays that hit nothing.
+ */
+@State(Scope.Thread)
+public class CastState {
+
+    private static final int CASTERS = 1024;
+
+    @Param({"0.0", "0.01", "0.05"})
+    public double blockDensity;
+
+    @Param({"0", "50", "500"})
+    public int entityCount;
+
+    public SyntheticWorld world;
+
+    public ArrayBlockAccess blocks;
+
+    public HitboxSnapshot hitboxes;
+
+    private LivingEntity[] casters;
+
+    /**
+     * Eye position and direction of every caster, six doubles each.
+     */
+    private double[][] rays;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        world = new SyntheticWorld(blockDensity, entityCount, 42L);
+        Random random = new Random(7L);
+        blocks = world.getBlockAccess();
+        hitboxes = world.getHitboxes();
+        casters = new LivingEntity[CASTERS];
+        rays = new double[CASTERS][];
+        for (int i = 0; i < CASTERS; i++) {
+            double x = 32 + random.nextDouble() * (SyntheticWorld.SIZE - 64);
+            double y = SyntheticWorld.FLOOR + 1.62 + random.nextDouble() * 16;
+            double z = 32 + random.nextDouble() * (SyntheticWorld.SIZE - 64);
+            float yaw = random.nextFloat() * 360;
+            float pitch = random.nextFloat() * 60 - 30;
+            casters[i] = world.createCaster(x, y, z, yaw, pitch);
+            Vector direction = new Location(null, x, y, z, yaw, pitch).getDirection();
+            rays[i] = new double[]{x, y, z, direction.getX(), direction.getY(), direction.getZ()};
+        }
+    }
+
+    public LivingEntity nextCaster() {
+        return casters[next++ & (CASTERS - 1)];
+    }
+
+    /**
+     * @return Eye position and direction of the next caster, the same rays {@link #nextCaster()} goes through. Don't modify the array.
+     */
+    public double[] nextRay() {
+        return rays[next++ & (CASTERS - 1)];
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.yeetmanlord.raycast_util.benchmark;
+
+import com.github.yeetmanlord.raycast_util.RayCastOptions;
+import com.github.yeetmanlord.raycast_util.RayCastResult;
+import com.github.yeetmanlord.raycast_util.RayCastUtility;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The exact ray-casts, which don't take a precision.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExactBenchmark {
+
+    private final RayCastOptions options = new RayCastOptions();
+
+    @Benchmark
+    public RayCastResult rayCastBlocks(CastState state) {
+        return RayCastUtility.rayCastBlocks(state.nextCaster(), PrecisionBenchmark.MAX_DISTANCE, options);
+    }
+
+    @Benchmark
+    public RayCastResult rayCastEntities(CastState state) {
+        return RayCastUtility.rayCastEntities(state.nextCaster(), PrecisionBenchmark.MAX_DISTANCE, options);
+    }
+
+    @Benchmark
+    public RayCastResult rayCast(CastState state) {
+        return RayCastUtility.rayCast(state.nextCaster(), PrecisionBenchmark.MAX_DISTANCE, options);
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.yeetmanlord.raycast_util.benchmark;
+
+import com.github.yeetmanlord.raycast_util.RayCastOptions;
+import com.github.yeetmanlord.raycast_util.RayCastResult;
+import com.github.yeetmanlord.raycast_util.RayCastUtility;
+import com.github.yeetmanlord.raycast_util.RayCastUtility.Precision;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every ray-cast that takes a {@link Precision}, at every precision. {@link RayCastUtility#executeStepByStep} doesn't take one, so it steps
+ * by the precision's advance instead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrecisionBenchmark {
+
+    public static final double MAX_DISTANCE = 32;
+
+    @Param
+    public Precision precision;
+
+    private final RayCastOptions options = new RayCastOptions();
+
+    @Benchmark
+    public RayCastResult rayCastBlocks(CastState state) {
+        return RayCastUtility.rayCastBlocks(state.nextCaster(), MAX_DISTANCE, precision, options);
+    }
+
+    @Benchmark
+    public RayCastResult rayCastEntities(CastState state) {
+        return RayCastUtility.rayCastEntities(state.nextCaster(), MAX_DISTANCE, precision, options);
+    }
+
+    @Benchmark
+    public RayCastResult rayCast(CastState state) {
+        return RayCastUtility.rayCast(state.nextCaster(), MAX_DISTANCE, precision, options);
+    }
+
+    @Benchmark
+    public void executeStepByStep(CastState state, Blackhole blackhole) {
+        RayCastUtility.executeStepByStep(state.nextCaster(), MAX_DISTANCE, precision.getAdvance(), false, options, blackhole::consume, blackhole::consume);
+    }
+
+    @Benchmark
+    public void executeStepByStepWithPrecision(CastState state, Blackhole blackhole) {
+        RayCastUtility.executeStepByStepWithPrecision(state.nextCaster(), MAX_DISTANCE, 0.5D, false, precision, options, blackhole::consume, blackhole::consume);
+    }
+}
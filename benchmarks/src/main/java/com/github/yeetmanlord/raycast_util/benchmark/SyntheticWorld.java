@@ -0,0 +1,327 @@
+package com.github.yeetmanlord.raycast_util.benchmark;
+
+import com.github.yeetmanlord.raycast_util.HitboxSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.LivingEntity;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * An in-memory world to ray-cast in without a server. The world is a {@link #SIZE} blocks wide cube with a solid floor, stone scattered
+ * randomly above it and entities standing on the floor. {@link World}, {@link Block} and {@link Entity} are stand-ins built with {@link Proxy},
+ * and entities have fake NMS handles with the same a-f bounding box fields a real server has, so the reflection path is the real one.
+ * <br>
+ * Every call on a stand-in goes through reflective dispatch, which boxes its arguments and allocates an array for them. Benchmarks going
+ * through {@link World} (everything in {@link com.github.yeetmanlord.raycast_util.RayCastUtility}) are slower and allocate more than on a
+ * real server, mostly in {@code getBlockAt} and {@code getType}. Compare them with each other, not with the tracer. {@link #getBlockAccess()}
+ * and {@link #getHitboxes()} give the same world without stand-ins for {@link TracerBenchmark}.
+ */
+public class SyntheticWorld {
+
+    /**
+     * Edge length of the world in blocks. Blocks outside of it are air.
+     */
+    public static final int SIZE = 128;
+
+    /**
+     * Height of the solid floor.
+     */
+    public static final int FLOOR = 4;
+
+    private final World world;
+
+    private final UUID uid = UUID.randomUUID();
+
+    private final Material[] types = new Material[SIZE * SIZE * SIZE];
+
+    private final Block[] blocks = new Block[SIZE * SIZE * SIZE];
+
+    private final List<Entity> entities = new ArrayList<>();
+
+    private final List<NmsBoundingBox> boxes = new ArrayList<>();
+
+    private final ArrayBlockAccess blockAccess;
+
+    /**
+     * @param blockDensity Chance for each block above the floor to be stone
+     * @param entityCount  Number of entities standing around
+     * @param seed         Seed for placing blocks and entities, the same seed always builds the same world
+     */
+    public SyntheticWorld(double blockDensity, int entityCount, long seed) {
+        this.world = (World) Proxy.newProxyInstance(SyntheticWorld.class.getClassLoader(), new Class<?>[]{World.class}, this::handleWorld);
+        Random random = new Random(seed);
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                for (int z = 0; z < SIZE; z++) {
+                    types[index(x, y, z)] = y < FLOOR || random.nextDouble() < blockDensity ? Material.STONE : Material.AIR;
+                }
+            }
+        }
+        for (int i = 0; i < entityCount; i++) {
+            double x = 1 + random.nextDouble() * (SIZE - 2);
+            double y = FLOOR;
+            double z = 1 + random.nextDouble() * (SIZE - 2);
+            NmsBoundingBox box = new NmsBoundingBox(x - 0.3, y, z - 0.3, x + 0.3, y + 1.8, z + 0.3);
+            boxes.add(box);
+            entities.add(createEntity(Entity.class, new NmsEntity(box), null));
+        }
+        blockAccess = new ArrayBlockAccess(types);
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public List<Entity> getEntities() {
+        return Collections.unmodifiableList(entities);
+    }
+
+    /**
+     * @return The blocks of the world, read straight from its array
+     */
+    public ArrayBlockAccess getBlockAccess() {
+        return blockAccess;
+    }
+
+    /**
+     * @return The hitboxes of the entities, taken from their boxes without going through the stand-ins
+     */
+    public HitboxSnapshot getHitboxes() {
+        int size = boxes.size();
+        double[] minX = new double[size], minY = new double[size], minZ = new double[size];
+        double[] maxX = new double[size], maxY = new double[size], maxZ = new double[size];
+        for (int i = 0; i < size; i++) {
+            NmsBoundingBox box = boxes.get(i);
+            minX[i] = box.a;
+            minY[i] = box.b;
+            minZ[i] = box.c;
+            maxX[i] = box.d;
+            maxY[i] = box.e;
+            maxZ[i] = box.f;
+        }
+        return HitboxSnapshot.of(entities.toArray(new Entity[0]), minX, minY, minZ, maxX, maxY, maxZ, 0);
+    }
+
+    /**
+     * Creates an entity to ray-cast from. It isn't part of the world's entities.
+     *
+     * @param x     X coordinate of the entity's eyes
+     * @param y     Y coordinate of the entity's eyes
+     * @param z     Z coordinate of the entity's eyes
+     * @param yaw   Yaw the entity is looking at
+     * @param pitch Pitch the entity is looking at
+     * @return The entity
+     */
+    public LivingEntity createCaster(double x, double y, double z, float yaw, float pitch) {
+        NmsEntity handle = new NmsEntity(new NmsBoundingBox(x - 0.3, y - 1.62, z - 0.3, x + 0.3, y + 0.18, z + 0.3));
+        return createEntity(LivingEntity.class, handle, new Location(world, x, y, z, yaw, pitch));
+    }
+
+    private <T extends Entity> T createEntity(Class<T> type, NmsEntity handle, Location eyes) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getHandle":
+                    return handle;
+                case "getWorld":
+                    return world;
+                case "getEyeLocation":
+                    return eyes.clone();
+                case "getLocation":
+                    NmsBoundingBox box = handle.getBoundingBox();
+                    return new Location(world, (box.a + box.d) / 2, box.b, (box.c + box.f) / 2);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "SyntheticEntity";
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        };
+        return type.cast(Proxy.newProxyInstance(SyntheticWorld.class.getClassLoader(), new Class<?>[]{type, Handle.class}, handler));
+    }
+
+    private Object handleWorld(Object proxy, java.lang.reflect.Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getBlockAt":
+                if (args.length == 3) {
+                    return getBlock((int) args[0], (int) args[1], (int) args[2]);
+                }
+                Location location = (Location) args[0];
+                return getBlock(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+            case "getNearbyEntities":
+                Location center = (Location) args[0];
+                return getNearbyEntities(center.getX(), center.getY(), center.getZ(), (double) args[1], (double) args[2], (double) args[3]);
+            case "getEntities":
+                return new ArrayList<>(entities);
+            case "getUID":
+                return uid;
+            case "getName":
+                return "synthetic";
+            case "isChunkLoaded":
+                return true;
+            case "getMinHeight":
+                return 0;
+            case "getMaxHeight":
+                return SIZE;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "SyntheticWorld";
+            default:
+                return defaultValue(method.getReturnType());
+        }
+    }
+
+    private Block getBlock(int x, int y, int z) {
+        boolean inside = x >= 0 && y >= 0 && z >= 0 && x < SIZE && y < SIZE && z < SIZE;
+        if (!inside) {
+            return createBlock(x, y, z, Material.AIR);
+        }
+        int index = index(x, y, z);
+        Block block = blocks[index];
+        if (block == null) {
+            block = createBlock(x, y, z, types[index]);
+            blocks[index] = block;
+        }
+        return block;
+    }
+
+    private Block createBlock(int x, int y, int z, Material type) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getType":
+                    return type;
+                case "isLiquid":
+                    return type == Material.WATER || type == Material.LAVA;
+                case "isEmpty":
+                    return type == Material.AIR;
+                case "getX":
+                    return x;
+                case "getY":
+                    return y;
+                case "getZ":
+                    return z;
+                case "getWorld":
+                    return world;
+                case "getLocation":
+                    return new Location(world, x, y, z);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "SyntheticBlock{" + x + ", " + y + ", " + z + ", " + type + "}";
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        };
+        return (Block) Proxy.newProxyInstance(SyntheticWorld.class.getClassLoader(), new Class<?>[]{Block.class}, handler);
+    }
+
+    private List<Entity> getNearbyEntities(double x, double y, double z, double halfX, double halfY, double halfZ) {
+        List<Entity> nearby = new ArrayList<>();
+        for (int i = 0; i < entities.size(); i++) {
+            NmsBoundingBox box = boxes.get(i);
+            if (box.d >= x - halfX && box.a <= x + halfX && box.e >= y - halfY && box.b <= y + halfY && box.f >= z - halfZ && box.c <= z + halfZ) {
+                nearby.add(entities.get(i));
+            }
+        }
+        return nearby;
+    }
+
+    static int index(int x, int y, int z) {
+        return (x * SIZE + y) * SIZE + z;
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == void.class) {
+            return null;
+        }
+        if (type == char.class) {
+            return '\0';
+        }
+        if (type == float.class) {
+            return 0F;
+        }
+        if (type == double.class) {
+            return 0D;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        return 0;
+    }
+
+    /**
+     * Gives the entity stand-ins the getHandle method CraftBukkit entities have.
+     */
+    public interface Handle {
+
+        Object getHandle();
+    }
+
+    /**
+     * Stand-in for the NMS entity.
+     */
+    public static class NmsEntity {
+
+        private final NmsBoundingBox boundingBox;
+
+        public NmsEntity(NmsBoundingBox boundingBox) {
+            this.boundingBox = boundingBox;
+        }
+
+        public NmsBoundingBox getBoundingBox() {
+            return boundingBox;
+        }
+    }
+
+    /**
+     * Stand-in for the NMS bounding box (AxisAlignedBB), with the obfuscated field names.
+     */
+    public static class NmsBoundingBox {
+
+        public final double a;
+        public final double b;
+        public final double c;
+
+        public final double d;
+        public final double e;
+        public final double f;
+
+        public NmsBoundingBox(double a, double b, double c, double d, double e, double f) {
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.d = d;
+            this.e = e;
+            this.f = f;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.yeetmanlord.raycast_util.benchmark;
+
+import com.github.yeetmanlord.raycast_util.BlockFilter;
+import com.github.yeetmanlord.raycast_util.PierceOptions;
+import com.github.yeetmanlord.raycast_util.RayHit;
+import com.github.yeetmanlord.raycast_util.RayTracer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same rays as {@link ExactBenchmark}, traced with {@link RayTracer} against an {@link ArrayBlockAccess} and a captured
+ * {@link com.github.yeetmanlord.raycast_util.HitboxSnapshot}. Nothing here goes through the {@link java.lang.reflect.Proxy} stand-ins, so
+ * the allocation rates are the tracer's own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TracerBenchmark {
+
+    private final PierceOptions pierce = new PierceOptions().stopAtSolid(false);
+
+    @Benchmark
+    public RayHit traverseBlocks(CastState state) {
+        double[] ray = state.nextRay();
+        return RayTracer.traverseBlocks(state.blocks, ray[0], ray[1], ray[2], ray[3], ray[4], ray[5], PrecisionBenchmark.MAX_DISTANCE, BlockFilter.DEFAULT);
+    }
+
+    @Benchmark
+    public RayHit trace(CastState state) {
+        double[] ray = state.nextRay();
+        return RayTracer.trace(state.blocks, state.hitboxes, null, ray[0], ray[1], ray[2], ray[3], ray[4], ray[5], PrecisionBenchmark.MAX_DISTANCE, BlockFilter.DEFAULT);
+    }
+
+    @Benchmark
+    public RayHit sphereCast(CastState state) {
+        double[] ray = state.nextRay();
+        return RayTracer.sphereCast(state.blocks, state.hitboxes, null, ray[0], ray[1], ray[2], ray[3], ray[4], ray[5], PrecisionBenchmark.MAX_DISTANCE, 0.5, BlockFilter.DEFAULT);
+    }
+
+    @Benchmark
+    public List<RayHit> pierce(CastState state) {
+        double[] ray = state.nextRay();
+        return RayTracer.pierce(state.blocks, state.hitboxes, null, ray[0], ray[1], ray[2], ray[3], ray[4], ray[5], PrecisionBenchmark.MAX_DISTANCE, BlockFilter.DEFAULT, pierce);
+    }
+}
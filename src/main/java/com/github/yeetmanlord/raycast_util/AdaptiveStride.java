@@ -0,0 +1,90 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.entity.Entity;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * Picks how far a stepping ray-cast can move next without stepping over a hitbox. Far from every hitbox it moves the maximum advance, close
+ * to one it moves no further than the distance to that hitbox, so it slows down to the minimum advance right where an entity could be hit.
+ * <br>
+ * Only hitboxes that come within the maximum advance of the ray are kept, which for most rays is none or a handful.
+ */
+class AdaptiveStride {
+
+    private final double[] boxes;
+
+    private final int count;
+
+    private AdaptiveStride(double[] boxes, int count) {
+        this.boxes = boxes;
+        this.count = count;
+    }
+
+    /**
+     * @param hitboxes    Hitboxes the ray-cast tests
+     * @param ignored     Entity the ray can't hit, may be null
+     * @param x           X coordinate the ray starts at
+     * @param y           Y coordinate the ray starts at
+     * @param z           Z coordinate the ray starts at
+     * @param dirX        X component of the normalized ray direction
+     * @param dirY        Y component of the normalized ray direction
+     * @param dirZ        Z component of the normalized ray direction
+     * @param maxDistance Length of the ray, hitboxes past it aren't kept
+     * @param maxAdvance  Largest distance the ray-cast moves at once
+     * @return Stride for the ray-cast
+     */
+    static AdaptiveStride of(HitboxSnapshot hitboxes, @Nullable Entity ignored, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, double maxAdvance) {
+        double[] boxes = new double[6 * Math.min(hitboxes.size(), 16)];
+        int count = 0;
+        for (int i = 0; i < hitboxes.size(); i++) {
+            if (hitboxes.getEntity(i) == ignored) {
+                continue;
+            }
+            double minX = hitboxes.getMinX(i) - maxAdvance, minY = hitboxes.getMinY(i) - maxAdvance, minZ = hitboxes.getMinZ(i) - maxAdvance;
+            double maxX = hitboxes.getMaxX(i) + maxAdvance, maxY = hitboxes.getMaxY(i) + maxAdvance, maxZ = hitboxes.getMaxZ(i) + maxAdvance;
+            if (BoundingBox.rayIntersect(minX, minY, minZ, maxX, maxY, maxZ, x, y, z, dirX, dirY, dirZ, maxDistance) < 0) {
+                continue;
+            }
+            if (count * 6 == boxes.length) {
+                boxes = Arrays.copyOf(boxes, Math.max(6, boxes.length * 2));
+            }
+            int offset = count * 6;
+            boxes[offset] = hitboxes.getMinX(i);
+            boxes[offset + 1] = hitboxes.getMinY(i);
+            boxes[offset + 2] = hitboxes.getMinZ(i);
+            boxes[offset + 3] = hitboxes.getMaxX(i);
+            boxes[offset + 4] = hitboxes.getMaxY(i);
+            boxes[offset + 5] = hitboxes.getMaxZ(i);
+            count++;
+        }
+        return new AdaptiveStride(boxes, count);
+    }
+
+    /**
+     * @param x          X coordinate of the current point
+     * @param y          Y coordinate of the current point
+     * @param z          Z coordinate of the current point
+     * @param minAdvance Smallest distance to move
+     * @param maxAdvance Largest distance to move
+     * @return How far to move next
+     */
+    double next(double x, double y, double z, double minAdvance, double maxAdvance) {
+        double closest = maxAdvance * maxAdvance;
+        for (int offset = 0; offset < count * 6; offset += 6) {
+            double dx = Math.max(Math.max(boxes[offset] - x, x - boxes[offset + 3]), 0);
+            double dy = Math.max(Math.max(boxes[offset + 1] - y, y - boxes[offset + 4]), 0);
+            double dz = Math.max(Math.max(boxes[offset + 2] - z, z - boxes[offset + 5]), 0);
+            closest = Math.min(closest, dx * dx + dy * dy + dz * dz);
+        }
+        return Math.max(minAdvance, Math.sqrt(closest));
+    }
+
+    /**
+     * @return Number of hitboxes close enough to the ray to slow it down
+     */
+    int size() {
+        return count;
+    }
+}
@@ -0,0 +1,195 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.util.Vector;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Ray-casts off the main thread. The chunks the ray passes through are captured as {@link ChunkSnapshot}s and the entity hitboxes as a
+ * {@link HitboxSnapshot} on the main thread, the ray is traced against those copies on a worker thread, and the future completes back on the
+ * main thread so the result can be used like any other.
+ * <br>
+ * The methods that take a {@link World} or an entity have to be called on the main thread. {@link #trace(BlockAccess, HitboxSnapshot, Entity, double, double, double, double, double, double, double, BlockFilter)}
+ * doesn't touch the server at all and can be called from anywhere, e.g. with snapshots you built yourself.
+ * <br>
+ * Ray-casts here are always exact (see {@link RayCastUtility#rayCast(World, double, double, double, double, double, double, double, Entity, RayCastOptions)}).
+ * Blocks in unloaded chunks count as air. Reading block types from chunk snapshots needs a 1.13+ server.
+ */
+public class AsyncRayCaster {
+
+    private final Executor worker;
+
+    private final Executor mainThread;
+
+    private final Map<UUID, Map<Long, ChunkSnapshot>> chunkCache = new HashMap<>();
+
+    private long cacheTick = -1;
+
+    /**
+     * Traces rays on the common fork join pool and completes results with the Bukkit scheduler.
+     *
+     * @param plugin Plugin to schedule the completions under
+     */
+    public AsyncRayCaster(Plugin plugin) {
+        this(ForkJoinPool.commonPool(), task -> Bukkit.getScheduler().runTask(plugin, task));
+    }
+
+    /**
+     * @param worker     Executor rays are traced on
+     * @param mainThread Executor that runs tasks on the main thread, results are completed on it
+     */
+    public AsyncRayCaster(Executor worker, Executor mainThread) {
+        this.worker = worker;
+        this.mainThread = mainThread;
+    }
+
+    /**
+     * Ray-casts entities and blocks from an entity's eye location. Call on the main thread.
+     *
+     * @param entity      Entity to ray-cast from
+     * @param maxDistance Maximum distance to ray-cast
+     * @param options     Extra settings for the ray-cast
+     * @return Future completed on the main thread with a ray-cast result or an empty result
+     */
+    public CompletableFuture<RayCastResult> rayCast(LivingEntity entity, double maxDistance, RayCastOptions options) {
+        Location starting = entity.getEyeLocation();
+        Vector direction = starting.getDirection();
+        return rayCast(starting.getWorld(), starting.getX(), starting.getY(), starting.getZ(), direction.getX(), direction.getY(), direction.getZ(), maxDistance, entity, options);
+    }
+
+    /**
+     * Ray-casts entities and blocks from any point in any direction. Call on the main thread.
+     *
+     * @param world       World to ray-cast in
+     * @param x           X coordinate to ray-cast from
+     * @param y           Y coordinate to ray-cast from
+     * @param z           Z coordinate to ray-cast from
+     * @param dirX        X component of the direction to ray-cast in, does not have to be normalized
+     * @param dirY        Y component of the direction to ray-cast in
+     * @param dirZ        Z component of the direction to ray-cast in
+     * @param maxDistance Maximum distance to ray-cast
+     * @param ignored     Entity the ray can't hit, usually the one ray-casting. May be null.
+     * @param options     Extra settings for the ray-cast
+     * @return Future completed on the main thread with a ray-cast result or an empty result
+     */
+    public CompletableFuture<RayCastResult> rayCast(World world, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, @Nullable Entity ignored, RayCastOptions options) {
+        double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+        dirX /= length;
+        dirY /= length;
+        dirZ /= length;
+
+        BlockAccess blocks = captureBlocks(world, x, y, z, dirX, dirY, dirZ, maxDistance, options.isBlockShapes());
+        HitboxSnapshot hitboxes = RayCastUtility.getHitboxes(world, x, y, z, dirX, dirY, dirZ, maxDistance, options);
+        return onMainThread(trace(blocks, hitboxes, ignored, x, y, z, dirX, dirY, dirZ, maxDistance, options.getBlockFilter()), hit -> hit.toResult(world));
+    }
+
+    /**
+     * Ray-casts only blocks from an entity's eye location. Call on the main thread.
+     *
+     * @param entity      Entity to ray-cast from
+     * @param maxDistance Maximum distance to ray-cast
+     * @param options     Extra settings for the ray-cast
+     * @return Future completed on the main thread with a ray-casted block result or an empty block result
+     */
+    public CompletableFuture<BlockRayCastResult> rayCastBlocks(LivingEntity entity, double maxDistance, RayCastOptions options) {
+        Location starting = entity.getEyeLocation();
+        Vector direction = starting.getDirection();
+        return rayCastBlocks(starting.getWorld(), starting.getX(), starting.getY(), starting.getZ(), direction.getX(), direction.getY(), direction.getZ(), maxDistance, options);
+    }
+
+    /**
+     * Ray-casts only blocks from any point in any direction. Call on the main thread.
+     *
+     * @param world       World to ray-cast in
+     * @param x           X coordinate to ray-cast from
+     * @param y           Y coordinate to ray-cast from
+     * @param z           Z coordinate to ray-cast from
+     * @param dirX        X component of the direction to ray-cast in, does not have to be normalized
+     * @param dirY        Y component of the direction to ray-cast in
+     * @param dirZ        Z component of the direction to ray-cast in
+     * @param maxDistance Maximum distance to ray-cast
+     * @param options     Extra settings for the ray-cast
+     * @return Future completed on the main thread with a ray-casted block result or an empty block result
+     */
+    public CompletableFuture<BlockRayCastResult> rayCastBlocks(World world, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, RayCastOptions options) {
+        BlockAccess blocks = captureBlocks(world, x, y, z, dirX, dirY, dirZ, maxDistance, options.isBlockShapes());
+        return onMainThread(trace(blocks, null, null, x, y, z, dirX, dirY, dirZ, maxDistance, options.getBlockFilter()), hit -> hit.toBlockResult(world));
+    }
+
+    /**
+     * Converts a hit on the main thread. Failures are passed on from the main thread too: {@code thenApplyAsync} would complete them
+     * right away on the worker that failed.
+     */
+    private <T> CompletableFuture<T> onMainThread(CompletableFuture<RayHit> traced, Function<RayHit, T> convert) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        traced.whenCompleteAsync((hit, failure) -> {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+                return;
+            }
+            try {
+                result.complete(convert.apply(hit));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }, mainThread);
+        return result;
+    }
+
+    /**
+     * Traces a ray against snapshots on the worker executor. Doesn't touch the server, so it can be called from any thread and works with
+     * any {@link BlockAccess} and hitboxes, including ones made up for testing.
+     *
+     * @param blocks        Blocks to trace against, must be safe to read from the worker
+     * @param hitboxes      Hitboxes to trace against, null to only trace blocks
+     * @param ignored       Entity the ray can't hit, may be null
+     * @param x             X coordinate to ray-cast from
+     * @param y             Y coordinate to ray-cast from
+     * @param z             Z coordinate to ray-cast from
+     * @param dirX          X component of the direction to ray-cast in, does not have to be normalized
+     * @param dirY          Y component of the direction to ray-cast in
+     * @param dirZ          Z component of the direction to ray-cast in
+     * @param maxDistance   Maximum distance to ray-cast
+     * @param filter        Which blocks stop the ray
+     * @return Future completed on the worker with the closest hit
+     */
+    public CompletableFuture<RayHit> trace(BlockAccess blocks, @Nullable HitboxSnapshot hitboxes, @Nullable Entity ignored, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, BlockFilter filter) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = RayCastMetrics.begin();
+            RayHit hit = RayTracer.trace(blocks, hitboxes, ignored, x, y, z, dirX, dirY, dirZ, maxDistance, filter);
+            RayCastMetrics.end(CastMethod.ASYNC, null, start, hit.getType());
+            return hit;
+        }, worker);
+    }
+
+    /**
+     * Captures the chunks along a ray. While {@link HitboxSnapshots} is counting ticks, chunks captured earlier in the same tick are reused.
+     */
+    private SnapshotBlockAccess captureBlocks(World world, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, boolean blockShapes) {
+        Map<Long, ChunkSnapshot> cache = null;
+        if (HitboxSnapshots.isEnabled()) {
+            long tick = HitboxSnapshots.getCurrentTick();
+            if (tick != cacheTick) {
+                chunkCache.clear();
+                cacheTick = tick;
+            }
+            cache = chunkCache.computeIfAbsent(world.getUID(), uid -> new HashMap<>());
+        }
+        Map<Long, ChunkSnapshot> chunks = SnapshotBlockAccess.captureChunks(world, x, y, z, dirX, dirY, dirZ, maxDistance, cache);
+        return new SnapshotBlockAccess(chunks.values(), SnapshotBlockAccess.getMinHeight(world), world.getMaxHeight(), blockShapes);
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+
+import javax.annotation.Nullable;
+
+/**
+ * Where a ray-cast reads block types from. {@link WorldBlockAccess} reads the live world and may only be used on the main thread,
+ * {@link SnapshotBlockAccess} reads captured chunk snapshots and can be used from any thread.
+ */
+public interface BlockAccess {
+
+    /**
+     * @return Type of the block at the coordinates, {@link Material#AIR} if the block isn't available
+     */
+    Material getType(int x, int y, int z);
+
+    /**
+     * Whether the block at the coordinates stops a ray. Block accesses that know this without looking up the type, like the bitmaps of
+     * {@link OccupancyIndex}, answer it directly.
+     *
+     * @param filter Which blocks stop the ray
+     * @return Whether the block at the coordinates stops the ray
+     */
+    default boolean isHit(int x, int y, int z, BlockFilter filter) {
+        return filter.test(getType(x, y, z));
+    }
+
+    /**
+     * @return Collision shape of the block at the coordinates (see {@link BlockShapes}), or null to treat it as a whole cube
+     */
+    @Nullable
+    default double[] getShape(int x, int y, int z) {
+        return null;
+    }
+
+    /**
+     * @return Whether {@link #getShape(int, int, int)} can return anything but null. Ray-casts only look for fences and walls reaching up
+     * from the block below when this is true.
+     */
+    default boolean hasShapes() {
+        return false;
+    }
+
+    /**
+     * Lets ray-casts skip a whole chunk section at once. Only return true if every block in the section is air (or not there at all, like
+     * in unloaded chunks or outside of the world), saying false when unsure is always safe.
+     *
+     * @param sectionX X coordinate of the section, block x divided by 16
+     * @param sectionY Y coordinate of the section, block y divided by 16
+     * @param sectionZ Z coordinate of the section, block z divided by 16
+     * @return Whether every block of the 16x16x16 section is air
+     */
+    default boolean isSectionEmpty(int sectionX, int sectionY, int sectionZ) {
+        return false;
+    }
+
+    /**
+     * @param world World to read
+     * @return Block access reading the live world, through the {@link OccupancyIndex} if it's enabled
+     */
+    static BlockAccess of(World world) {
+        return of(world, false);
+    }
+
+    /**
+     * @param world       World to read
+     * @param blockShapes Whether to read the collision shapes of blocks, see {@link RayCastOptions#blockShapes(boolean)}
+     * @return Block access reading the live world, through the {@link OccupancyIndex} if it's enabled
+     */
+    static BlockAccess of(World world, boolean blockShapes) {
+        WorldBlockAccess blocks = new WorldBlockAccess(world, blockShapes);
+        return OccupancyIndex.isEnabled() ? new OccupancyBlockAccess(blocks) : blocks;
+    }
+}
@@ -0,0 +1,176 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.Material;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Predicate;
+
+/**
+ * Decides which blocks stop a ray. The decision for every {@link Material} is worked out once when the filter is built and stored as one
+ * bit per material, so testing a block during a ray-cast is a single array lookup no matter how the filter was described. Build a filter
+ * once and keep it, it's immutable and can be shared between any number of ray-casts on any thread.
+ * <pre>
+ *     static final BlockFilter SEE_THROUGH_GLASS = BlockFilter.DEFAULT.passingThrough(Material.GLASS, Material.GLASS_PANE);
+ *     ...
+ *     RayCastUtility.rayCast(player, 30, new RayCastOptions().blockFilter(SEE_THROUGH_GLASS));
+ * </pre>
+ */
+public final class BlockFilter implements Predicate<Material> {
+
+    private static final Material[] MATERIALS = Material.values();
+
+    /**
+     * Every kind of air: AIR, and CAVE_AIR and VOID_AIR on 1.13+.
+     */
+    private static final Material[] AIR = existing("AIR", "CAVE_AIR", "VOID_AIR");
+
+    private static final long[] AIR_BITS = bits(Arrays.asList(AIR));
+
+    /**
+     * Water and lava, and the stationary variants older servers have.
+     */
+    private static final Material[] LIQUIDS = existing("WATER", "LAVA", "STATIONARY_WATER", "STATIONARY_LAVA");
+
+    /**
+     * Every block but air stops the ray.
+     */
+    public static final BlockFilter DEFAULT = of(type -> true).passingThrough(AIR);
+
+    /**
+     * Every block but air and liquids stops the ray, what {@link RayCastOptions#ignoreLiquids(boolean)} uses.
+     */
+    public static final BlockFilter IGNORE_LIQUIDS = DEFAULT.passingThrough(LIQUIDS);
+
+    private final long[] hits;
+
+    private final boolean passesOnlyAir;
+
+    private BlockFilter(long[] hits) {
+        this.hits = hits;
+        this.passesOnlyAir = passesOnlyAir(hits);
+    }
+
+    /**
+     * Builds a filter from a predicate. The predicate is called once for every material right away, and never again.
+     *
+     * @param stops Whether a block of the given type stops the ray
+     * @return The filter
+     */
+    public static BlockFilter of(Predicate<Material> stops) {
+        long[] hits = new long[(MATERIALS.length + 63) >>> 6];
+        for (Material type : MATERIALS) {
+            if (stops.test(type)) {
+                hits[type.ordinal() >>> 6] |= 1L << type.ordinal();
+            }
+        }
+        return new BlockFilter(hits);
+    }
+
+    /**
+     * Builds a filter where exactly the given materials stop the ray.
+     *
+     * @param stops Types of the blocks that stop the ray
+     * @return The filter
+     */
+    public static BlockFilter of(Collection<Material> stops) {
+        return new BlockFilter(bits(stops));
+    }
+
+    /**
+     * @param types Materials the ray should go through
+     * @return A copy of this filter that also lets the given materials through
+     */
+    public BlockFilter passingThrough(Material... types) {
+        return passingThrough(Arrays.asList(types));
+    }
+
+    /**
+     * @param types Materials the ray should go through
+     * @return A copy of this filter that also lets the given materials through
+     */
+    public BlockFilter passingThrough(Collection<Material> types) {
+        long[] hits = this.hits.clone();
+        for (Material type : types) {
+            hits[type.ordinal() >>> 6] &= ~(1L << type.ordinal());
+        }
+        return new BlockFilter(hits);
+    }
+
+    /**
+     * @param types Materials that should stop the ray
+     * @return A copy of this filter where the given materials also stop the ray
+     */
+    public BlockFilter stoppingAt(Material... types) {
+        long[] hits = this.hits.clone();
+        for (Material type : types) {
+            hits[type.ordinal() >>> 6] |= 1L << type.ordinal();
+        }
+        return new BlockFilter(hits);
+    }
+
+    /**
+     * @param type Type of the block
+     * @return Whether a block of this type stops the ray
+     */
+    @Override
+    public boolean test(Material type) {
+        int ordinal = type.ordinal();
+        return (hits[ordinal >>> 6] & (1L << ordinal)) != 0;
+    }
+
+    /**
+     * @return Whether every block this filter lets through is some kind of air, worked out when the filter was built
+     */
+    boolean passesOnlyAir() {
+        return passesOnlyAir;
+    }
+
+    private static boolean passesOnlyAir(long[] hits) {
+        for (int ordinal = 0; ordinal < MATERIALS.length; ordinal++) {
+            long bit = 1L << ordinal;
+            if ((hits[ordinal >>> 6] & bit) == 0 && (AIR_BITS[ordinal >>> 6] & bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long[] bits(Collection<Material> types) {
+        long[] bits = new long[(MATERIALS.length + 63) >>> 6];
+        for (Material type : types) {
+            bits[type.ordinal() >>> 6] |= 1L << type.ordinal();
+        }
+        return bits;
+    }
+
+    static Material[] existing(String... names) {
+        Material[] found = new Material[names.length];
+        int count = 0;
+        for (String name : names) {
+            try {
+                Material type = Material.valueOf(name);
+                found[count++] = type;
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("BlockFilter{passing: ");
+        int passing = 0;
+        for (Material type : MATERIALS) {
+            if (!test(type) && passing++ < 8) {
+                builder.append(type).append(", ");
+            }
+        }
+        if (passing > 8) {
+            builder.append("and ").append(passing - 8).append(" more");
+        } else if (passing > 0) {
+            builder.setLength(builder.length() - 2);
+        }
+        return builder.append('}').toString();
+    }
+}
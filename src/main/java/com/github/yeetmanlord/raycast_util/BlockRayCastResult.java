@@ -1,5 +1,6 @@
 package com.github.yeetmanlord.raycast_util;
 
+import org.bukkit.Location;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 
@@ -9,10 +10,24 @@ public class BlockRayCastResult extends RayCastResult {
 
     private BlockFace face;
 
+    private Location hitLocation;
+
+    private double distance;
+
     public BlockRayCastResult(ResultType type, Block block, BlockFace face) {
+        this(type, block, face, null);
+    }
+
+    public BlockRayCastResult(ResultType type, Block block, BlockFace face, Location hitLocation) {
+        this(type, block, face, hitLocation, Double.NaN);
+    }
+
+    public BlockRayCastResult(ResultType type, Block block, BlockFace face, Location hitLocation, double distance) {
         super(type, block);
         this.block = block;
         this.face = face;
+        this.hitLocation = hitLocation;
+        this.distance = distance;
     }
 
     public Block getBlock() {
@@ -23,11 +38,28 @@ public class BlockRayCastResult extends RayCastResult {
         return face;
     }
 
+    /**
+     * @return The exact point where the ray entered the block. Only available for exact ray-casts and ray-casts with
+     * {@link RayCastOptions#refineHits(boolean)}, null otherwise.
+     */
+    public Location getHitLocation() {
+        return hitLocation;
+    }
+
+    /**
+     * @return Distance from the start of the ray to {@link #getHitLocation()}, NaN when that's null
+     */
+    public double getDistance() {
+        return distance;
+    }
+
     @Override
     public String toString() {
         return "BlockRayTraceResult{" +
                 "block: " + block +
                 ", face: " + face +
+                ", hitLocation: " + hitLocation +
+                ", distance: " + distance +
                 '}';
     }
 }
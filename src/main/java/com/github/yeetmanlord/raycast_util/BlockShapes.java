@@ -0,0 +1,186 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Collision shapes of block states, so rays can go over a bottom slab, through the gap in a fence or under the top half of a door. Every
+ * {@link BlockData} has its shape read once through {@link Block#getCollisionShape()}, then it's kept as a flat array of boxes relative to
+ * the block's corner: six doubles per box, min x, y, z then max x, y, z. Reading cached shapes is safe from any thread.
+ * <br>
+ * Shapes need a 1.17+ server. On older servers, and for block states that haven't been seen on the main thread yet, blocks are whole cubes.
+ * Blocks whose shape is moved around depending on where they are (bamboo and pointed dripstone) aren't cached: {@link #getShape(Block)}
+ * reads them every time and {@link #getCachedShape(BlockData)} treats them as whole cubes.
+ * <br>
+ * Fences, fence gates and walls are 1.5 blocks tall, so they are also tested from the block above them and rays going over a fence still
+ * hit its top half.
+ */
+public class BlockShapes {
+
+    /**
+     * Shape of a whole cube.
+     */
+    public static final double[] FULL_BLOCK = {0, 0, 0, 1, 1, 1};
+
+    /**
+     * Shape of a block without collision, e.g. grass or an open fence gate.
+     */
+    public static final double[] EMPTY = {};
+
+    private static final ConcurrentMap<BlockData, double[]> SHAPES = new ConcurrentHashMap<>();
+
+    /**
+     * Blocks with a random offset. Looked up by name since they don't exist on every server version.
+     */
+    private static final Set<Material> OFFSET = new HashSet<>(Arrays.asList(BlockFilter.existing("BAMBOO", "POINTED_DRIPSTONE")));
+
+    /**
+     * Blocks whose collision reaches into the block above: fences, fence gates and walls are 1.5 blocks tall.
+     */
+    static final BlockFilter TALL = BlockFilter.of(type -> {
+        String name = type.name();
+        return !name.startsWith("LEGACY_") && (name.endsWith("_FENCE") || name.endsWith("_FENCE_GATE") || name.endsWith("_WALL"));
+    });
+
+    private static volatile boolean supported = true;
+
+    private BlockShapes() {
+    }
+
+    /**
+     * Gets the shape of a block, reading it from the block if its state isn't cached yet. Only call on the main thread.
+     *
+     * @param block Block to get the shape of
+     * @return Boxes of the shape, 6 doubles each. Don't modify the array.
+     */
+    public static double[] getShape(Block block) {
+        if (!supported) {
+            return FULL_BLOCK;
+        }
+        BlockData data;
+        try {
+            data = block.getBlockData();
+        } catch (NoSuchMethodError e) {
+            supported = false;
+            return FULL_BLOCK;
+        }
+        if (OFFSET.contains(data.getMaterial())) {
+            return readShape(block);
+        }
+        double[] shape = SHAPES.get(data);
+        if (shape == null) {
+            shape = readShape(block);
+            SHAPES.putIfAbsent(data, shape);
+        }
+        return shape;
+    }
+
+    /**
+     * Gets the shape of a block state without touching the server, so it can be called from any thread.
+     *
+     * @param data State of the block
+     * @return Boxes of the shape, or null if the state hasn't been cached by {@link #getShape(Block)} yet or its shape isn't cached at all
+     */
+    @Nullable
+    public static double[] getCachedShape(BlockData data) {
+        return SHAPES.get(data);
+    }
+
+    /**
+     * @param shape Boxes of the shape
+     * @return Whether any box of the shape reaches into the block above, like fences and walls do
+     */
+    static boolean isTall(double[] shape) {
+        for (int i = 4; i < shape.length; i += 6) {
+            if (shape[i] > 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Forgets every cached shape, e.g. after a data pack changed them.
+     */
+    public static void clear() {
+        SHAPES.clear();
+    }
+
+    /**
+     * @return Number of block states with a cached shape
+     */
+    public static int size() {
+        return SHAPES.size();
+    }
+
+    private static double[] readShape(Block block) {
+        Collection<org.bukkit.util.BoundingBox> boxes;
+        try {
+            boxes = block.getCollisionShape().getBoundingBoxes();
+        } catch (NoSuchMethodError e) {
+            supported = false;
+            return FULL_BLOCK;
+        }
+        if (boxes.isEmpty()) {
+            return EMPTY;
+        }
+        double[] shape = new double[boxes.size() * 6];
+        int i = 0;
+        for (org.bukkit.util.BoundingBox box : boxes) {
+            shape[i] = box.getMinX();
+            shape[i + 1] = box.getMinY();
+            shape[i + 2] = box.getMinZ();
+            shape[i + 3] = box.getMaxX();
+            shape[i + 4] = box.getMaxY();
+            shape[i + 5] = box.getMaxZ();
+            i += 6;
+        }
+        if (shape.length == 6 && shape[0] == 0 && shape[1] == 0 && shape[2] == 0 && shape[3] == 1 && shape[4] == 1 && shape[5] == 1) {
+            return FULL_BLOCK;
+        }
+        return shape;
+    }
+
+    /**
+     * Intersects a ray with every box of a shape.
+     *
+     * @param shape       Boxes of the shape
+     * @param blockX      X coordinate of the block
+     * @param blockY      Y coordinate of the block
+     * @param blockZ      Z coordinate of the block
+     * @param maxDistance Maximum distance along the ray to look for an intersection
+     * @return Index of the first double of the closest box the ray enters, or -1 if it misses every box
+     */
+    public static int rayCast(double[] shape, int blockX, int blockY, int blockZ, double originX, double originY, double originZ, double dirX, double dirY, double dirZ, double maxDistance) {
+        int closest = -1;
+        double closestDistance = maxDistance;
+        for (int i = 0; i < shape.length; i += 6) {
+            double distance = BoundingBox.rayIntersect(blockX + shape[i], blockY + shape[i + 1], blockZ + shape[i + 2],
+                    blockX + shape[i + 3], blockY + shape[i + 4], blockZ + shape[i + 5], originX, originY, originZ, dirX, dirY, dirZ, closestDistance);
+            if (distance >= 0 && (closest == -1 || distance < closestDistance)) {
+                closest = i;
+                closestDistance = distance;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Builds the hit for a box of a shape the ray is known to enter, see {@link #rayCast(double[], int, int, int, double, double, double, double, double, double, double)}.
+     */
+    static RayHit hitBox(double[] shape, int box, int blockX, int blockY, int blockZ, double originX, double originY, double originZ, double dirX, double dirY, double dirZ, double maxDistance) {
+        RayIntersection intersection = new BoundingBox(blockX + shape[box], blockY + shape[box + 1], blockZ + shape[box + 2],
+                blockX + shape[box + 3], blockY + shape[box + 4], blockZ + shape[box + 5]).intersect(originX, originY, originZ, dirX, dirY, dirZ, maxDistance);
+        double distance = intersection.getDistance();
+        return RayHit.block(blockX, blockY, blockZ, intersection.getFace(), originX + dirX * distance, originY + dirY * distance, originZ + dirZ * distance, distance);
+    }
+}
@@ -1,8 +1,11 @@
 package com.github.yeetmanlord.raycast_util;
 
 import org.bukkit.Location;
+import org.bukkit.block.BlockFace;
 import org.bukkit.entity.Entity;
+import org.bukkit.util.Vector;
 
+import javax.annotation.Nullable;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 
@@ -25,45 +28,18 @@ public class BoundingBox {
     }
 
     public BoundingBox(Object nmsObject) throws NoSuchFieldException {
-        try {
-            this.x1 = (double) getFieldFromNmsObject("a", nmsObject);
-            this.y1 = (double) getFieldFromNmsObject("b", nmsObject);
-            this.z1 = (double) getFieldFromNmsObject("c", nmsObject);
-
-            this.x2 = (double) getFieldFromNmsObject("d", nmsObject);
-            this.y2 = (double) getFieldFromNmsObject("e", nmsObject);
-            this.z2 = (double) getFieldFromNmsObject("f", nmsObject);
-        } catch (NoSuchFieldException e) {
-            this.x1 = (double) getFieldFromNmsObject("minX", nmsObject);
-            this.y1 = (double) getFieldFromNmsObject("minY", nmsObject);
-            this.z1 = (double) getFieldFromNmsObject("minZ", nmsObject);
-
-            this.x2 = (double) getFieldFromNmsObject("maxX", nmsObject);
-            this.y2 = (double) getFieldFromNmsObject("maxY", nmsObject);
-            this.z2 = (double) getFieldFromNmsObject("maxZ", nmsObject);
-        }
+        HitboxAccessor.BoxFields fields = HitboxAccessor.getBoxFields(nmsObject.getClass());
+        this.x1 = fields.getMinX(nmsObject);
+        this.y1 = fields.getMinY(nmsObject);
+        this.z1 = fields.getMinZ(nmsObject);
+
+        this.x2 = fields.getMaxX(nmsObject);
+        this.y2 = fields.getMaxY(nmsObject);
+        this.z2 = fields.getMaxZ(nmsObject);
     }
 
     public BoundingBox(Entity entity) throws NoSuchFieldException, NoSuchMethodException, IllegalAccessException, InvocationTargetException {
-        Object nmsEntity = entity.getClass().getMethod("getHandle").invoke(entity);
-        Object nmsObject = nmsEntity.getClass().getMethod("getBoundingBox").invoke(nmsEntity);
-        try {
-            this.x1 = (double) getFieldFromNmsObject("a", nmsObject);
-            this.y1 = (double) getFieldFromNmsObject("b", nmsObject);
-            this.z1 = (double) getFieldFromNmsObject("c", nmsObject);
-
-            this.x2 = (double) getFieldFromNmsObject("d", nmsObject);
-            this.y2 = (double) getFieldFromNmsObject("e", nmsObject);
-            this.z2 = (double) getFieldFromNmsObject("f", nmsObject);
-        } catch (NoSuchFieldException e) {
-            this.x1 = (double) getFieldFromNmsObject("minX", nmsObject);
-            this.y1 = (double) getFieldFromNmsObject("minY", nmsObject);
-            this.z1 = (double) getFieldFromNmsObject("minZ", nmsObject);
-
-            this.x2 = (double) getFieldFromNmsObject("maxX", nmsObject);
-            this.y2 = (double) getFieldFromNmsObject("maxY", nmsObject);
-            this.z2 = (double) getFieldFromNmsObject("maxZ", nmsObject);
-        }
+        this(HitboxAccessor.getNmsBoundingBox(entity));
     }
 
     public BoundingBox(Location loc1, Location loc2) {
@@ -86,6 +62,13 @@ public class BoundingBox {
         return x >= this.x1 && x <= this.x2 && y >= this.y1 && y <= this.y2 && z >= this.z1 && z <= this.z2;
     }
 
+    /**
+     * Same as {@link #isWithinBoundingBox(double, double, double)}, for a box that isn't wrapped in a {@link BoundingBox}.
+     */
+    public static boolean isWithinBoundingBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ, double x, double y, double z) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+    }
+
     public boolean isWithinBoundingBox(Location location) {
         return this.isWithinBoundingBox(location.getX(), location.getY(), location.getZ());
     }
@@ -103,6 +86,114 @@ public class BoundingBox {
         return result;
     }
 
+    /**
+     * Intersects a ray with this bounding box using the slab method. This is exact, so unlike checking points along the ray with
+     * {@link #isWithinBoundingBox(double, double, double)} it can't step over thin hitboxes.
+     *
+     * @param originX     X coordinate the ray starts at
+     * @param originY     Y coordinate the ray starts at
+     * @param originZ     Z coordinate the ray starts at
+     * @param dirX        X component of the ray direction. The direction should be normalized for the distance to be in blocks.
+     * @param dirY        Y component of the ray direction
+     * @param dirZ        Z component of the ray direction
+     * @param maxDistance Maximum distance along the ray to look for an intersection
+     * @return Distance along the ray at which it enters the box, 0 if the ray starts inside the box, or -1 if the ray misses
+     */
+    public double rayIntersect(double originX, double originY, double originZ, double dirX, double dirY, double dirZ, double maxDistance) {
+        return rayIntersect(x1, y1, z1, x2, y2, z2, originX, originY, originZ, dirX, dirY, dirZ, maxDistance);
+    }
+
+    /**
+     * Same as {@link #rayIntersect(double, double, double, double, double, double, double)}, for a box that isn't wrapped in a {@link BoundingBox}.
+     */
+    public static double rayIntersect(double minX, double minY, double minZ, double maxX, double maxY, double maxZ,
+                                      double originX, double originY, double originZ, double dirX, double dirY, double dirZ, double maxDistance) {
+        double near = 0;
+        double far = maxDistance;
+
+        if (dirX == 0) {
+            if (originX < minX || originX > maxX) {
+                return -1;
+            }
+        } else {
+            double inverse = 1D / dirX;
+            double t1 = (minX - originX) * inverse;
+            double t2 = (maxX - originX) * inverse;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+
+        if (dirY == 0) {
+            if (originY < minY || originY > maxY) {
+                return -1;
+            }
+        } else {
+            double inverse = 1D / dirY;
+            double t1 = (minY - originY) * inverse;
+            double t2 = (maxY - originY) * inverse;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+
+        if (dirZ == 0) {
+            if (originZ < minZ || originZ > maxZ) {
+                return -1;
+            }
+        } else {
+            double inverse = 1D / dirZ;
+            double t1 = (minZ - originZ) * inverse;
+            double t2 = (maxZ - originZ) * inverse;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+
+        return near <= far ? near : -1;
+    }
+
+    /**
+     * Intersects a ray with this bounding box and works out which face of the box the ray went through.
+     *
+     * @param origin      Location the ray starts at
+     * @param direction   Direction of the ray, should be normalized
+     * @param maxDistance Maximum distance along the ray to look for an intersection
+     * @return The intersection or null if the ray misses the box
+     */
+    @Nullable
+    public RayIntersection intersect(Location origin, Vector direction, double maxDistance) {
+        return intersect(origin.getX(), origin.getY(), origin.getZ(), direction.getX(), direction.getY(), direction.getZ(), maxDistance);
+    }
+
+    /**
+     * Same as {@link #intersect(Location, Vector, double)} without the need for a {@link Location} and {@link Vector}.
+     */
+    @Nullable
+    public RayIntersection intersect(double ox, double oy, double oz, double dx, double dy, double dz, double maxDistance) {
+        double distance = rayIntersect(ox, oy, oz, dx, dy, dz, maxDistance);
+        if (distance < 0) {
+            return null;
+        }
+        if (distance == 0) {
+            return new RayIntersection(0, BlockFace.SELF);
+        }
+
+        // The face the ray entered through is on the axis whose slab was entered last
+        double tx = dx == 0 ? Double.NEGATIVE_INFINITY : ((dx > 0 ? x1 : x2) - ox) / dx;
+        double ty = dy == 0 ? Double.NEGATIVE_INFINITY : ((dy > 0 ? y1 : y2) - oy) / dy;
+        double tz = dz == 0 ? Double.NEGATIVE_INFINITY : ((dz > 0 ? z1 : z2) - oz) / dz;
+        BlockFace face;
+        if (tx >= ty && tx >= tz) {
+            face = dx > 0 ? BlockFace.WEST : BlockFace.EAST;
+        } else if (ty >= tz) {
+            face = dy > 0 ? BlockFace.DOWN : BlockFace.UP;
+        } else {
+            face = dz > 0 ? BlockFace.NORTH : BlockFace.SOUTH;
+        }
+        return new RayIntersection(distance, face);
+    }
+
+    /**
+     * Reads a field with plain reflection. Bounding boxes are read through {@link HitboxAccessor} instead, which caches the lookups.
+     */
     public static Object getFieldFromNmsObject(String fieldName, Object o) throws NoSuchFieldException {
 
         try {
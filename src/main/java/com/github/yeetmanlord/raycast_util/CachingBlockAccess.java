@@ -0,0 +1,113 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.Material;
+
+/**
+ * Remembers every block type read through it, so rays that cross the same blocks only look each one up once. Not thread safe, and it never
+ * forgets anything, so only keep one around for as long as the blocks can't change (e.g. one batch of ray-casts).
+ */
+public class CachingBlockAccess implements BlockAccess {
+
+    private final BlockAccess blocks;
+
+    private long[] keys;
+
+    private Material[] types;
+
+    private int size;
+
+    /**
+     * @param blocks Block access to read blocks that aren't cached yet from
+     */
+    public CachingBlockAccess(BlockAccess blocks) {
+        this.blocks = blocks;
+        this.keys = new long[256];
+        this.types = new Material[256];
+    }
+
+    @Override
+    public Material getType(int x, int y, int z) {
+        long key = key(x, y, z);
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (types[slot] != null) {
+            if (keys[slot] == key) {
+                return types[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        Material type = blocks.getType(x, y, z);
+        keys[slot] = key;
+        types[slot] = type;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+        return type;
+    }
+
+    /**
+     * A bit lookup in the {@link OccupancyIndex} is cheaper than the cache, so blocks it can answer for skip the cache.
+     */
+    @Override
+    public boolean isHit(int x, int y, int z, BlockFilter filter) {
+        if (blocks instanceof OccupancyBlockAccess && filter == OccupancyIndex.getFilter()) {
+            return blocks.isHit(x, y, z, filter);
+        }
+        return filter.test(getType(x, y, z));
+    }
+
+    @Override
+    public boolean isSectionEmpty(int sectionX, int sectionY, int sectionZ) {
+        return blocks.isSectionEmpty(sectionX, sectionY, sectionZ);
+    }
+
+    /**
+     * Shapes aren't cached here, {@link BlockShapes} already caches them for every block state.
+     */
+    @Override
+    public double[] getShape(int x, int y, int z) {
+        return blocks.getShape(x, y, z);
+    }
+
+    @Override
+    public boolean hasShapes() {
+        return blocks.hasShapes();
+    }
+
+    /**
+     * @return Number of blocks cached so far
+     */
+    public int size() {
+        return size;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        Material[] oldTypes = types;
+        keys = new long[oldKeys.length * 2];
+        types = new Material[oldTypes.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldTypes[i] == null) {
+                continue;
+            }
+            int slot = hash(oldKeys[i]) & mask;
+            while (types[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            types[slot] = oldTypes[i];
+        }
+    }
+
+    private static int hash(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    /**
+     * Packs block coordinates into one key, the same way Minecraft packs block positions: 26 bits for x and z, 12 bits for y.
+     */
+    static long key(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+}
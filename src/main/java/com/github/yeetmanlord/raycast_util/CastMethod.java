@@ -0,0 +1,8 @@
+package com.github.yeetmanlord.raycast_util;
+
+/**
+ * The kinds of ray-cast {@link RayCastMetrics} keeps separate numbers for.
+ */
+public enum CastMethod {
+    RAY_CAST_BLOCKS, RAY_CAST_ENTITIES, RAY_CAST, EXECUTE_STEP_BY_STEP, EXECUTE_STEP_BY_STEP_WITH_PRECISION, EXECUTE_STEP_BY_STEP_ADAPTIVE, PIERCING, LINE_OF_SIGHT, VISIBLE_ENTITIES, ASYNC, BATCH, CURSOR, SWEEP, REWOUND
+}
@@ -0,0 +1,120 @@
+package com.github.yeetmanlord.raycast_util;
+
+import java.util.Arrays;
+
+/**
+ * Totals for one kind of ray-cast at one precision, taken from {@link RayCastMetrics#snapshot()}. Latencies are kept in a histogram with one
+ * bucket per power of two nanoseconds, so percentiles are accurate to within a factor of two.
+ */
+public class CastStats {
+
+    private final long count;
+
+    private final long totalNanos;
+
+    private final long steps;
+
+    private final long blocks;
+
+    private final long hitboxes;
+
+    private final long[] results;
+
+    private final long[] histogram;
+
+    public CastStats(long count, long totalNanos, long steps, long blocks, long hitboxes, long[] results, long[] histogram) {
+        this.count = count;
+        this.totalNanos = totalNanos;
+        this.steps = steps;
+        this.blocks = blocks;
+        this.hitboxes = hitboxes;
+        this.results = results;
+        this.histogram = histogram;
+    }
+
+    /**
+     * @return Number of ray-casts
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * @return Average time a ray-cast took in nanoseconds, 0 if there were none
+     */
+    public double getMeanNanos() {
+        return count == 0 ? 0 : (double) totalNanos / count;
+    }
+
+    /**
+     * @return Number of points or blocks the rays moved through in total
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return Number of block types looked up in total
+     */
+    public long getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * @return Number of entity hitboxes tested in total
+     */
+    public long getHitboxes() {
+        return hitboxes;
+    }
+
+    /**
+     * @return Number of ray-casts that ended with the given result
+     */
+    public long getCount(ResultType result) {
+        return results[result.ordinal()];
+    }
+
+    /**
+     * @param percentile Percentile to get, between 0 and 100
+     * @return Upper bound of the time in nanoseconds the given percentage of ray-casts finished within, 0 if there were none
+     */
+    public long getPercentileNanos(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100D);
+        long seen = 0;
+        for (int bucket = 0; bucket < histogram.length; bucket++) {
+            seen += histogram[bucket];
+            if (seen >= Math.max(1, target)) {
+                return 1L << (bucket + 1);
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * @return Number of ray-casts per latency bucket. Bucket i holds the ray-casts that took from 2^i up to 2^(i+1) nanoseconds.
+     */
+    public long[] getHistogram() {
+        return histogram.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "CastStats{" +
+                "count: " + count +
+                ", meanNanos: " + getMeanNanos() +
+                ", p50Nanos: " + getPercentileNanos(50) +
+                ", p99Nanos: " + getPercentileNanos(99) +
+                ", steps: " + steps +
+                ", blocks: " + blocks +
+                ", hitboxes: " + hitboxes +
+                ", results: " + Arrays.toString(results) +
+                '}';
+    }
+}
@@ -1,24 +1,67 @@
 package com.github.yeetmanlord.raycast_util;
 
+import org.bukkit.Location;
+import org.bukkit.block.BlockFace;
 import org.bukkit.entity.Entity;
 
 public class EntityRayCastResult extends RayCastResult {
 
     private Entity entity;
 
+    private Location hitLocation;
+
+    private BlockFace face;
+
+    private double distance;
+
     public EntityRayCastResult(ResultType type, Entity entity) {
+        this(type, entity, null, null);
+    }
+
+    public EntityRayCastResult(ResultType type, Entity entity, Location hitLocation, BlockFace face) {
+        this(type, entity, hitLocation, face, Double.NaN);
+    }
+
+    public EntityRayCastResult(ResultType type, Entity entity, Location hitLocation, BlockFace face, double distance) {
         super(type, entity);
         this.entity = entity;
+        this.hitLocation = hitLocation;
+        this.face = face;
+        this.distance = distance;
     }
 
     public Entity getEntity() {
         return entity;
     }
 
+    /**
+     * @return The exact point where the ray entered the entity's hitbox, null if nothing was hit
+     */
+    public Location getHitLocation() {
+        return hitLocation;
+    }
+
+    /**
+     * @return Face of the entity's hitbox the ray entered through, null if nothing was hit
+     */
+    public BlockFace getFace() {
+        return face;
+    }
+
+    /**
+     * @return Distance from the start of the ray to {@link #getHitLocation()}, NaN if nothing was hit
+     */
+    public double getDistance() {
+        return distance;
+    }
+
     @Override
     public String toString() {
         return "EntityRayTraceResult{" +
                 "entity: " + entity +
+                ", hitLocation: " + hitLocation +
+                ", face: " + face +
+                ", distance: " + distance +
                 '}';
     }
 }
@@ -0,0 +1,44 @@
+package com.github.yeetmanlord.raycast_util;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Hitbox indexes kept sorted by how far along the ray they are hit. Adding the same index twice keeps it once, so hitboxes found in more
+ * than one grid cell are only listed once.
+ */
+class HitList {
+
+    private int[] indexes = new int[8];
+
+    private double[] distances = new double[8];
+
+    private final BitSet added = new BitSet();
+
+    private int size;
+
+    void add(int index, double distance) {
+        if (added.get(index)) {
+            return;
+        }
+        added.set(index);
+        if (size == indexes.length) {
+            indexes = Arrays.copyOf(indexes, size * 2);
+            distances = Arrays.copyOf(distances, size * 2);
+        }
+        // Hits mostly come in order, so this rarely moves more than a few entries
+        int i = size;
+        while (i > 0 && distances[i - 1] > distance) {
+            indexes[i] = indexes[i - 1];
+            distances[i] = distances[i - 1];
+            i--;
+        }
+        indexes[i] = index;
+        distances[i] = distance;
+        size++;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(indexes, size);
+    }
+}
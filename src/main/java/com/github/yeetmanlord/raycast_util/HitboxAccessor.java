@@ -0,0 +1,282 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Entity;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads entity hitboxes from NMS. All the reflection (finding getHandle, getBoundingBox and the six bounding box fields, and working out
+ * whether the fields are called a-f or minX-maxZ on this server version) is done once per class and cached as {@link MethodHandle}s.
+ * After that reading a hitbox is two method calls and six field loads and doesn't allocate anything.
+ * <br>
+ * The getters for CraftEntity, the NMS entity and the NMS bounding box of the running server are also kept in static final fields, which
+ * the JIT treats as constants, so reading the hitbox of any entity skips the map lookups and the handles can be inlined. The maps are only
+ * used for classes outside those, e.g. entities of other plugins that don't extend CraftEntity.
+ */
+public class HitboxAccessor {
+
+    private static final MethodType OBJECT_GETTER = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodType DOUBLE_GETTER = MethodType.methodType(double.class, Object.class);
+
+    private static final String[] OBFUSCATED_FIELDS = {"a", "b", "c", "d", "e", "f"};
+
+    private static final String[] NAMED_FIELDS = {"minX", "minY", "minZ", "maxX", "maxY", "maxZ"};
+
+    private static final ConcurrentHashMap<Class<?>, MethodHandle> HANDLE_GETTERS = new ConcurrentHashMap<>();
+
+    private static final ConcurrentHashMap<Class<?>, MethodHandle> BOUNDING_BOX_GETTERS = new ConcurrentHashMap<>();
+
+    private static final ConcurrentHashMap<Class<?>, BoxFields> BOX_FIELDS = new ConcurrentHashMap<>();
+
+    private HitboxAccessor() {
+    }
+
+    /**
+     * @param entity Bukkit entity
+     * @return The NMS entity behind it
+     */
+    public static Object getHandle(Entity entity) throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+        if (ServerClasses.CRAFT_ENTITY != null && ServerClasses.CRAFT_ENTITY.isInstance(entity)) {
+            return invoke(ServerClasses.HANDLE_GETTER, entity);
+        }
+        MethodHandle getter = HANDLE_GETTERS.get(entity.getClass());
+        if (getter == null) {
+            getter = findGetter(entity.getClass(), "getHandle");
+            HANDLE_GETTERS.putIfAbsent(entity.getClass(), getter);
+        }
+        return invoke(getter, entity);
+    }
+
+    /**
+     * @param entity Bukkit entity
+     * @return The NMS bounding box (AxisAlignedBB) of the entity
+     */
+    public static Object getNmsBoundingBox(Entity entity) throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+        Object nmsEntity = getHandle(entity);
+        if (ServerClasses.NMS_ENTITY != null && ServerClasses.NMS_ENTITY.isInstance(nmsEntity)) {
+            return invoke(ServerClasses.BOUNDING_BOX_GETTER, nmsEntity);
+        }
+        MethodHandle getter = BOUNDING_BOX_GETTERS.get(nmsEntity.getClass());
+        if (getter == null) {
+            getter = findGetter(nmsEntity.getClass(), "getBoundingBox");
+            BOUNDING_BOX_GETTERS.putIfAbsent(nmsEntity.getClass(), getter);
+        }
+        return invoke(getter, nmsEntity);
+    }
+
+    /**
+     * @param boundingBoxClass Class of the NMS bounding box
+     * @return The cached field getters for the class
+     * @throws NoSuchFieldException If the class has neither the a-f nor the minX-maxZ fields
+     */
+    public static BoxFields getBoxFields(Class<?> boundingBoxClass) throws NoSuchFieldException {
+        if (boundingBoxClass == ServerClasses.BOUNDING_BOX) {
+            return ServerClasses.BOX_FIELDS;
+        }
+        BoxFields fields = BOX_FIELDS.get(boundingBoxClass);
+        if (fields == null) {
+            fields = new BoxFields(boundingBoxClass);
+            BOX_FIELDS.putIfAbsent(boundingBoxClass, fields);
+        }
+        return fields;
+    }
+
+    /**
+     * Reads an NMS bounding box into an array as minX, minY, minZ, maxX, maxY, maxZ.
+     *
+     * @param nmsBoundingBox NMS bounding box
+     * @param out            Array to write to
+     * @param offset         Index to write minX to, the other five values follow it
+     */
+    public static void readBoundingBox(Object nmsBoundingBox, double[] out, int offset) throws NoSuchFieldException {
+        getBoxFields(nmsBoundingBox.getClass()).read(nmsBoundingBox, out, offset);
+    }
+
+    /**
+     * Reads an entity's hitbox into an array as minX, minY, minZ, maxX, maxY, maxZ.
+     *
+     * @param entity Entity to read the hitbox of
+     * @param out    Array to write to
+     * @param offset Index to write minX to, the other five values follow it
+     */
+    public static void readBoundingBox(Entity entity, double[] out, int offset) throws NoSuchFieldException, NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+        readBoundingBox(getNmsBoundingBox(entity), out, offset);
+    }
+
+    private static MethodHandle findGetter(Class<?> type, String name) throws NoSuchMethodException, IllegalAccessException {
+        return findGetter(type.getMethod(name));
+    }
+
+    private static MethodHandle findGetter(Method method) throws IllegalAccessException {
+        RayCastMetrics.countReflectionLookup();
+        method.setAccessible(true);
+        return MethodHandles.lookup().unreflect(method).asType(OBJECT_GETTER);
+    }
+
+    private static Object invoke(MethodHandle getter, Object target) throws InvocationTargetException {
+        try {
+            return (Object) getter.invokeExact(target);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    /**
+     * The getters of the running server's CraftEntity, NMS entity and NMS bounding box, found once when the first hitbox is read. Every
+     * field is null if they can't be found, e.g. without a server or on a server that isn't CraftBukkit, the maps are used then.
+     * <br>
+     * The getters are looked up on CraftEntity and the NMS entity class rather than on each entity's own class, so invoking them dispatches
+     * to the overrides of subclasses such as CraftPlayer.
+     */
+    private static final class ServerClasses {
+
+        static final Class<?> CRAFT_ENTITY;
+
+        static final MethodHandle HANDLE_GETTER;
+
+        static final Class<?> NMS_ENTITY;
+
+        static final MethodHandle BOUNDING_BOX_GETTER;
+
+        static final Class<?> BOUNDING_BOX;
+
+        static final BoxFields BOX_FIELDS;
+
+        static {
+            Class<?> craftEntity = null, nmsEntity = null, boundingBox = null;
+            MethodHandle handleGetter = null, boundingBoxGetter = null;
+            BoxFields boxFields = null;
+            try {
+                craftEntity = Class.forName(Bukkit.getServer().getClass().getPackage().getName() + ".entity.CraftEntity");
+                Method getHandle = craftEntity.getMethod("getHandle");
+                nmsEntity = getHandle.getReturnType();
+                Method getBoundingBox = nmsEntity.getMethod("getBoundingBox");
+                boundingBox = getBoundingBox.getReturnType();
+                handleGetter = findGetter(getHandle);
+                boundingBoxGetter = findGetter(getBoundingBox);
+                boxFields = new BoxFields(boundingBox);
+            } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+                craftEntity = nmsEntity = boundingBox = null;
+                handleGetter = boundingBoxGetter = null;
+                boxFields = null;
+            }
+            CRAFT_ENTITY = craftEntity;
+            HANDLE_GETTER = handleGetter;
+            NMS_ENTITY = nmsEntity;
+            BOUNDING_BOX_GETTER = boundingBoxGetter;
+            BOUNDING_BOX = boundingBox;
+            BOX_FIELDS = boxFields;
+        }
+    }
+
+    /**
+     * Getters for the six fields of one NMS bounding box class.
+     */
+    public static class BoxFields {
+
+        private final MethodHandle minX;
+        private final MethodHandle minY;
+        private final MethodHandle minZ;
+
+        private final MethodHandle maxX;
+        private final MethodHandle maxY;
+        private final MethodHandle maxZ;
+
+        private BoxFields(Class<?> type) throws NoSuchFieldException {
+            RayCastMetrics.countReflectionLookup();
+            String[] names = findField(type, OBFUSCATED_FIELDS[0]) != null ? OBFUSCATED_FIELDS : NAMED_FIELDS;
+            if (names == NAMED_FIELDS) {
+                RayCastMetrics.countNamedFieldFallback();
+            }
+            MethodHandle[] getters = new MethodHandle[6];
+            for (int i = 0; i < 6; i++) {
+                Field field = findField(type, names[i]);
+                if (field == null) {
+                    throw new NoSuchFieldException(names[i]);
+                }
+                field.setAccessible(true);
+                try {
+                    getters[i] = MethodHandles.lookup().unreflectGetter(field).asType(DOUBLE_GETTER);
+                } catch (IllegalAccessException e) {
+                    throw new NoSuchFieldException(names[i] + " is not accessible");
+                }
+            }
+            this.minX = getters[0];
+            this.minY = getters[1];
+            this.minZ = getters[2];
+            this.maxX = getters[3];
+            this.maxY = getters[4];
+            this.maxZ = getters[5];
+        }
+
+        public double getMinX(Object nmsBoundingBox) {
+            return get(minX, nmsBoundingBox);
+        }
+
+        public double getMinY(Object nmsBoundingBox) {
+            return get(minY, nmsBoundingBox);
+        }
+
+        public double getMinZ(Object nmsBoundingBox) {
+            return get(minZ, nmsBoundingBox);
+        }
+
+        public double getMaxX(Object nmsBoundingBox) {
+            return get(maxX, nmsBoundingBox);
+        }
+
+        public double getMaxY(Object nmsBoundingBox) {
+            return get(maxY, nmsBoundingBox);
+        }
+
+        public double getMaxZ(Object nmsBoundingBox) {
+            return get(maxZ, nmsBoundingBox);
+        }
+
+        /**
+         * Reads all six values as minX, minY, minZ, maxX, maxY, maxZ.
+         */
+        public void read(Object nmsBoundingBox, double[] out, int offset) {
+            out[offset] = get(minX, nmsBoundingBox);
+            out[offset + 1] = get(minY, nmsBoundingBox);
+            out[offset + 2] = get(minZ, nmsBoundingBox);
+            out[offset + 3] = get(maxX, nmsBoundingBox);
+            out[offset + 4] = get(maxY, nmsBoundingBox);
+            out[offset + 5] = get(maxZ, nmsBoundingBox);
+        }
+
+        private static double get(MethodHandle getter, Object nmsBoundingBox) {
+            try {
+                return (double) getter.invokeExact(nmsBoundingBox);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+
+        private static Field findField(Class<?> type, String name) {
+            for (Field field : type.getDeclaredFields()) {
+                if (field.getName().equals(name)) {
+                    return field;
+                }
+            }
+            for (Field field : type.getFields()) {
+                if (field.getName().equals(name)) {
+                    return field;
+                }
+            }
+            return null;
+        }
+    }
+}
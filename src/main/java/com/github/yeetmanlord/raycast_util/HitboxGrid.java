@@ -0,0 +1,257 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.entity.Entity;
+
+import javax.annotation.Nullable;
+
+/**
+ * Uniform grid over the hitboxes of a {@link HitboxSnapshot}, used to skip hitboxes that are nowhere near a ray. A ray-cast walks the grid
+ * cells along the ray in order (with a {@link VoxelTraversal} scaled to the cell size), only tests the hitboxes in those cells, and stops as
+ * soon as it has a hit closer than the next cell. So the cost of a ray-cast depends on how many entities are close to the ray, not on how
+ * many are loaded.
+ * <br>
+ * The grid is stored as a flat open addressing table of cells pointing into one shared array of hitbox indexes. Building it is two passes
+ * over the hitboxes and a handful of array allocations, cheap enough to rebuild every tick.
+ */
+public class HitboxGrid {
+
+    /**
+     * Edge length of a grid cell in blocks. Most hitboxes are smaller than a block, so a cell holds a few entities standing close together
+     * without making a ray walk through too many cells.
+     */
+    public static final double DEFAULT_CELL_SIZE = 4D;
+
+    private final HitboxSnapshot hitboxes;
+
+    private final double cellSize;
+
+    private final double inverseCellSize;
+
+    private final int mask;
+
+    private final long[] keys;
+
+    private final int[] starts;
+
+    private final int[] counts;
+
+    private final int[] items;
+
+    /**
+     * Hitbox coordinates in the same order as {@link #items}, so the hitboxes of a cell are next to each other in memory
+     */
+    private final double[] cellMinX, cellMinY, cellMinZ;
+    private final double[] cellMaxX, cellMaxY, cellMaxZ;
+
+    /**
+     * @param hitboxes Hitboxes to index
+     * @param cellSize Edge length of a grid cell in blocks
+     */
+    public HitboxGrid(HitboxSnapshot hitboxes, double cellSize) {
+        this.hitboxes = hitboxes;
+        this.cellSize = cellSize;
+        this.inverseCellSize = 1D / cellSize;
+
+        int entries = 0;
+        for (int i = 0; i < hitboxes.size(); i++) {
+            entries += (cell(hitboxes.getMaxX(i)) - cell(hitboxes.getMinX(i)) + 1)
+                    * (cell(hitboxes.getMaxY(i)) - cell(hitboxes.getMinY(i)) + 1)
+                    * (cell(hitboxes.getMaxZ(i)) - cell(hitboxes.getMinZ(i)) + 1);
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(16, entries * 2) - 1) << 1;
+        this.mask = capacity - 1;
+        this.keys = new long[capacity];
+        this.starts = new int[capacity];
+        this.counts = new int[capacity];
+        this.items = new int[entries];
+
+        // First pass counts the hitboxes in each cell, second pass writes them into their cell's range of items
+        for (int i = 0; i < hitboxes.size(); i++) {
+            forEachCell(i, false);
+        }
+        int start = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            starts[slot] = start;
+            start += counts[slot];
+            counts[slot] = 0;
+        }
+        for (int i = 0; i < hitboxes.size(); i++) {
+            forEachCell(i, true);
+        }
+
+        this.cellMinX = new double[entries];
+        this.cellMinY = new double[entries];
+        this.cellMinZ = new double[entries];
+        this.cellMaxX = new double[entries];
+        this.cellMaxY = new double[entries];
+        this.cellMaxZ = new double[entries];
+        for (int j = 0; j < entries; j++) {
+            int i = items[j];
+            cellMinX[j] = hitboxes.getMinX(i);
+            cellMinY[j] = hitboxes.getMinY(i);
+            cellMinZ[j] = hitboxes.getMinZ(i);
+            cellMaxX[j] = hitboxes.getMaxX(i);
+            cellMaxY[j] = hitboxes.getMaxY(i);
+            cellMaxZ[j] = hitboxes.getMaxZ(i);
+        }
+    }
+
+    private void forEachCell(int index, boolean fill) {
+        int minCellX = cell(hitboxes.getMinX(index)), maxCellX = cell(hitboxes.getMaxX(index));
+        int minCellY = cell(hitboxes.getMinY(index)), maxCellY = cell(hitboxes.getMaxY(index));
+        int minCellZ = cell(hitboxes.getMinZ(index)), maxCellZ = cell(hitboxes.getMaxZ(index));
+        for (int x = minCellX; x <= maxCellX; x++) {
+            for (int y = minCellY; y <= maxCellY; y++) {
+                for (int z = minCellZ; z <= maxCellZ; z++) {
+                    int slot = insert(key(x, y, z));
+                    if (fill) {
+                        items[starts[slot] + counts[slot]] = index;
+                    }
+                    counts[slot]++;
+                }
+            }
+        }
+    }
+
+    private int insert(long key) {
+        int slot = hash(key);
+        while (counts[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        return slot;
+    }
+
+    private int find(long key) {
+        int slot = hash(key);
+        while (counts[slot] != 0) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Same as {@link HitboxSnapshot#rayCast(double, double, double, double, double, double, double, Entity)}, but only tests hitboxes in the
+     * cells along the ray.
+     */
+    public int rayCast(double originX, double originY, double originZ, double dirX, double dirY, double dirZ, double maxDistance, @Nullable Entity ignored) {
+        if (hitboxes.size() == 0) {
+            return -1;
+        }
+        VoxelTraversal traversal = new VoxelTraversal(originX * inverseCellSize, originY * inverseCellSize, originZ * inverseCellSize, dirX, dirY, dirZ, maxDistance * inverseCellSize);
+        double inverseX = HitboxScan.inverse(dirX), inverseY = HitboxScan.inverse(dirY), inverseZ = HitboxScan.inverse(dirZ);
+        int closest = -1;
+        double closestDistance = maxDistance;
+        int tested = 0;
+        while (traversal.next()) {
+            if (closest != -1 && traversal.getDistance() * cellSize > closestDistance) {
+                break;
+            }
+            int slot = find(key(traversal.getBlockX(), traversal.getBlockY(), traversal.getBlockZ()));
+            if (slot == -1) {
+                continue;
+            }
+            int start = starts[slot], end = starts[slot] + counts[slot];
+            tested += counts[slot];
+            int j = HitboxScan.nearest(cellMinX, cellMinY, cellMinZ, cellMaxX, cellMaxY, cellMaxZ, start, end, -1, originX, originY, originZ, inverseX, inverseY, inverseZ, closestDistance);
+            if (j != -1 && hitboxes.getEntity(items[j]) == ignored) {
+                j = HitboxScan.nearest(cellMinX, cellMinY, cellMinZ, cellMaxX, cellMaxY, cellMaxZ, start, end, j, originX, originY, originZ, inverseX, inverseY, inverseZ, closestDistance);
+            }
+            if (j == -1 || items[j] == closest) {
+                continue;
+            }
+            double distance = hitboxes.rayIntersect(items[j], originX, originY, originZ, dirX, dirY, dirZ, closestDistance);
+            if (distance >= 0 && (closest == -1 || distance < closestDistance)) {
+                closest = items[j];
+                closestDistance = distance;
+            }
+        }
+        RayCastMetrics.countHitboxes(tested);
+        return closest;
+    }
+
+    /**
+     * Same as {@link HitboxSnapshot#rayCastAll(double, double, double, double, double, double, double, Entity)}, but only tests hitboxes in
+     * the cells along the ray.
+     */
+    public int[] rayCastAll(double originX, double originY, double originZ, double dirX, double dirY, double dirZ, double maxDistance, @Nullable Entity ignored) {
+        HitList hits = new HitList();
+        if (hitboxes.size() == 0) {
+            return hits.toArray();
+        }
+        VoxelTraversal traversal = new VoxelTraversal(originX * inverseCellSize, originY * inverseCellSize, originZ * inverseCellSize, dirX, dirY, dirZ, maxDistance * inverseCellSize);
+        int tested = 0;
+        while (traversal.next()) {
+            int slot = find(key(traversal.getBlockX(), traversal.getBlockY(), traversal.getBlockZ()));
+            if (slot == -1) {
+                continue;
+            }
+            for (int j = starts[slot], end = starts[slot] + counts[slot]; j < end; j++) {
+                int i = items[j];
+                if (hitboxes.getEntity(i) == ignored) {
+                    continue;
+                }
+                tested++;
+                double distance = hitboxes.rayIntersect(i, originX, originY, originZ, dirX, dirY, dirZ, maxDistance);
+                if (distance >= 0) {
+                    hits.add(i, distance);
+                }
+            }
+        }
+        RayCastMetrics.countHitboxes(tested);
+        return hits.toArray();
+    }
+
+    /**
+     * Same as {@link HitboxSnapshot#findContaining(double, double, double, Entity)}, but only tests hitboxes in the cell containing the point.
+     */
+    public int findContaining(double x, double y, double z, @Nullable Entity ignored) {
+        int slot = find(key(cell(x), cell(y), cell(z)));
+        if (slot == -1) {
+            return -1;
+        }
+        int closest = -1;
+        double closestDistance = Double.MAX_VALUE;
+        RayCastMetrics.countHitboxes(counts[slot]);
+        for (int j = starts[slot], end = starts[slot] + counts[slot]; j < end; j++) {
+            int i = items[j];
+            if (hitboxes.getEntity(i) == ignored || !BoundingBox.isWithinBoundingBox(hitboxes.getMinX(i), hitboxes.getMinY(i), hitboxes.getMinZ(i),
+                    hitboxes.getMaxX(i), hitboxes.getMaxY(i), hitboxes.getMaxZ(i), x, y, z)) {
+                continue;
+            }
+            double dx = (hitboxes.getMinX(i) + hitboxes.getMaxX(i)) * 0.5 - x;
+            double dy = hitboxes.getMinY(i) - y;
+            double dz = (hitboxes.getMinZ(i) + hitboxes.getMaxZ(i)) * 0.5 - z;
+            double distance = dx * dx + dy * dy + dz * dz;
+            if (distance < closestDistance) {
+                closest = i;
+                closestDistance = distance;
+            }
+        }
+        return closest;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    private int cell(double coordinate) {
+        return VoxelTraversal.floor(coordinate * inverseCellSize);
+    }
+
+    private int hash(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    /**
+     * Packs cell coordinates into one key. Coordinates far enough apart to wrap around can share a key, which only means a few extra
+     * hitboxes get tested.
+     */
+    private static long key(int x, int y, int z) {
+        return ((long) (x & 0xFFFFFF) << 40) | ((long) (z & 0xFFFFFF) << 16) | (y & 0xFFFF);
+    }
+}
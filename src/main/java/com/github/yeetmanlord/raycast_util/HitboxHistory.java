@@ -0,0 +1,429 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Remembers where the hitboxes of entities were over the last ticks, so shots can be tested against what the shooter saw instead of where
+ * entities are now on the server (lag compensation). See
+ * {@link RayCastUtility#rayCastRewound(World, double, double, double, double, double, double, double, double, Entity, RayCastOptions)}.
+ * <br>
+ * Call {@link #enable(Plugin)} in your plugin's onEnable to turn it on. Every online player is tracked, other entities once they're passed
+ * to {@link #track(Entity)}. At the start of every tick the hitbox of each tracked entity is written into one ring buffer of primitive
+ * arrays shared by all of them, so recording allocates nothing. Each tracked entity takes {@code 48 * historyTicks} bytes, and no more than
+ * {@code maxEntities} are tracked at once. Entities are dropped when they're removed from the world, players when they quit.
+ * <br>
+ * Use it on the main thread only.
+ */
+public class HitboxHistory {
+
+    /**
+     * Ticks kept by default, one second.
+     */
+    public static final int DEFAULT_HISTORY_TICKS = 20;
+
+    /**
+     * Most entities tracked at once by default.
+     */
+    public static final int DEFAULT_MAX_ENTITIES = 4096;
+
+    /**
+     * Fastest an entity is expected to move, in blocks per second. Rewound ray-casts look this much further out from the ray for every
+     * second they go back, so entities that were in the way then but have moved off since are still found. Elytra with rockets reach
+     * about 33.
+     */
+    public static final double MAX_BLOCKS_PER_SECOND = 40;
+
+    private static final Map<Entity, Integer> SLOTS = new HashMap<>();
+
+    private static int historyTicks;
+
+    private static int maxEntities;
+
+    /**
+     * Entity in each slot, null for free slots.
+     */
+    private static Entity[] entities = new Entity[0];
+
+    /**
+     * First tick recorded for the entity in each slot.
+     */
+    private static long[] since = new long[0];
+
+    /**
+     * Six coordinates per slot per tick kept, slot after slot.
+     */
+    private static double[] boxes = new double[0];
+
+    /**
+     * {@link System#nanoTime()} each position of the ring was last written at.
+     */
+    private static long[] times = new long[0];
+
+    private static int[] freeSlots = new int[0];
+
+    private static int freeCount;
+
+    /**
+     * Slots handed out so far, free ones included.
+     */
+    private static int used;
+
+    private static long tick;
+
+    private static Tracker tracker;
+
+    private static BukkitTask recordTask;
+
+    private HitboxHistory() {
+    }
+
+    /**
+     * Same as {@link #enable(Plugin, int, int)} with {@link #DEFAULT_HISTORY_TICKS} and {@link #DEFAULT_MAX_ENTITIES}.
+     */
+    public static void enable(Plugin plugin) {
+        enable(plugin, DEFAULT_HISTORY_TICKS, DEFAULT_MAX_ENTITIES);
+    }
+
+    /**
+     * Starts recording the hitboxes of every online player and every entity tracked from now on. Calling this more than once does nothing,
+     * call {@link #disable()} first to change the sizes.
+     *
+     * @param plugin       Plugin to register the listener and task under
+     * @param historyTicks Ticks of history to keep, casts can't go back further than that
+     * @param maxEntities  Most entities tracked at once, {@link #track(Entity)} refuses more
+     */
+    public static synchronized void enable(Plugin plugin, int historyTicks, int maxEntities) {
+        if (recordTask != null) {
+            return;
+        }
+        if (historyTicks < 2 || maxEntities < 1) {
+            throw new IllegalArgumentException("At least 2 ticks and 1 entity are needed");
+        }
+        HitboxHistory.historyTicks = historyTicks;
+        HitboxHistory.maxEntities = maxEntities;
+        times = new long[historyTicks];
+        tracker = new Tracker();
+        Bukkit.getPluginManager().registerEvents(tracker, plugin);
+        recordTask = Bukkit.getScheduler().runTaskTimer(plugin, HitboxHistory::record, 0L, 1L);
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            track(player);
+        }
+    }
+
+    /**
+     * Stops recording and drops all history.
+     */
+    public static synchronized void disable() {
+        if (recordTask != null) {
+            recordTask.cancel();
+            recordTask = null;
+            HandlerList.unregisterAll(tracker);
+            tracker = null;
+        }
+        SLOTS.clear();
+        entities = new Entity[0];
+        since = new long[0];
+        boxes = new double[0];
+        times = new long[0];
+        freeSlots = new int[0];
+        freeCount = 0;
+        used = 0;
+    }
+
+    public static synchronized boolean isEnabled() {
+        return recordTask != null;
+    }
+
+    /**
+     * Starts recording an entity's hitbox every tick. Its history starts with the next recorded tick.
+     *
+     * @return False if history isn't enabled or {@code maxEntities} entities are tracked already
+     */
+    public static boolean track(Entity entity) {
+        if (recordTask == null) {
+            return false;
+        }
+        if (SLOTS.containsKey(entity)) {
+            return true;
+        }
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (used == maxEntities) {
+                return false;
+            }
+            if (used == entities.length) {
+                grow();
+            }
+            slot = used++;
+        }
+        entities[slot] = entity;
+        since[slot] = tick + 1;
+        SLOTS.put(entity, slot);
+        return true;
+    }
+
+    /**
+     * Stops recording an entity and drops its history.
+     */
+    public static void untrack(Entity entity) {
+        Integer slot = SLOTS.remove(entity);
+        if (slot != null) {
+            release(slot);
+        }
+    }
+
+    public static boolean isTracked(Entity entity) {
+        return SLOTS.containsKey(entity);
+    }
+
+    /**
+     * @return Number of entities tracked
+     */
+    public static int getTrackedCount() {
+        return SLOTS.size();
+    }
+
+    public static int getHistoryTicks() {
+        return historyTicks;
+    }
+
+    public static int getMaxEntities() {
+        return maxEntities;
+    }
+
+    /**
+     * Gets where an entity's hitbox was some time ago, interpolated between the two recorded ticks around that time. Times before the
+     * oldest tick kept (or before the entity was tracked) give the oldest hitbox recorded.
+     *
+     * @param entity       Entity to look up
+     * @param rewindMillis How many milliseconds to go back
+     * @return The hitbox, null if the entity isn't tracked or nothing was recorded for it yet
+     */
+    @Nullable
+    public static BoundingBox getBoundingBox(Entity entity, double rewindMillis) {
+        Integer slot = SLOTS.get(entity);
+        if (slot == null) {
+            return null;
+        }
+        double[] box = new double[6];
+        return interpolate(slot, new Moment(rewindMillis), box) ? new BoundingBox(box[0], box[1], box[2], box[3], box[4], box[5]) : null;
+    }
+
+    /**
+     * Builds a snapshot of hitboxes as they were some time ago. Tracked entities are where they were then, entities that aren't tracked
+     * (or have no history yet) are where the given snapshot has them. Only the entities in the given snapshot are in the rewound one.
+     *
+     * @param current      Hitboxes as they are now
+     * @param rewindMillis How many milliseconds to go back
+     * @return The rewound snapshot
+     */
+    public static HitboxSnapshot rewind(HitboxSnapshot current, double rewindMillis) {
+        double inf = Double.POSITIVE_INFINITY;
+        return rewind(current, rewindMillis, -inf, -inf, -inf, inf, inf, inf);
+    }
+
+    /**
+     * Same as {@link #rewind(HitboxSnapshot, double)} for one ray: entities whose hitbox is now too far from the ray to have been in its
+     * way then (see {@link #MAX_BLOCKS_PER_SECOND}) are left out, so only the entities near the ray are looked up and interpolated.
+     *
+     * @param current      Hitboxes as they are now
+     * @param rewindMillis How many milliseconds to go back
+     * @param x            X coordinate the ray starts at
+     * @param y            Y coordinate the ray starts at
+     * @param z            Z coordinate the ray starts at
+     * @param dirX         X component of the normalized ray direction
+     * @param dirY         Y component of the normalized ray direction
+     * @param dirZ         Z component of the normalized ray direction
+     * @param maxDistance  Length of the ray
+     * @return The rewound snapshot
+     */
+    public static HitboxSnapshot rewind(HitboxSnapshot current, double rewindMillis, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance) {
+        double margin = getRewindMargin(rewindMillis);
+        double endX = x + dirX * maxDistance, endY = y + dirY * maxDistance, endZ = z + dirZ * maxDistance;
+        return rewind(current, rewindMillis, Math.min(x, endX) - margin, Math.min(y, endY) - margin, Math.min(z, endZ) - margin,
+                Math.max(x, endX) + margin, Math.max(y, endY) + margin, Math.max(z, endZ) + margin);
+    }
+
+    /**
+     * @param rewindMillis How many milliseconds a ray-cast goes back
+     * @return How far an entity can have moved since then, at {@link #MAX_BLOCKS_PER_SECOND}
+     */
+    public static double getRewindMargin(double rewindMillis) {
+        return MAX_BLOCKS_PER_SECOND * Math.max(0, rewindMillis) / 1000;
+    }
+
+    /**
+     * Rewinds the entities of a snapshot whose hitbox is now inside the bounds.
+     */
+    private static HitboxSnapshot rewind(HitboxSnapshot current, double rewindMillis, double boundsMinX, double boundsMinY, double boundsMinZ,
+                                         double boundsMaxX, double boundsMaxY, double boundsMaxZ) {
+        if (SLOTS.isEmpty()) {
+            return current;
+        }
+        // Counted first, so a shared snapshot of a whole world doesn't make every ray-cast allocate arrays for all of it
+        int capacity = 0;
+        for (int i = 0; i < current.size(); i++) {
+            if (current.getMaxX(i) >= boundsMinX && current.getMinX(i) <= boundsMaxX && current.getMaxY(i) >= boundsMinY && current.getMinY(i) <= boundsMaxY
+                    && current.getMaxZ(i) >= boundsMinZ && current.getMinZ(i) <= boundsMaxZ) {
+                capacity++;
+            }
+        }
+        Moment moment = new Moment(rewindMillis);
+        Entity[] rewound = new Entity[capacity];
+        double[] minX = new double[capacity], minY = new double[capacity], minZ = new double[capacity];
+        double[] maxX = new double[capacity], maxY = new double[capacity], maxZ = new double[capacity];
+        double[] box = new double[6];
+        int size = 0;
+        for (int i = 0; i < current.size() && size < capacity; i++) {
+            if (current.getMaxX(i) < boundsMinX || current.getMinX(i) > boundsMaxX || current.getMaxY(i) < boundsMinY || current.getMinY(i) > boundsMaxY
+                    || current.getMaxZ(i) < boundsMinZ || current.getMinZ(i) > boundsMaxZ) {
+                continue;
+            }
+            Entity entity = current.getEntity(i);
+            Integer slot = SLOTS.get(entity);
+            if (slot == null || !interpolate(slot, moment, box)) {
+                box[0] = current.getMinX(i);
+                box[1] = current.getMinY(i);
+                box[2] = current.getMinZ(i);
+                box[3] = current.getMaxX(i);
+                box[4] = current.getMaxY(i);
+                box[5] = current.getMaxZ(i);
+            }
+            rewound[size] = entity;
+            minX[size] = box[0];
+            minY[size] = box[1];
+            minZ[size] = box[2];
+            maxX[size] = box[3];
+            maxY[size] = box[4];
+            maxZ[size] = box[5];
+            size++;
+        }
+        return HitboxSnapshot.of(rewound, minX, minY, minZ, maxX, maxY, maxZ, current.getTick());
+    }
+
+    /**
+     * Writes the hitbox of every tracked entity into the current position of the ring.
+     */
+    private static void record() {
+        tick++;
+        int ring = (int) (tick % historyTicks);
+        times[ring] = System.nanoTime();
+        for (int slot = 0; slot < used; slot++) {
+            Entity entity = entities[slot];
+            if (entity == null) {
+                continue;
+            }
+            if (!entity.isValid()) {
+                // Removed entities are gone for good, dead players come back when they respawn
+                if (entity instanceof Player) {
+                    since[slot] = tick + 1;
+                } else {
+                    untrack(entity);
+                }
+                continue;
+            }
+            try {
+                HitboxAccessor.readBoundingBox(entity, boxes, (slot * historyTicks + ring) * 6);
+            } catch (Exception e) {
+                RayCastMetrics.countHitboxReadFailure();
+                since[slot] = tick + 1;
+            }
+        }
+    }
+
+    /**
+     * Interpolates the recorded hitbox of a slot at a moment.
+     *
+     * @return False if nothing was recorded for the slot yet
+     */
+    private static boolean interpolate(int slot, Moment moment, double[] out) {
+        long first = Math.max(since[slot], tick - historyTicks + 1);
+        if (first > tick) {
+            return false;
+        }
+        long older = Math.max(moment.older, first);
+        long newer = Math.max(moment.newer, first);
+        double fraction = older == moment.older ? moment.fraction : 0;
+        int olderOffset = (int) ((slot * historyTicks + older % historyTicks) * 6);
+        int newerOffset = (int) ((slot * historyTicks + newer % historyTicks) * 6);
+        for (int i = 0; i < 6; i++) {
+            out[i] = boxes[olderOffset + i] + (boxes[newerOffset + i] - boxes[olderOffset + i]) * fraction;
+        }
+        return true;
+    }
+
+    private static void release(int slot) {
+        entities[slot] = null;
+        freeSlots[freeCount++] = slot;
+    }
+
+    private static void grow() {
+        int capacity = Math.min(maxEntities, Math.max(64, entities.length * 2));
+        entities = Arrays.copyOf(entities, capacity);
+        since = Arrays.copyOf(since, capacity);
+        boxes = Arrays.copyOf(boxes, capacity * historyTicks * 6);
+        freeSlots = Arrays.copyOf(freeSlots, capacity);
+    }
+
+    /**
+     * The two recorded ticks around a moment in the past, and how far between them it is.
+     */
+    private static class Moment {
+
+        private long older;
+
+        private long newer;
+
+        private double fraction;
+
+        Moment(double rewindMillis) {
+            long target = System.nanoTime() - (long) (rewindMillis * 1_000_000);
+            long oldest = Math.max(1, tick - historyTicks + 1);
+            older = oldest;
+            newer = oldest;
+            for (long t = tick; t >= oldest; t--) {
+                if (times[(int) (t % historyTicks)] <= target) {
+                    older = t;
+                    newer = Math.min(t + 1, tick);
+                    break;
+                }
+            }
+            long olderTime = times[(int) (older % historyTicks)], newerTime = times[(int) (newer % historyTicks)];
+            fraction = newerTime > olderTime ? Math.min(1, Math.max(0, (double) (target - olderTime) / (newerTime - olderTime))) : 0;
+        }
+    }
+
+    /**
+     * Tracks players while they're online. Only registered while history is enabled.
+     */
+    private static class Tracker implements Listener {
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onJoin(PlayerJoinEvent event) {
+            track(event.getPlayer());
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onQuit(PlayerQuitEvent event) {
+            untrack(event.getPlayer());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.github.yeetmanlord.raycast_util;
+
+import java.util.stream.IntStream;
+
+/**
+ * Finds the closest of a range of hitboxes stored as one array per coordinate. The loop has no early exits and no calls, and picks the
+ * closest hit with conditional moves, so the JIT can unroll it and keep everything in registers. Ranges with at least
+ * {@link HitboxSnapshots#getParallelThreshold()} hitboxes are split into chunks tested in parallel on the common fork join pool.
+ */
+final class HitboxScan {
+
+    /**
+     * Hitboxes tested by one parallel task.
+     */
+    private static final int CHUNK_SIZE = 1024;
+
+    private HitboxScan() {
+    }
+
+    /**
+     * @param direction One component of the ray direction
+     * @return What to multiply distances along that axis with. Axes the ray doesn't move along get a huge finite number instead of
+     * infinity, so a hitbox edge exactly at the origin gives 0 instead of NaN.
+     */
+    static double inverse(double direction) {
+        return direction == 0 ? Double.MAX_VALUE : 1D / direction;
+    }
+
+    /**
+     * @param from        First position to test
+     * @param to          Position after the last one to test
+     * @param skip        Position to leave out, -1 for none
+     * @param inverseX    {@link #inverse(double)} of the X component of the ray direction
+     * @param inverseY    {@link #inverse(double)} of the Y component of the ray direction
+     * @param inverseZ    {@link #inverse(double)} of the Z component of the ray direction
+     * @param maxDistance Maximum distance along the ray
+     * @return Position of the closest hitbox the ray enters, the first one on a tie, or -1 if it enters none
+     */
+    static int nearest(double[] minX, double[] minY, double[] minZ, double[] maxX, double[] maxY, double[] maxZ, int from, int to, int skip,
+                       double originX, double originY, double originZ, double inverseX, double inverseY, double inverseZ, double maxDistance) {
+        return nearest(minX, minY, minZ, maxX, maxY, maxZ, from, to, skip, originX, originY, originZ, 0, 0, 0, inverseX, inverseY, inverseZ, maxDistance);
+    }
+
+    /**
+     * Same as {@link #nearest(double[], double[], double[], double[], double[], double[], int, int, int, double, double, double, double, double, double, double)},
+     * but tests a box with the given half-extents moving along the ray instead of a point. Growing every hitbox by the half-extents is the
+     * same as moving the origin the other way for the smallest and the largest side of the hitbox, so it costs nothing extra per hitbox.
+     *
+     * @return Position of the closest hitbox the box touches, the first one on a tie, or -1 if it touches none
+     */
+    static int nearest(double[] minX, double[] minY, double[] minZ, double[] maxX, double[] maxY, double[] maxZ, int from, int to, int skip,
+                       double originX, double originY, double originZ, double halfX, double halfY, double halfZ,
+                       double inverseX, double inverseY, double inverseZ, double maxDistance) {
+        double lowX = originX + halfX, lowY = originY + halfY, lowZ = originZ + halfZ;
+        double highX = originX - halfX, highY = originY - halfY, highZ = originZ - halfZ;
+        if (to - from < HitboxSnapshots.getParallelThreshold()) {
+            return scan(minX, minY, minZ, maxX, maxY, maxZ, from, to, skip, lowX, lowY, lowZ, highX, highY, highZ, inverseX, inverseY, inverseZ, maxDistance);
+        }
+        int chunks = (to - from + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int[] found = new int[chunks];
+        double[] distances = new double[chunks];
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int start = from + chunk * CHUNK_SIZE;
+            int hit = scan(minX, minY, minZ, maxX, maxY, maxZ, start, Math.min(to, start + CHUNK_SIZE), skip, lowX, lowY, lowZ, highX, highY, highZ, inverseX, inverseY, inverseZ, maxDistance);
+            found[chunk] = hit;
+            distances[chunk] = hit == -1 ? Double.POSITIVE_INFINITY : entry(minX[hit], minY[hit], minZ[hit], maxX[hit], maxY[hit], maxZ[hit], lowX, lowY, lowZ, highX, highY, highZ, inverseX, inverseY, inverseZ);
+        });
+        int closest = -1;
+        double closestDistance = Double.POSITIVE_INFINITY;
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            if (distances[chunk] < closestDistance) {
+                closest = found[chunk];
+                closestDistance = distances[chunk];
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * The low origin is the one the smallest sides are measured from and the high origin the one the largest sides are, they're the same
+     * for a ray.
+     */
+    private static int scan(double[] minX, double[] minY, double[] minZ, double[] maxX, double[] maxY, double[] maxZ, int from, int to, int skip,
+                            double lowX, double lowY, double lowZ, double highX, double highY, double highZ,
+                            double inverseX, double inverseY, double inverseZ, double maxDistance) {
+        int closest = -1;
+        double closestDistance = Double.POSITIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            double x1 = (minX[i] - lowX) * inverseX, x2 = (maxX[i] - highX) * inverseX;
+            double y1 = (minY[i] - lowY) * inverseY, y2 = (maxY[i] - highY) * inverseY;
+            double z1 = (minZ[i] - lowZ) * inverseZ, z2 = (maxZ[i] - highZ) * inverseZ;
+            double near = max(max(min(x1, x2), min(y1, y2)), max(min(z1, z2), 0));
+            double far = min(min(max(x1, x2), max(y1, y2)), min(max(z1, z2), maxDistance));
+            boolean closer = near <= far & near < closestDistance & i != skip;
+            closest = closer ? i : closest;
+            closestDistance = closer ? near : closestDistance;
+        }
+        return closest;
+    }
+
+    /**
+     * @return Distance at which the ray enters a hitbox it's known to enter
+     */
+    private static double entry(double minX, double minY, double minZ, double maxX, double maxY, double maxZ, double lowX, double lowY, double lowZ,
+                                double highX, double highY, double highZ, double inverseX, double inverseY, double inverseZ) {
+        double x1 = (minX - lowX) * inverseX, x2 = (maxX - highX) * inverseX;
+        double y1 = (minY - lowY) * inverseY, y2 = (maxY - highY) * inverseY;
+        double z1 = (minZ - lowZ) * inverseZ, z2 = (maxZ - highZ) * inverseZ;
+        return max(max(min(x1, x2), min(y1, y2)), max(min(z1, z2), 0));
+    }
+
+    /**
+     * Unlike {@link Math#min(double, double)} this doesn't care about NaN or -0.0, which keeps it a single instruction.
+     */
+    private static double min(double a, double b) {
+        return a < b ? a : b;
+    }
+
+    private static double max(double a, double b) {
+        return a > b ? a : b;
+    }
+}
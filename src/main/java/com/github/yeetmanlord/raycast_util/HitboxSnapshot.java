@@ -0,0 +1,326 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.entity.Entity;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+
+/**
+ * Entity hitboxes copied into primitive arrays. Once captured, a snapshot never changes and never touches NMS again, so any number of
+ * ray-casts (on any thread) can query it without reading a single hitbox through reflection.
+ * <br>
+ * Use {@link HitboxSnapshots#getSnapshot(org.bukkit.World)} to share one snapshot per world per tick, or {@link #capture(Collection, long)}
+ * to take one of your own.
+ */
+public class HitboxSnapshot {
+
+    /**
+     * Snapshots with at least this many hitboxes build a {@link HitboxGrid} the first time they are queried. Below that, testing every
+     * hitbox is faster than walking the grid.
+     */
+    public static final int GRID_THRESHOLD = 32;
+
+    private final long tick;
+
+    private final int size;
+
+    private final Entity[] entities;
+
+    private final double[] minX;
+    private final double[] minY;
+    private final double[] minZ;
+
+    private final double[] maxX;
+    private final double[] maxY;
+    private final double[] maxZ;
+
+    private volatile HitboxGrid grid;
+
+    private HitboxSnapshot(long tick, int size, Entity[] entities, double[] minX, double[] minY, double[] minZ, double[] maxX, double[] maxY, double[] maxZ) {
+        this.tick = tick;
+        this.size = size;
+        this.entities = entities;
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+    }
+
+    /**
+     * Reads the hitboxes of the given entities. Entities whose hitbox can't be read are left out.
+     *
+     * @param entities Entities to capture
+     * @param tick     Tick the snapshot is taken on, see {@link HitboxSnapshots#getCurrentTick()}
+     * @return The snapshot
+     */
+    public static HitboxSnapshot capture(Collection<? extends Entity> entities, long tick) {
+        int capacity = entities.size();
+        Entity[] captured = new Entity[capacity];
+        double[] minX = new double[capacity];
+        double[] minY = new double[capacity];
+        double[] minZ = new double[capacity];
+        double[] maxX = new double[capacity];
+        double[] maxY = new double[capacity];
+        double[] maxZ = new double[capacity];
+
+        double[] box = new double[6];
+        int size = 0;
+        for (Entity e : entities) {
+            if (size == capacity) {
+                break;
+            }
+            try {
+                HitboxAccessor.readBoundingBox(e, box, 0);
+            } catch (Exception ex) {
+                RayCastMetrics.countHitboxReadFailure();
+                ex.printStackTrace();
+                continue;
+            }
+            captured[size] = e;
+            minX[size] = box[0];
+            minY[size] = box[1];
+            minZ[size] = box[2];
+            maxX[size] = box[3];
+            maxY[size] = box[4];
+            maxZ[size] = box[5];
+            size++;
+        }
+        return new HitboxSnapshot(tick, size, captured, minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Builds a snapshot from hitboxes that were already read, e.g. kept from an earlier tick. The arrays are used as they are, don't change
+     * them afterwards.
+     *
+     * @param entities Entity each hitbox belongs to
+     * @param minX     Smallest X coordinate of each hitbox
+     * @param minY     Smallest Y coordinate of each hitbox
+     * @param minZ     Smallest Z coordinate of each hitbox
+     * @param maxX     Largest X coordinate of each hitbox
+     * @param maxY     Largest Y coordinate of each hitbox
+     * @param maxZ     Largest Z coordinate of each hitbox
+     * @param tick     Tick the hitboxes are from
+     * @return The snapshot
+     */
+    public static HitboxSnapshot of(Entity[] entities, double[] minX, double[] minY, double[] minZ, double[] maxX, double[] maxY, double[] maxZ, long tick) {
+        int size = entities.length;
+        if (minX.length < size || minY.length < size || minZ.length < size || maxX.length < size || maxY.length < size || maxZ.length < size) {
+            throw new IllegalArgumentException("Every coordinate array needs one value per entity");
+        }
+        return new HitboxSnapshot(tick, size, entities, minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Finds the closest hitbox the ray enters.
+     *
+     * @param originX     X coordinate the ray starts at
+     * @param originY     Y coordinate the ray starts at
+     * @param originZ     Z coordinate the ray starts at
+     * @param dirX        X component of the normalized ray direction
+     * @param dirY        Y component of the normalized ray direction
+     * @param dirZ        Z component of the normalized ray direction
+     * @param maxDistance Maximum distance along the ray
+     * @param ignored     Entity to skip, usually the one ray-casting. May be null.
+     * @return Index of the closest hit or -1 if nothing was hit
+     */
+    public int rayCast(double originX, double originY, double originZ, double dirX, double dirY, double dirZ, double maxDistance, @Nullable Entity ignored) {
+        if (size >= GRID_THRESHOLD) {
+            return getGrid().rayCast(originX, originY, originZ, dirX, dirY, dirZ, maxDistance, ignored);
+        }
+        double inverseX = HitboxScan.inverse(dirX), inverseY = HitboxScan.inverse(dirY), inverseZ = HitboxScan.inverse(dirZ);
+        int closest = HitboxScan.nearest(minX, minY, minZ, maxX, maxY, maxZ, 0, size, -1, originX, originY, originZ, inverseX, inverseY, inverseZ, maxDistance);
+        // Rays usually start inside the hitbox of the entity ray-casting, so that one is left out by testing again
+        if (closest != -1 && entities[closest] == ignored) {
+            closest = HitboxScan.nearest(minX, minY, minZ, maxX, maxY, maxZ, 0, size, closest, originX, originY, originZ, inverseX, inverseY, inverseZ, maxDistance);
+        }
+        RayCastMetrics.countHitboxes(size);
+        return closest;
+    }
+
+    /**
+     * Same as {@link #rayCast(double, double, double, double, double, double, double, Entity)}, but finds every hitbox the ray enters
+     * instead of only the closest.
+     *
+     * @return Indexes of the hit hitboxes, closest first
+     */
+    public int[] rayCastAll(double originX, double originY, double originZ, double dirX, double dirY, double dirZ, double maxDistance, @Nullable Entity ignored) {
+        if (size >= GRID_THRESHOLD) {
+            return getGrid().rayCastAll(originX, originY, originZ, dirX, dirY, dirZ, maxDistance, ignored);
+        }
+        HitList hits = new HitList();
+        for (int i = 0; i < size; i++) {
+            if (entities[i] == ignored) {
+                continue;
+            }
+            double distance = BoundingBox.rayIntersect(minX[i], minY[i], minZ[i], maxX[i], maxY[i], maxZ[i], originX, originY, originZ, dirX, dirY, dirZ, maxDistance);
+            if (distance >= 0) {
+                hits.add(i, distance);
+            }
+        }
+        RayCastMetrics.countHitboxes(size);
+        return hits.toArray();
+    }
+
+    /**
+     * Finds the closest hitbox a box moving along a ray touches, by growing every hitbox by the half-extents of the box and testing the
+     * ray against that. Every hitbox is tested, in parallel for huge snapshots, since the {@link HitboxGrid} only knows which cells each
+     * hitbox itself is in.
+     *
+     * @param originX     X coordinate the center of the box starts at
+     * @param originY     Y coordinate the center of the box starts at
+     * @param originZ     Z coordinate the center of the box starts at
+     * @param dirX        X component of the normalized direction the box moves in
+     * @param dirY        Y component of the normalized direction the box moves in
+     * @param dirZ        Z component of the normalized direction the box moves in
+     * @param maxDistance Maximum distance the box moves
+     * @param halfX       Half the width of the box along X
+     * @param halfY       Half the height of the box
+     * @param halfZ       Half the width of the box along Z
+     * @param ignored     Entity to skip, usually the one casting. May be null.
+     * @return Index of the closest hit or -1 if nothing was hit
+     */
+    public int boxCast(double originX, double originY, double originZ, double dirX, double dirY, double dirZ, double maxDistance,
+                       double halfX, double halfY, double halfZ, @Nullable Entity ignored) {
+        double inverseX = HitboxScan.inverse(dirX), inverseY = HitboxScan.inverse(dirY), inverseZ = HitboxScan.inverse(dirZ);
+        int closest = HitboxScan.nearest(minX, minY, minZ, maxX, maxY, maxZ, 0, size, -1, originX, originY, originZ, halfX, halfY, halfZ, inverseX, inverseY, inverseZ, maxDistance);
+        if (closest != -1 && entities[closest] == ignored) {
+            closest = HitboxScan.nearest(minX, minY, minZ, maxX, maxY, maxZ, 0, size, closest, originX, originY, originZ, halfX, halfY, halfZ, inverseX, inverseY, inverseZ, maxDistance);
+        }
+        RayCastMetrics.countHitboxes(size);
+        return closest;
+    }
+
+    /**
+     * Same as {@link #boxCast(double, double, double, double, double, double, double, double, double, double, Entity)} for a sphere. Only
+     * hitboxes the box around the sphere touches sooner than the closest hit so far get the exact sphere test.
+     *
+     * @param radius  Radius of the sphere
+     * @param ignored Entity to skip, usually the one casting. May be null.
+     * @return Index of the closest hit or -1 if nothing was hit
+     */
+    public int sphereCast(double originX, double originY, double originZ, double dirX, double dirY, double dirZ, double maxDistance, double radius, @Nullable Entity ignored) {
+        int closest = -1;
+        double closestDistance = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            if (entities[i] == ignored) {
+                continue;
+            }
+            double box = SweptVolume.boxIntersect(minX[i], minY[i], minZ[i], maxX[i], maxY[i], maxZ[i], originX, originY, originZ, dirX, dirY, dirZ, radius, radius, radius, maxDistance);
+            if (box < 0 || box >= closestDistance) {
+                continue;
+            }
+            double distance = SweptVolume.sphereIntersect(minX[i], minY[i], minZ[i], maxX[i], maxY[i], maxZ[i], originX, originY, originZ, dirX, dirY, dirZ, radius, maxDistance);
+            if (distance >= 0 && distance < closestDistance) {
+                closest = i;
+                closestDistance = distance;
+            }
+        }
+        RayCastMetrics.countHitboxes(size);
+        return closest;
+    }
+
+    /**
+     * Intersects a ray with one hitbox, see {@link BoundingBox#rayIntersect(double, double, double, double, double, double, double)}.
+     */
+    public double rayIntersect(int index, double originX, double originY, double originZ, double dirX, double dirY, double dirZ, double maxDistance) {
+        return BoundingBox.rayIntersect(minX[index], minY[index], minZ[index], maxX[index], maxY[index], maxZ[index], originX, originY, originZ, dirX, dirY, dirZ, maxDistance);
+    }
+
+    /**
+     * Finds the hitbox containing a point. If more than one does, the entity whose location (bottom center of the hitbox) is closest to
+     * the point wins.
+     *
+     * @param ignored Entity to skip, usually the one ray-casting. May be null.
+     * @return Index of the hitbox or -1 if no hitbox contains the point
+     */
+    public int findContaining(double x, double y, double z, @Nullable Entity ignored) {
+        if (size >= GRID_THRESHOLD) {
+            return getGrid().findContaining(x, y, z, ignored);
+        }
+        int closest = -1;
+        double closestDistance = Double.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            if (entities[i] == ignored || !BoundingBox.isWithinBoundingBox(minX[i], minY[i], minZ[i], maxX[i], maxY[i], maxZ[i], x, y, z)) {
+                continue;
+            }
+            double dx = (minX[i] + maxX[i]) * 0.5 - x;
+            double dy = minY[i] - y;
+            double dz = (minZ[i] + maxZ[i]) * 0.5 - z;
+            double distance = dx * dx + dy * dy + dz * dz;
+            if (distance < closestDistance) {
+                closest = i;
+                closestDistance = distance;
+            }
+        }
+        RayCastMetrics.countHitboxes(size);
+        return closest;
+    }
+
+    /**
+     * @return A grid over the hitboxes, built with {@link HitboxGrid#DEFAULT_CELL_SIZE} the first time it's needed
+     */
+    public HitboxGrid getGrid() {
+        HitboxGrid grid = this.grid;
+        if (grid == null) {
+            grid = new HitboxGrid(this, HitboxGrid.DEFAULT_CELL_SIZE);
+            this.grid = grid;
+        }
+        return grid;
+    }
+
+    public BoundingBox getBoundingBox(int index) {
+        return new BoundingBox(minX[index], minY[index], minZ[index], maxX[index], maxY[index], maxZ[index]);
+    }
+
+    public Entity getEntity(int index) {
+        return entities[index];
+    }
+
+    public double getMinX(int index) {
+        return minX[index];
+    }
+
+    public double getMinY(int index) {
+        return minY[index];
+    }
+
+    public double getMinZ(int index) {
+        return minZ[index];
+    }
+
+    public double getMaxX(int index) {
+        return maxX[index];
+    }
+
+    public double getMaxY(int index) {
+        return maxY[index];
+    }
+
+    public double getMaxZ(int index) {
+        return maxZ[index];
+    }
+
+    /**
+     * @return Number of hitboxes in the snapshot
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Tick the snapshot was taken on
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    @Override
+    public String toString() {
+        return "HitboxSnapshot{" +
+                "tick: " + tick +
+                ", size: " + size +
+                '}';
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares one {@link HitboxSnapshot} per world per tick between all ray-casts. Without this every ray-cast collects nearby entities and
+ * reads their hitboxes itself, which adds up quickly when lots of entities ray-cast every tick.
+ * <br>
+ * Call {@link #enable(Plugin)} in your plugin's onEnable to turn it on. From then on the first ray-cast in a world each tick captures the
+ * hitboxes of every entity in that world, and every other ray-cast in that world during the same tick uses the same snapshot. Ray-casts
+ * that need the exact live position of entities can opt out with {@link RayCastOptions#liveHitboxes(boolean)}.
+ */
+public class HitboxSnapshots {
+
+    /**
+     * Default for {@link #setParallelThreshold(int)}.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 4096;
+
+    private static final ConcurrentHashMap<UUID, HitboxSnapshot> SNAPSHOTS = new ConcurrentHashMap<>();
+
+    private static volatile int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    private static volatile long currentTick;
+
+    private static volatile boolean enabled;
+
+    private static BukkitTask tickTask;
+
+    private HitboxSnapshots() {
+    }
+
+    /**
+     * Starts counting ticks so snapshots can be invalidated every tick. Calling this more than once does nothing.
+     *
+     * @param plugin Plugin to run the tick counter under
+     */
+    public static synchronized void enable(Plugin plugin) {
+        if (tickTask != null) {
+            return;
+        }
+        tickTask = Bukkit.getScheduler().runTaskTimer(plugin, () -> {
+            currentTick++;
+            SNAPSHOTS.clear();
+        }, 1L, 1L);
+        enabled = true;
+    }
+
+    /**
+     * Stops sharing snapshots and drops the ones currently held.
+     */
+    public static synchronized void disable() {
+        if (tickTask != null) {
+            enabled = false;
+            tickTask.cancel();
+            tickTask = null;
+        }
+        SNAPSHOTS.clear();
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return Number of ticks since {@link #enable(Plugin)} was first called
+     */
+    public static long getCurrentTick() {
+        return currentTick;
+    }
+
+    /**
+     * Gets this tick's snapshot of a world, capturing it if this is the first request for it this tick. Only works while sharing is
+     * enabled: without it nothing would reuse a snapshot of the whole world, capture the entities near the ray with
+     * {@link HitboxSnapshot#capture(java.util.Collection, long)} instead.
+     *
+     * @param world World to get the hitboxes of
+     * @return The snapshot
+     * @throws IllegalStateException If sharing isn't enabled
+     */
+    public static HitboxSnapshot getSnapshot(World world) {
+        if (!isEnabled()) {
+            throw new IllegalStateException("Hitbox snapshots aren't enabled");
+        }
+        HitboxSnapshot snapshot = SNAPSHOTS.get(world.getUID());
+        long tick = currentTick;
+        if (snapshot == null || snapshot.getTick() != tick) {
+            snapshot = HitboxSnapshot.capture(world.getEntities(), tick);
+            SNAPSHOTS.put(world.getUID(), snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Sets how many hitboxes a ray has to be tested against at once before the tests are split across the common fork join pool. That
+     * happens with thousands of entities crammed close together, like mob farms, where the {@link HitboxGrid} can't narrow them down.
+     *
+     * @param threshold Smallest number of hitboxes to test in parallel, {@link Integer#MAX_VALUE} to never do that
+     */
+    public static void setParallelThreshold(int threshold) {
+        parallelThreshold = threshold;
+    }
+
+    public static int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Drops the snapshot of a world so the next request captures a new one, for when entities moved in a way ray-casts have to see this tick.
+     */
+    public static void invalidate(World world) {
+        SNAPSHOTS.remove(world.getUID());
+    }
+}
@@ -0,0 +1,409 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers whether one point can see another, for questions that get asked over and over: can this mob see its target, can this
+ * player reach that block. Points are rounded to a grid (see {@link #precision(double)}), so the same two points asked again, or points
+ * that moved less than the grid size, are answered from the cache without ray-casting.
+ * <br>
+ * Every answer remembers the chunks its ray passed through. Placing, breaking, burning, growing, moving or exploding a block in one of
+ * those chunks (and block physics updates) throws away the answers going through that chunk. Answers also expire after
+ * {@link #maxAge(long)} ticks, which takes care of changes no event is fired for.
+ * <pre>
+ *     LineOfSightCache lineOfSight = new LineOfSightCache(new RayCastOptions()).maxAge(20);
+ *     lineOfSight.register(plugin);
+ *     ...
+ *     if (lineOfSight.canSee(mob, target)) {
+ * </pre>
+ * Reading the cache never locks, but ray-casts on a miss read the live world, so ask on the main thread.
+ */
+public class LineOfSightCache {
+
+    /**
+     * Default grid size points are rounded to, in blocks.
+     */
+    public static final double DEFAULT_PRECISION = 0.125D;
+
+    private final RayCastOptions options;
+
+    private final ConcurrentHashMap<UUID, WorldCache> worlds = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder invalidations = new LongAdder();
+
+    private double precision = DEFAULT_PRECISION;
+
+    private double inversePrecision = 1D / DEFAULT_PRECISION;
+
+    private int maxEntries = 16384;
+
+    private long maxAge = 100L;
+
+    private volatile long currentTick;
+
+    private BukkitTask tickTask;
+
+    private Invalidator invalidator;
+
+    /**
+     * @param options Settings for the ray-casts behind the answers, e.g. which blocks block sight. Entities never do.
+     */
+    public LineOfSightCache(RayCastOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * @param precision Grid size in blocks points are rounded to. Bigger means more questions are answered from the cache, but two points
+     *                  up to this far apart share their answer.
+     */
+    public LineOfSightCache precision(double precision) {
+        this.precision = precision;
+        this.inversePrecision = 1D / precision;
+        clear();
+        return this;
+    }
+
+    /**
+     * @param maxEntries Most answers to keep per world. When a world is full, expired answers are dropped first, then arbitrary ones.
+     */
+    public LineOfSightCache maxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+        return this;
+    }
+
+    /**
+     * @param maxAge Ticks an answer is good for, even if no block around it changed
+     */
+    public LineOfSightCache maxAge(long maxAge) {
+        this.maxAge = maxAge;
+        return this;
+    }
+
+    /**
+     * Starts listening for block changes and counting ticks. Without this answers are never invalidated or expired, so only skip it if you
+     * {@link #invalidate(World, int, int)} yourself.
+     *
+     * @param plugin Plugin to register the listener and tick counter under
+     */
+    public synchronized void register(Plugin plugin) {
+        if (tickTask != null) {
+            return;
+        }
+        invalidator = new Invalidator(this);
+        Bukkit.getPluginManager().registerEvents(invalidator, plugin);
+        tickTask = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+    }
+
+    /**
+     * Stops listening for block changes and drops every answer.
+     */
+    public synchronized void unregister() {
+        if (tickTask != null) {
+            tickTask.cancel();
+            tickTask = null;
+            HandlerList.unregisterAll(invalidator);
+            invalidator = null;
+        }
+        clear();
+    }
+
+    /**
+     * @return Whether there's no block between the eyes of one entity and the eyes (or location, if it has no eyes) of the other
+     */
+    public boolean canSee(LivingEntity viewer, Entity target) {
+        Location from = viewer.getEyeLocation();
+        Location to = target instanceof LivingEntity ? ((LivingEntity) target).getEyeLocation() : target.getLocation();
+        return canSee(from.getWorld(), from.getX(), from.getY(), from.getZ(), to.getX(), to.getY(), to.getZ());
+    }
+
+    /**
+     * @return Whether there's no block between the two locations, which have to be in the same world
+     */
+    public boolean canSee(Location from, Location to) {
+        return canSee(from.getWorld(), from.getX(), from.getY(), from.getZ(), to.getX(), to.getY(), to.getZ());
+    }
+
+    /**
+     * @return Whether there's no block between the two points
+     */
+    public boolean canSee(World world, double fromX, double fromY, double fromZ, double toX, double toY, double toZ) {
+        WorldCache cache = worlds.computeIfAbsent(world.getUID(), uid -> new WorldCache());
+        Key key = new Key(quantize(fromX), quantize(fromY), quantize(fromZ), quantize(toX), quantize(toY), quantize(toZ));
+        long tick = currentTick;
+        Entry entry = cache.entries.get(key);
+        if (entry != null && tick - entry.tick <= maxAge) {
+            hits.increment();
+            return entry.visible;
+        }
+        misses.increment();
+
+        long start = RayCastMetrics.begin();
+        boolean visible = RayTracer.canSee(BlockAccess.of(world, options.isBlockShapes()), fromX, fromY, fromZ, toX, toY, toZ, options.getBlockFilter());
+        RayCastMetrics.end(CastMethod.LINE_OF_SIGHT, null, start, visible ? ResultType.EMPTY : ResultType.BLOCK);
+
+        if (entry != null) {
+            cache.remove(key, entry);
+        }
+        if (cache.entries.size() >= maxEntries) {
+            cache.evict(tick - maxAge, maxEntries * 3 / 4);
+        }
+        double dirX = toX - fromX, dirY = toY - fromY, dirZ = toZ - fromZ;
+        double distance = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+        cache.put(key, new Entry(visible, tick, crossedChunks(fromX, fromY, fromZ, dirX, dirY, dirZ, distance)));
+        return visible;
+    }
+
+    /**
+     * Throws away every answer whose ray passed through a chunk.
+     *
+     * @param world  World the chunk is in
+     * @param chunkX X coordinate of the chunk
+     * @param chunkZ Z coordinate of the chunk
+     */
+    public void invalidate(World world, int chunkX, int chunkZ) {
+        WorldCache cache = worlds.get(world.getUID());
+        if (cache != null && cache.invalidate(SnapshotBlockAccess.chunkKey(chunkX, chunkZ))) {
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * Throws away every answer.
+     */
+    public void clear() {
+        worlds.clear();
+    }
+
+    /**
+     * @return Number of questions answered from the cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return Number of questions that needed a ray-cast
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return Number of times a block change threw answers away
+     */
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /**
+     * @return Number of answers held, across all worlds
+     */
+    public int size() {
+        int size = 0;
+        for (WorldCache cache : worlds.values()) {
+            size += cache.entries.size();
+        }
+        return size;
+    }
+
+    private void tick() {
+        long tick = ++currentTick;
+        // Expired answers are never read again, sweep them out every few seconds so they don't sit around until the world fills up
+        if (tick % 100 == 0) {
+            for (WorldCache cache : worlds.values()) {
+                cache.evict(tick - maxAge, Integer.MAX_VALUE);
+            }
+        }
+    }
+
+    private int quantize(double coordinate) {
+        return (int) Math.floor(coordinate * inversePrecision);
+    }
+
+    /**
+     * @return Keys of the chunks a ray passes through, found with a {@link VoxelTraversal} scaled down by 16
+     */
+    private static long[] crossedChunks(double x, double y, double z, double dirX, double dirY, double dirZ, double distance) {
+        if (distance == 0) {
+            return new long[]{SnapshotBlockAccess.chunkKey(VoxelTraversal.floor(x) >> 4, VoxelTraversal.floor(z) >> 4)};
+        }
+        long[] chunks = new long[4];
+        int count = 0;
+        VoxelTraversal traversal = new VoxelTraversal(x / 16, y / 16, z / 16, dirX / distance, dirY / distance, dirZ / distance, distance / 16);
+        while (traversal.next()) {
+            long key = SnapshotBlockAccess.chunkKey(traversal.getBlockX(), traversal.getBlockZ());
+            // Moving up or down stays in the same chunk
+            if (count > 0 && chunks[count - 1] == key) {
+                continue;
+            }
+            if (count == chunks.length) {
+                chunks = Arrays.copyOf(chunks, count * 2);
+            }
+            chunks[count++] = key;
+        }
+        return Arrays.copyOf(chunks, count);
+    }
+
+    /**
+     * Throws away answers through chunks blocks change in, and the answers of unloaded worlds. Only registered while the cache is.
+     * <br>
+     * Kept apart from the cache because Bukkit skips the bridge methods javac adds to a public subclass for the handlers inherited from
+     * {@link BlockChangeListener}, so the cache itself would never be told about block changes.
+     */
+    private static class Invalidator extends BlockChangeListener {
+
+        private final LineOfSightCache cache;
+
+        Invalidator(LineOfSightCache cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        void blockChanged(World world, int x, int y, int z) {
+            cache.invalidate(world, x >> 4, z >> 4);
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onWorldUnload(WorldUnloadEvent event) {
+            cache.worlds.remove(event.getWorld().getUID());
+        }
+    }
+
+    /**
+     * The answers of one world, plus which answers go through each chunk.
+     */
+    private static class WorldCache {
+
+        private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+        private final ConcurrentHashMap<Long, Set<Key>> byChunk = new ConcurrentHashMap<>();
+
+        void put(Key key, Entry entry) {
+            entries.put(key, entry);
+            for (long chunk : entry.chunks) {
+                byChunk.computeIfAbsent(chunk, c -> ConcurrentHashMap.newKeySet()).add(key);
+            }
+        }
+
+        void remove(Key key, Entry entry) {
+            if (!entries.remove(key, entry)) {
+                return;
+            }
+            for (long chunk : entry.chunks) {
+                Set<Key> keys = byChunk.get(chunk);
+                if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                    byChunk.remove(chunk, keys);
+                }
+            }
+        }
+
+        /**
+         * @return Whether any answer went through the chunk
+         */
+        boolean invalidate(long chunk) {
+            Set<Key> keys = byChunk.remove(chunk);
+            if (keys == null || keys.isEmpty()) {
+                return false;
+            }
+            for (Key key : keys) {
+                Entry entry = entries.get(key);
+                if (entry != null) {
+                    remove(key, entry);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Drops answers from before the given tick, then arbitrary ones until at most {@code keep} are left.
+         */
+        void evict(long oldestTick, int keep) {
+            for (Map.Entry<Key, Entry> entry : entries.entrySet()) {
+                if (entry.getValue().tick < oldestTick) {
+                    remove(entry.getKey(), entry.getValue());
+                }
+            }
+            Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+            while (entries.size() > keep && iterator.hasNext()) {
+                Map.Entry<Key, Entry> entry = iterator.next();
+                remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private static class Entry {
+
+        private final boolean visible;
+
+        private final long tick;
+
+        private final long[] chunks;
+
+        Entry(boolean visible, long tick, long[] chunks) {
+            this.visible = visible;
+            this.tick = tick;
+            this.chunks = chunks;
+        }
+    }
+
+    /**
+     * Both points of a question, rounded to the grid.
+     */
+    private static class Key {
+
+        private final int fromX, fromY, fromZ;
+
+        private final int toX, toY, toZ;
+
+        Key(int fromX, int fromY, int fromZ, int toX, int toY, int toZ) {
+            this.fromX = fromX;
+            this.fromY = fromY;
+            this.fromZ = fromZ;
+            this.toX = toX;
+            this.toY = toY;
+            this.toZ = toZ;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return fromX == key.fromX && fromY == key.fromY && fromZ == key.fromZ && toX == key.toX && toY == key.toY && toZ == key.toZ;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = fromX;
+            hash = hash * 31 + fromY;
+            hash = hash * 31 + fromZ;
+            hash = hash * 31 + toX;
+            hash = hash * 31 + toY;
+            hash = hash * 31 + toZ;
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.yeetmanlord.raycast_util;
+
+import javax.annotation.Nullable;
+
+/**
+ * Everything {@link RayCastMetrics} counted up to the moment {@link RayCastMetrics#snapshot()} was called.
+ */
+public class MetricsSnapshot {
+
+    private final CastStats[] stats;
+
+    private final long reflectionLookups;
+
+    private final long namedFieldFallbacks;
+
+    private final long hitboxReadFailures;
+
+    MetricsSnapshot(CastStats[] stats, long reflectionLookups, long namedFieldFallbacks, long hitboxReadFailures) {
+        this.stats = stats;
+        this.reflectionLookups = reflectionLookups;
+        this.namedFieldFallbacks = namedFieldFallbacks;
+        this.hitboxReadFailures = hitboxReadFailures;
+    }
+
+    /**
+     * @param method    Kind of ray-cast
+     * @param precision Precision of the ray-cast, null for exact ray-casts
+     * @return Totals for that kind of ray-cast at that precision
+     */
+    public CastStats getStats(CastMethod method, @Nullable RayCastUtility.Precision precision) {
+        return stats[RayCastMetrics.index(method, precision)];
+    }
+
+    /**
+     * @return Number of getters looked up through reflection. Lookups are cached per class, so this should stop growing soon after start up.
+     */
+    public long getReflectionLookups() {
+        return reflectionLookups;
+    }
+
+    /**
+     * @return Number of NMS bounding box classes that didn't have the a-f fields and fell back to minX-maxZ
+     */
+    public long getNamedFieldFallbacks() {
+        return namedFieldFallbacks;
+    }
+
+    /**
+     * @return Number of entity hitboxes that couldn't be read and were left out of ray-casts
+     */
+    public long getHitboxReadFailures() {
+        return hitboxReadFailures;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("MetricsSnapshot{");
+        for (CastMethod method : CastMethod.values()) {
+            appendStats(builder, method, null);
+            for (RayCastUtility.Precision precision : RayCastUtility.Precision.values()) {
+                appendStats(builder, method, precision);
+            }
+        }
+        return builder.append("reflectionLookups: ").append(reflectionLookups)
+                .append(", namedFieldFallbacks: ").append(namedFieldFallbacks)
+                .append(", hitboxReadFailures: ").append(hitboxReadFailures)
+                .append('}').toString();
+    }
+
+    private void appendStats(StringBuilder builder, CastMethod method, @Nullable RayCastUtility.Precision precision) {
+        CastStats cast = getStats(method, precision);
+        if (cast.getCount() > 0) {
+            builder.append(method).append('/').append(precision == null ? "EXACT" : precision.name()).append(": ").append(cast).append(", ");
+        }
+    }
+}
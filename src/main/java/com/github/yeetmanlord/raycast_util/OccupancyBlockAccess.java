@@ -0,0 +1,95 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.Material;
+
+/**
+ * Reads the live world through the bitmaps of the {@link OccupancyIndex}. Block tests with the index's filter in chunks with built bitmaps
+ * are a bit lookup, everything else goes to the world. Only use this on the main thread.
+ */
+class OccupancyBlockAccess implements BlockAccess {
+
+    private final WorldBlockAccess blocks;
+
+    private final OccupancyIndex.WorldIndex index;
+
+    private final BlockFilter filter;
+
+    /**
+     * Whether a section without a bitmap is all air, which is only the case if the filter lets nothing but air through
+     */
+    private final boolean emptyIsAir;
+
+    private long lastChunk;
+
+    private long[][] lastSections;
+
+    OccupancyBlockAccess(WorldBlockAccess blocks) {
+        this.blocks = blocks;
+        this.index = OccupancyIndex.getIndex(blocks.getWorld());
+        this.filter = OccupancyIndex.getFilter();
+        this.emptyIsAir = filter.passesOnlyAir();
+    }
+
+    @Override
+    public Material getType(int x, int y, int z) {
+        return blocks.getType(x, y, z);
+    }
+
+    @Override
+    public boolean isHit(int x, int y, int z, BlockFilter filter) {
+        if (filter == this.filter) {
+            long[] bits = getBits(x >> 4, y >> 4, z >> 4);
+            if (bits != null) {
+                int bit = ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+                return (bits[bit >>> 6] & (1L << bit)) != 0;
+            }
+            if (lastSections != null && isInWorld(y >> 4)) {
+                return false;
+            }
+        }
+        return blocks.isHit(x, y, z, filter);
+    }
+
+    @Override
+    public boolean isSectionEmpty(int sectionX, int sectionY, int sectionZ) {
+        if (emptyIsAir && getBits(sectionX, sectionY, sectionZ) == null && lastSections != null && isInWorld(sectionY)) {
+            return true;
+        }
+        return blocks.isSectionEmpty(sectionX, sectionY, sectionZ);
+    }
+
+    @Override
+    public double[] getShape(int x, int y, int z) {
+        return blocks.getShape(x, y, z);
+    }
+
+    @Override
+    public boolean hasShapes() {
+        return blocks.hasShapes();
+    }
+
+    /**
+     * @return Bitmap of the section, null if no block in it stops a ray or the chunk isn't indexed. {@link #lastSections} is only null in
+     * the second case.
+     */
+    private long[] getBits(int sectionX, int sectionY, int sectionZ) {
+        if (index == null) {
+            return null;
+        }
+        long chunk = SnapshotBlockAccess.chunkKey(sectionX, sectionZ);
+        if (chunk != lastChunk || lastSections == null) {
+            lastChunk = chunk;
+            lastSections = index.getSections(sectionX, sectionZ);
+            if (lastSections == null) {
+                return null;
+            }
+        }
+        int section = sectionY - (index.getMinHeight() >> 4);
+        return section >= 0 && section < lastSections.length ? lastSections[section] : null;
+    }
+
+    private boolean isInWorld(int sectionY) {
+        int section = sectionY - (index.getMinHeight() >> 4);
+        return section >= 0 && section < lastSections.length;
+    }
+}
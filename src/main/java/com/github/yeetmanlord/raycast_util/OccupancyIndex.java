@@ -0,0 +1,376 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Keeps one bitmap per loaded chunk section saying which of its 4096 blocks stop a ray, so ray-casts in the live world test a block with a
+ * single bit lookup instead of going through {@link org.bukkit.block.Block} and {@link Material}. A section takes 512 bytes, sections with
+ * nothing in them that stops a ray take none and are skipped whole by ray-casts.
+ * <br>
+ * Call {@link #enable(Plugin)} in your plugin's onEnable to turn it on. The bitmaps of a chunk are built off the main thread from a
+ * snapshot when it loads, updated when its blocks change and dropped when it unloads. From then on every ray-cast reading the live world
+ * with the same {@link BlockFilter} the index was built with uses the bitmaps, other ray-casts (and chunks whose bitmaps aren't built yet)
+ * read the world like before.
+ * <br>
+ * Block events fire before the block changes, so changed blocks are read again at the start of the next tick. Until then ray-casts see
+ * the block as it was. Changes no event is fired for (e.g. blocks set by other plugins) aren't picked up until the chunk loads again, use
+ * {@link #update(World, int, int, int)} for those.
+ */
+public class OccupancyIndex {
+
+    private static final Map<UUID, WorldIndex> WORLDS = new HashMap<>();
+
+    private static volatile BlockFilter filter = BlockFilter.DEFAULT;
+
+    private static Plugin plugin;
+
+    private static Updater updater;
+
+    private static BukkitTask flushTask;
+
+    /**
+     * Read by every ray-cast through {@link BlockAccess#of(World)}, so it's kept apart from the task to avoid taking the lock.
+     */
+    private static volatile boolean enabled;
+
+    private OccupancyIndex() {
+    }
+
+    /**
+     * Same as {@link #enable(Plugin, BlockFilter)} with {@link BlockFilter#DEFAULT}.
+     */
+    public static void enable(Plugin plugin) {
+        enable(plugin, BlockFilter.DEFAULT);
+    }
+
+    /**
+     * Starts indexing every loaded chunk, and every chunk that loads from now on. Calling this more than once does nothing, call
+     * {@link #disable()} first to change the filter.
+     *
+     * @param plugin Plugin to register the listener and tasks under
+     * @param filter Which blocks are set in the bitmaps. Only ray-casts using this filter (see {@link RayCastOptions#getBlockFilter()}) use
+     *               the index.
+     */
+    public static synchronized void enable(Plugin plugin, BlockFilter filter) {
+        if (flushTask != null) {
+            return;
+        }
+        OccupancyIndex.plugin = plugin;
+        OccupancyIndex.filter = filter;
+        updater = new Updater();
+        Bukkit.getPluginManager().registerEvents(updater, plugin);
+        flushTask = Bukkit.getScheduler().runTaskTimer(plugin, OccupancyIndex::flush, 1L, 1L);
+        enabled = true;
+        for (World world : Bukkit.getWorlds()) {
+            for (Chunk chunk : world.getLoadedChunks()) {
+                load(chunk);
+            }
+        }
+    }
+
+    /**
+     * Stops indexing and drops every bitmap.
+     */
+    public static synchronized void disable() {
+        if (flushTask != null) {
+            enabled = false;
+            flushTask.cancel();
+            flushTask = null;
+            HandlerList.unregisterAll(updater);
+            updater = null;
+            plugin = null;
+        }
+        WORLDS.clear();
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return Which blocks are set in the bitmaps
+     */
+    public static BlockFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Reads a block again at the start of the next tick. Only needed for blocks changed without firing an event. Call on the main thread.
+     */
+    public static void update(World world, int x, int y, int z) {
+        WorldIndex index = WORLDS.get(world.getUID());
+        if (index != null) {
+            index.changed(x, y, z);
+        }
+    }
+
+    /**
+     * @return Number of chunks with built bitmaps, across all worlds
+     */
+    public static int getChunkCount() {
+        int count = 0;
+        for (WorldIndex index : WORLDS.values()) {
+            for (ChunkIndex chunk : index.chunks.values()) {
+                if (chunk.sections != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Number of section bitmaps held, across all worlds. Each takes 512 bytes.
+     */
+    public static int getSectionCount() {
+        int count = 0;
+        for (WorldIndex index : WORLDS.values()) {
+            for (ChunkIndex chunk : index.chunks.values()) {
+                if (chunk.sections == null) {
+                    continue;
+                }
+                for (long[] section : chunk.sections) {
+                    if (section != null) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return The index of a world, null if nothing in it is indexed. Only use the result on the main thread.
+     */
+    static WorldIndex getIndex(World world) {
+        return WORLDS.get(world.getUID());
+    }
+
+    /**
+     * Takes a snapshot of a chunk and builds its bitmaps from it on the common fork join pool. They're installed back on the main thread,
+     * unless the chunk was unloaded (or loaded again) in the meantime.
+     */
+    private static void load(Chunk chunk) {
+        World world = chunk.getWorld();
+        WorldIndex index = WORLDS.computeIfAbsent(world.getUID(), uid -> new WorldIndex(world));
+        long key = SnapshotBlockAccess.chunkKey(chunk.getX(), chunk.getZ());
+        ChunkIndex loading = new ChunkIndex(chunk.getX(), chunk.getZ());
+        index.chunks.put(key, loading);
+        ChunkSnapshot snapshot = chunk.getChunkSnapshot(false, false, false);
+        Plugin owner = plugin;
+        BlockFilter filter = OccupancyIndex.filter;
+        CompletableFuture.supplyAsync(() -> build(snapshot, index.minHeight, index.sectionCount, filter))
+                .thenAccept(sections -> Bukkit.getScheduler().runTask(owner, () -> {
+                    if (WORLDS.get(world.getUID()) == index && index.chunks.get(key) == loading) {
+                        loading.sections = sections;
+                    }
+                }));
+    }
+
+    /**
+     * @return One bitmap per section of the chunk from the bottom of the world up, null for sections where no block stops a ray
+     */
+    static long[][] build(ChunkSnapshot chunk, int minHeight, int sectionCount, BlockFilter filter) {
+        long[][] sections = new long[sectionCount][];
+        boolean airStops = filter.test(Material.AIR);
+        for (int section = 0; section < sectionCount; section++) {
+            if (!airStops && chunk.isSectionEmpty(section)) {
+                continue;
+            }
+            int bottom = minHeight + (section << 4);
+            long[] bits = null;
+            for (int y = 0; y < 16; y++) {
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x++) {
+                        if (!filter.test(chunk.getBlockType(x, bottom + y, z))) {
+                            continue;
+                        }
+                        if (bits == null) {
+                            bits = new long[64];
+                        }
+                        int bit = (y << 8) | (z << 4) | x;
+                        bits[bit >>> 6] |= 1L << bit;
+                    }
+                }
+            }
+            sections[section] = bits;
+        }
+        return sections;
+    }
+
+    /**
+     * Reads every block that changed since the last tick again. Blocks in chunks whose bitmaps are still being built stay queued.
+     */
+    private static void flush() {
+        BlockFilter filter = OccupancyIndex.filter;
+        for (WorldIndex index : WORLDS.values()) {
+            if (index.changed.isEmpty()) {
+                continue;
+            }
+            List<ChunkIndex> building = new ArrayList<>();
+            for (ChunkIndex chunk : index.changed) {
+                if (index.chunks.get(SnapshotBlockAccess.chunkKey(chunk.x, chunk.z)) != chunk) {
+                    continue;
+                }
+                if (chunk.sections == null) {
+                    building.add(chunk);
+                    continue;
+                }
+                for (int i = 0; i < chunk.changedCount; i++) {
+                    int position = chunk.changed[i];
+                    int x = position & 15, z = (position >>> 4) & 15, y = (position >>> 8) + index.minHeight;
+                    chunk.set(y - index.minHeight, z, x, filter.test(index.world.getBlockAt((chunk.x << 4) | x, y, (chunk.z << 4) | z).getType()));
+                }
+                chunk.changedCount = 0;
+                chunk.queued = false;
+            }
+            index.changed.clear();
+            index.changed.addAll(building);
+        }
+    }
+
+    /**
+     * The bitmaps of the loaded chunks of one world.
+     */
+    static class WorldIndex {
+
+        private final World world;
+
+        private final int minHeight;
+
+        private final int sectionCount;
+
+        private final Map<Long, ChunkIndex> chunks = new HashMap<>();
+
+        private final List<ChunkIndex> changed = new ArrayList<>();
+
+        WorldIndex(World world) {
+            this.world = world;
+            this.minHeight = SnapshotBlockAccess.getMinHeight(world);
+            this.sectionCount = (world.getMaxHeight() - minHeight + 15) >> 4;
+        }
+
+        /**
+         * @return Bitmaps of the chunk by section, null if the chunk isn't loaded or its bitmaps aren't built yet
+         */
+        long[][] getSections(int chunkX, int chunkZ) {
+            ChunkIndex chunk = chunks.get(SnapshotBlockAccess.chunkKey(chunkX, chunkZ));
+            return chunk == null ? null : chunk.sections;
+        }
+
+        int getMinHeight() {
+            return minHeight;
+        }
+
+        void changed(int x, int y, int z) {
+            if (y < minHeight || y >= minHeight + (sectionCount << 4)) {
+                return;
+            }
+            ChunkIndex chunk = chunks.get(SnapshotBlockAccess.chunkKey(x >> 4, z >> 4));
+            if (chunk == null) {
+                return;
+            }
+            chunk.queue(((y - minHeight) << 8) | ((z & 15) << 4) | (x & 15));
+            if (!chunk.queued) {
+                chunk.queued = true;
+                changed.add(chunk);
+            }
+        }
+    }
+
+    private static class ChunkIndex {
+
+        private final int x, z;
+
+        /**
+         * Null until built
+         */
+        private long[][] sections;
+
+        /**
+         * Blocks changed since the last flush, packed as y from the bottom of the world, z and x
+         */
+        private int[] changed = new int[8];
+
+        private int changedCount;
+
+        private boolean queued;
+
+        ChunkIndex(int x, int z) {
+            this.x = x;
+            this.z = z;
+        }
+
+        void queue(int position) {
+            if (changedCount == changed.length) {
+                changed = Arrays.copyOf(changed, changedCount * 2);
+            }
+            changed[changedCount++] = position;
+        }
+
+        void set(int y, int z, int x, boolean stops) {
+            long[] bits = sections[y >> 4];
+            if (bits == null) {
+                if (!stops) {
+                    return;
+                }
+                bits = sections[y >> 4] = new long[64];
+            }
+            int bit = ((y & 15) << 8) | (z << 4) | x;
+            if (stops) {
+                bits[bit >>> 6] |= 1L << bit;
+            } else {
+                bits[bit >>> 6] &= ~(1L << bit);
+            }
+        }
+    }
+
+    /**
+     * Follows chunks loading and unloading and blocks changing. Only registered while the index is enabled.
+     */
+    private static class Updater extends BlockChangeListener {
+
+        @Override
+        void blockChanged(World world, int x, int y, int z) {
+            update(world, x, y, z);
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onChunkLoad(ChunkLoadEvent event) {
+            load(event.getChunk());
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onChunkUnload(ChunkUnloadEvent event) {
+            WorldIndex index = WORLDS.get(event.getWorld().getUID());
+            if (index != null) {
+                index.chunks.remove(SnapshotBlockAccess.chunkKey(event.getChunk().getX(), event.getChunk().getZ()));
+            }
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onWorldUnload(WorldUnloadEvent event) {
+            WORLDS.remove(event.getWorld().getUID());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.Material;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * Settings for a piercing ray-cast, see {@link RayCastUtility#rayCastPiercing(org.bukkit.entity.LivingEntity, double, PierceOptions, RayCastOptions)}.
+ * Every setter returns the options so they can be chained:
+ * <pre>
+ *     new PierceOptions().maxHits(5).passThrough(Material.GLASS, Material.TALL_GRASS)
+ * </pre>
+ */
+public class PierceOptions {
+
+    private int maxHits = Integer.MAX_VALUE;
+
+    private boolean stopAtSolid = true;
+
+    /**
+     * Compiled so it costs one lookup per block, set bits are the materials that let the ray through.
+     */
+    private BlockFilter passThrough;
+
+    /**
+     * @param maxHits Most hits to collect. The ray-cast stops as soon as it has this many.
+     */
+    public PierceOptions maxHits(int maxHits) {
+        if (maxHits < 1) {
+            throw new IllegalArgumentException("maxHits must be at least 1");
+        }
+        this.maxHits = maxHits;
+        return this;
+    }
+
+    /**
+     * @param stopAtSolid If true (the default), the ray stops at the first block it hits, and that block is the last hit. If false, every
+     *                    block along the ray is a hit and the ray keeps going.
+     */
+    public PierceOptions stopAtSolid(boolean stopAtSolid) {
+        this.stopAtSolid = stopAtSolid;
+        return this;
+    }
+
+    /**
+     * @param passThrough Blocks the ray goes straight through, as if they were air. May be null to let no blocks through. Called once for
+     *                    every material right away, see {@link BlockFilter#of(Predicate)}.
+     */
+    public PierceOptions passThrough(@Nullable Predicate<Material> passThrough) {
+        this.passThrough = passThrough == null ? null : BlockFilter.of(passThrough);
+        return this;
+    }
+
+    /**
+     * @param materials Blocks the ray goes straight through, as if they were air
+     */
+    public PierceOptions passThrough(Material... materials) {
+        this.passThrough = BlockFilter.of(Arrays.asList(materials));
+        return this;
+    }
+
+    /**
+     * @return Whether the ray goes straight through blocks of this type
+     */
+    public boolean passesThrough(Material type) {
+        return passThrough != null && passThrough.test(type);
+    }
+
+    public int getMaxHits() {
+        return maxHits;
+    }
+
+    public boolean isStopAtSolid() {
+        return stopAtSolid;
+    }
+
+    @Override
+    public String toString() {
+        return "PierceOptions{" +
+                "maxHits: " + maxHits +
+                ", stopAtSolid: " + stopAtSolid +
+                ", passThrough: " + passThrough +
+                '}';
+    }
+}
@@ -0,0 +1,267 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.util.Vector;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Many rays in one world, ray-cast together. Shotgun spreads, cone sweeps and "look in 64 directions" checks share one set of entity
+ * hitboxes, and every block is looked up at most once for the whole batch. Rays are stored in flat arrays, so adding them doesn't create any
+ * objects.
+ * <br>
+ * Batches with at least {@link #PARALLEL_THRESHOLD} rays can be traced in parallel on the common fork join pool, see
+ * {@link #parallel(boolean)}. Rays are always traced exactly (see {@link RayCastUtility#rayCast(World, double, double, double, double, double, double, double, Entity, RayCastOptions)}).
+ * <pre>
+ *     RayCastResult[] results = new RayBatch(player.getWorld()).addCone(player, 10, 12).rayCast(30, player, new RayCastOptions());
+ * </pre>
+ */
+public class RayBatch {
+
+    /**
+     * Parallel batches with fewer rays than this are still traced on the calling thread, since splitting them costs more than it saves.
+     */
+    public static final int PARALLEL_THRESHOLD = 256;
+
+    /**
+     * The golden angle in radians, spreads the rays of a cone evenly around its axis.
+     */
+    private static final double GOLDEN_ANGLE = Math.PI * (3 - Math.sqrt(5));
+
+    private final World world;
+
+    private boolean parallel;
+
+    private int size;
+
+    private double[] rays = new double[6 * 16];
+
+    /**
+     * @param world World all rays of the batch are cast in
+     */
+    public RayBatch(World world) {
+        this.world = world;
+    }
+
+    /**
+     * @param parallel Whether to trace the rays in parallel. Chunks along the rays are captured first so the rays can be traced off the main
+     *                 thread, which needs a 1.13+ server (see {@link SnapshotBlockAccess}).
+     */
+    public RayBatch parallel(boolean parallel) {
+        this.parallel = parallel;
+        return this;
+    }
+
+    /**
+     * Adds one ray.
+     *
+     * @param x    X coordinate to ray-cast from
+     * @param y    Y coordinate to ray-cast from
+     * @param z    Z coordinate to ray-cast from
+     * @param dirX X component of the direction to ray-cast in, does not have to be normalized
+     * @param dirY Y component of the direction to ray-cast in
+     * @param dirZ Z component of the direction to ray-cast in
+     */
+    public RayBatch add(double x, double y, double z, double dirX, double dirY, double dirZ) {
+        double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+        if (length == 0 || Double.isNaN(length)) {
+            throw new IllegalArgumentException("Ray direction must not be zero");
+        }
+        if (size * 6 == rays.length) {
+            rays = Arrays.copyOf(rays, rays.length * 2);
+        }
+        int i = size * 6;
+        rays[i] = x;
+        rays[i + 1] = y;
+        rays[i + 2] = z;
+        rays[i + 3] = dirX / length;
+        rays[i + 4] = dirY / length;
+        rays[i + 5] = dirZ / length;
+        size++;
+        return this;
+    }
+
+    /**
+     * Adds rays spread evenly over a cone. An angle of 180 spreads them over every direction.
+     *
+     * @param x     X coordinate of the tip of the cone
+     * @param y     Y coordinate of the tip of the cone
+     * @param z     Z coordinate of the tip of the cone
+     * @param dirX  X component of the cone's axis, does not have to be normalized
+     * @param dirY  Y component of the cone's axis
+     * @param dirZ  Z component of the cone's axis
+     * @param angle Angle between the axis and the edge of the cone in degrees
+     * @param count Number of rays to add
+     */
+    public RayBatch addCone(double x, double y, double z, double dirX, double dirY, double dirZ, double angle, int count) {
+        double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+        dirX /= length;
+        dirY /= length;
+        dirZ /= length;
+
+        // Two directions perpendicular to the axis and to each other
+        double uX, uY, uZ;
+        if (Math.abs(dirY) < 0.9) {
+            uX = dirZ;
+            uY = 0;
+            uZ = -dirX;
+        } else {
+            uX = 0;
+            uY = -dirZ;
+            uZ = dirY;
+        }
+        double uLength = Math.sqrt(uX * uX + uY * uY + uZ * uZ);
+        uX /= uLength;
+        uY /= uLength;
+        uZ /= uLength;
+        double vX = dirY * uZ - dirZ * uY;
+        double vY = dirZ * uX - dirX * uZ;
+        double vZ = dirX * uY - dirY * uX;
+
+        // Spiral out from the axis so every ray covers the same area of the cone
+        double minCos = Math.cos(Math.toRadians(Math.min(angle, 180)));
+        for (int i = 0; i < count; i++) {
+            double cos = count == 1 ? 1 : 1 - (1 - minCos) * i / (count - 1);
+            double sin = Math.sqrt(Math.max(0, 1 - cos * cos));
+            double around = i * GOLDEN_ANGLE;
+            double a = sin * Math.cos(around);
+            double b = sin * Math.sin(around);
+            add(x, y, z, dirX * cos + uX * a + vX * b, dirY * cos + uY * a + vY * b, dirZ * cos + uZ * a + vZ * b);
+        }
+        return this;
+    }
+
+    /**
+     * Adds rays spread evenly over a cone around where an entity is looking.
+     *
+     * @param entity Entity to ray-cast from
+     * @param angle  Angle between the entity's line of sight and the edge of the cone in degrees
+     * @param count  Number of rays to add
+     */
+    public RayBatch addCone(LivingEntity entity, double angle, int count) {
+        Location starting = entity.getEyeLocation();
+        Vector direction = starting.getDirection();
+        return addCone(starting.getX(), starting.getY(), starting.getZ(), direction.getX(), direction.getY(), direction.getZ(), angle, count);
+    }
+
+    /**
+     * Ray-casts entities and blocks along every ray. Call on the main thread.
+     *
+     * @param maxDistance Maximum distance to ray-cast
+     * @param ignored     Entity the rays can't hit, usually the one ray-casting. May be null.
+     * @param options     Extra settings for the ray-casts
+     * @return One result per ray, in the order the rays were added
+     */
+    public RayCastResult[] rayCast(double maxDistance, @Nullable Entity ignored, RayCastOptions options) {
+        RayHit[] hits = trace(getHitboxes(maxDistance, options), ignored, maxDistance, options);
+        RayCastResult[] results = new RayCastResult[size];
+        for (int i = 0; i < size; i++) {
+            results[i] = hits[i].toResult(world);
+        }
+        return results;
+    }
+
+    /**
+     * Ray-casts only blocks along every ray. Call on the main thread.
+     *
+     * @param maxDistance Maximum distance to ray-cast
+     * @param options     Extra settings for the ray-casts
+     * @return One result per ray, in the order the rays were added
+     */
+    public BlockRayCastResult[] rayCastBlocks(double maxDistance, RayCastOptions options) {
+        RayHit[] hits = trace(null, null, maxDistance, options);
+        BlockRayCastResult[] results = new BlockRayCastResult[size];
+        for (int i = 0; i < size; i++) {
+            results[i] = hits[i].toBlockResult(world);
+        }
+        return results;
+    }
+
+    /**
+     * Same as {@link #rayCast(double, Entity, RayCastOptions)}, but returns the hits without looking up any blocks.
+     */
+    public RayHit[] trace(double maxDistance, @Nullable Entity ignored, RayCastOptions options) {
+        return trace(getHitboxes(maxDistance, options), ignored, maxDistance, options);
+    }
+
+    private RayHit[] trace(@Nullable HitboxSnapshot hitboxes, @Nullable Entity ignored, double maxDistance, RayCastOptions options) {
+        RayHit[] hits = new RayHit[size];
+        BlockFilter filter = options.getBlockFilter();
+        if (parallel && size >= PARALLEL_THRESHOLD) {
+            BlockAccess blocks = captureBlocks(maxDistance, options.isBlockShapes());
+            IntStream.range(0, size).parallel().forEach(i -> hits[i] = trace(blocks, hitboxes, ignored, i, maxDistance, filter));
+        } else {
+            BlockAccess blocks = new CachingBlockAccess(BlockAccess.of(world, options.isBlockShapes()));
+            for (int i = 0; i < size; i++) {
+                hits[i] = trace(blocks, hitboxes, ignored, i, maxDistance, filter);
+            }
+        }
+        return hits;
+    }
+
+    private RayHit trace(BlockAccess blocks, @Nullable HitboxSnapshot hitboxes, @Nullable Entity ignored, int ray, double maxDistance, BlockFilter filter) {
+        long start = RayCastMetrics.begin();
+        int i = ray * 6;
+        RayHit hit = RayTracer.trace(blocks, hitboxes, ignored, rays[i], rays[i + 1], rays[i + 2], rays[i + 3], rays[i + 4], rays[i + 5], maxDistance, filter);
+        RayCastMetrics.end(CastMethod.BATCH, null, start, hit.getType());
+        return hit;
+    }
+
+    /**
+     * Captures every chunk any of the rays pass through, so they can be traced off the main thread.
+     */
+    private BlockAccess captureBlocks(double maxDistance, boolean blockShapes) {
+        Map<Long, ChunkSnapshot> chunks = new HashMap<>();
+        for (int i = 0; i < size * 6; i += 6) {
+            SnapshotBlockAccess.captureChunks(world, rays[i], rays[i + 1], rays[i + 2], rays[i + 3], rays[i + 4], rays[i + 5], maxDistance, chunks);
+        }
+        return new SnapshotBlockAccess(chunks.values(), SnapshotBlockAccess.getMinHeight(world), world.getMaxHeight(), blockShapes);
+    }
+
+    /**
+     * Gets one set of hitboxes for the whole batch: this tick's shared snapshot if {@link HitboxSnapshots} is enabled, otherwise the entities
+     * in the box around every ray.
+     */
+    private HitboxSnapshot getHitboxes(double maxDistance, RayCastOptions options) {
+        if (!options.isLiveHitboxes() && HitboxSnapshots.isEnabled()) {
+            return HitboxSnapshots.getSnapshot(world);
+        }
+        if (size == 0) {
+            return HitboxSnapshot.of(new Entity[0], new double[0], new double[0], new double[0], new double[0], new double[0], new double[0], HitboxSnapshots.getCurrentTick());
+        }
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size * 6; i += 6) {
+            double endX = rays[i] + rays[i + 3] * maxDistance;
+            double endY = rays[i + 1] + rays[i + 4] * maxDistance;
+            double endZ = rays[i + 2] + rays[i + 5] * maxDistance;
+            minX = Math.min(minX, Math.min(rays[i], endX));
+            minY = Math.min(minY, Math.min(rays[i + 1], endY));
+            minZ = Math.min(minZ, Math.min(rays[i + 2], endZ));
+            maxX = Math.max(maxX, Math.max(rays[i], endX));
+            maxY = Math.max(maxY, Math.max(rays[i + 1], endY));
+            maxZ = Math.max(maxZ, Math.max(rays[i + 2], endZ));
+        }
+        Location center = new Location(world, (minX + maxX) / 2, (minY + maxY) / 2, (minZ + maxZ) / 2);
+        return HitboxSnapshot.capture(world.getNearbyEntities(center, (maxX - minX) / 2 + 0.5, (maxY - minY) / 2 + 0.5, (maxZ - minZ) / 2 + 0.5), HitboxSnapshots.getCurrentTick());
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * @return Number of rays in the batch
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,294 @@
+package com.github.yeetmanlord.raycast_util;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in numbers on how ray-casts perform: how many there were, how long they took, how many steps they made, how many blocks they looked up
+ * and how many hitboxes they tested, kept separately per {@link CastMethod} and {@link RayCastUtility.Precision}.
+ * <br>
+ * Call {@link #enable()} to start counting. While disabled every hook is a single volatile read. While enabled a ray-cast counts into a
+ * per-thread scratch object and adds its totals to striped {@link LongAdder}s when it's done, so ray-casts on different threads never
+ * contend. Read the numbers with {@link #snapshot()}, or get told about every ray-cast with {@link #addListener(RayCastMetricsListener)}.
+ * <br>
+ * A ray-cast started from inside another one's onStep is counted on its own, the outer ray-cast's numbers are put back once it's done.
+ * Listeners that throw are reported and don't stop the other listeners or the ray-cast.
+ */
+public class RayCastMetrics {
+
+    /**
+     * Number of latency buckets. The last one holds everything that took 2^39 nanoseconds (about 9 minutes) or longer.
+     */
+    static final int BUCKETS = 40;
+
+    private static final int PRECISIONS = RayCastUtility.Precision.values().length + 1;
+
+    private static final long NOT_RECORDING = Long.MIN_VALUE;
+
+    private static final ThreadLocal<Recorder> RECORDERS = ThreadLocal.withInitial(Recorder::new);
+
+    private static final CopyOnWriteArrayList<RayCastMetricsListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private static final LongAdder REFLECTION_LOOKUPS = new LongAdder();
+
+    private static final LongAdder NAMED_FIELD_FALLBACKS = new LongAdder();
+
+    private static final LongAdder HITBOX_READ_FAILURES = new LongAdder();
+
+    private static volatile boolean enabled;
+
+    private static volatile Stats[] stats;
+
+    private RayCastMetrics() {
+    }
+
+    /**
+     * Starts counting. Numbers from an earlier enable are kept, see {@link #reset()}.
+     */
+    public static synchronized void enable() {
+        if (stats == null) {
+            stats = newStats();
+        }
+        enabled = true;
+    }
+
+    /**
+     * Stops counting. The numbers so far are kept.
+     */
+    public static void disable() {
+        enabled = false;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Throws away everything counted so far.
+     */
+    public static synchronized void reset() {
+        stats = newStats();
+        REFLECTION_LOOKUPS.reset();
+        NAMED_FIELD_FALLBACKS.reset();
+        HITBOX_READ_FAILURES.reset();
+    }
+
+    /**
+     * @return Everything counted so far. Ray-casts running on other threads while this is called may be partly included.
+     */
+    public static MetricsSnapshot snapshot() {
+        Stats[] current = stats;
+        CastStats[] snapshot = new CastStats[CastMethod.values().length * PRECISIONS];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = current == null ? new CastStats(0, 0, 0, 0, 0, new long[ResultType.values().length], new long[BUCKETS]) : current[i].snapshot();
+        }
+        return new MetricsSnapshot(snapshot, REFLECTION_LOOKUPS.sum(), NAMED_FIELD_FALLBACKS.sum(), HITBOX_READ_FAILURES.sum());
+    }
+
+    public static void addListener(RayCastMetricsListener listener) {
+        LISTENERS.addIfAbsent(listener);
+    }
+
+    public static void removeListener(RayCastMetricsListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Starts counting a ray-cast on this thread.
+     *
+     * @return Value to hand to {@link #end(CastMethod, RayCastUtility.Precision, long, ResultType)}
+     */
+    static long begin() {
+        if (!enabled) {
+            return NOT_RECORDING;
+        }
+        long start = System.nanoTime();
+        RECORDERS.get().push(start);
+        return start;
+    }
+
+    /**
+     * Finishes counting the ray-cast started by {@link #begin()} on this thread.
+     */
+    static void end(CastMethod method, @Nullable RayCastUtility.Precision precision, long start, ResultType result) {
+        if (start == NOT_RECORDING) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        Recorder recorder = RECORDERS.get();
+        Stats[] current = stats;
+        if (current != null) {
+            current[index(method, precision)].add(nanos, recorder, result);
+        }
+        for (RayCastMetricsListener listener : LISTENERS) {
+            try {
+                listener.onCast(method, precision, result, nanos, recorder.steps, recorder.blocks, recorder.hitboxes);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        recorder.pop(start);
+    }
+
+    /**
+     * @param steps  Points or blocks the ray moved through
+     * @param blocks Block types looked up
+     */
+    static void countBlocks(int steps, int blocks) {
+        if (enabled) {
+            Recorder recorder = RECORDERS.get();
+            recorder.steps += steps;
+            recorder.blocks += blocks;
+        }
+    }
+
+    static void countHitboxes(int hitboxes) {
+        if (enabled) {
+            RECORDERS.get().hitboxes += hitboxes;
+        }
+    }
+
+    static void countReflectionLookup() {
+        if (enabled) {
+            REFLECTION_LOOKUPS.increment();
+        }
+    }
+
+    static void countNamedFieldFallback() {
+        if (enabled) {
+            NAMED_FIELD_FALLBACKS.increment();
+        }
+    }
+
+    static void countHitboxReadFailure() {
+        if (enabled) {
+            HITBOX_READ_FAILURES.increment();
+        }
+    }
+
+    static int index(CastMethod method, @Nullable RayCastUtility.Precision precision) {
+        return method.ordinal() * PRECISIONS + (precision == null ? 0 : precision.ordinal() + 1);
+    }
+
+    private static Stats[] newStats() {
+        Stats[] stats = new Stats[CastMethod.values().length * PRECISIONS];
+        for (int i = 0; i < stats.length; i++) {
+            stats[i] = new Stats();
+        }
+        return stats;
+    }
+
+    /**
+     * What the ray-cast currently running on a thread has done so far, and the numbers of the ray-casts it was started from.
+     */
+    private static class Recorder {
+
+        private static final int MAX_DEPTH = 64;
+
+        private int steps;
+
+        private int blocks;
+
+        private int hitboxes;
+
+        private long[] starts = new long[4];
+
+        /**
+         * Steps, blocks and hitboxes of every outer ray-cast, three ints each.
+         */
+        private int[] saved = new int[12];
+
+        private int depth;
+
+        private void push(long start) {
+            if (depth == MAX_DEPTH) {
+                // Nobody nests ray-casts this deep, these are left over from ray-casts that threw
+                depth = 0;
+            }
+            if (depth == starts.length) {
+                starts = Arrays.copyOf(starts, depth * 2);
+                saved = Arrays.copyOf(saved, depth * 6);
+            }
+            starts[depth] = start;
+            saved[depth * 3] = steps;
+            saved[depth * 3 + 1] = blocks;
+            saved[depth * 3 + 2] = hitboxes;
+            depth++;
+            steps = 0;
+            blocks = 0;
+            hitboxes = 0;
+        }
+
+        /**
+         * Puts back the numbers from before the ray-cast that started at {@code start}. Ray-casts above it that threw before ending are
+         * dropped along the way.
+         */
+        private void pop(long start) {
+            while (depth > 0) {
+                depth--;
+                if (starts[depth] == start) {
+                    steps = saved[depth * 3];
+                    blocks = saved[depth * 3 + 1];
+                    hitboxes = saved[depth * 3 + 2];
+                    return;
+                }
+            }
+            steps = 0;
+            blocks = 0;
+            hitboxes = 0;
+        }
+    }
+
+    /**
+     * Running totals for one method and precision.
+     */
+    private static class Stats {
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder nanos = new LongAdder();
+
+        private final LongAdder steps = new LongAdder();
+
+        private final LongAdder blocks = new LongAdder();
+
+        private final LongAdder hitboxes = new LongAdder();
+
+        private final LongAdder[] results = new LongAdder[ResultType.values().length];
+
+        private final LongAdder[] histogram = new LongAdder[BUCKETS];
+
+        private Stats() {
+            for (int i = 0; i < results.length; i++) {
+                results[i] = new LongAdder();
+            }
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] = new LongAdder();
+            }
+        }
+
+        private void add(long nanos, Recorder recorder, ResultType result) {
+            count.increment();
+            this.nanos.add(nanos);
+            steps.add(recorder.steps);
+            blocks.add(recorder.blocks);
+            hitboxes.add(recorder.hitboxes);
+            results[result.ordinal()].increment();
+            histogram[Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(Math.max(1, nanos)))].increment();
+        }
+
+        private CastStats snapshot() {
+            long[] results = new long[this.results.length];
+            for (int i = 0; i < results.length; i++) {
+                results[i] = this.results[i].sum();
+            }
+            long[] histogram = new long[BUCKETS];
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] = this.histogram[i].sum();
+            }
+            return new CastStats(count.sum(), nanos.sum(), steps.sum(), blocks.sum(), hitboxes.sum(), results, histogram);
+        }
+    }
+}
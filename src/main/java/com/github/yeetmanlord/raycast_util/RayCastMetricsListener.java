@@ -0,0 +1,21 @@
+package com.github.yeetmanlord.raycast_util;
+
+import javax.annotation.Nullable;
+
+/**
+ * Gets told about every ray-cast while {@link RayCastMetrics} is enabled. Called on the thread that did the ray-cast, right after it
+ * finished, so keep it quick.
+ */
+public interface RayCastMetricsListener {
+
+    /**
+     * @param method    Kind of ray-cast
+     * @param precision Precision of the ray-cast, null for exact ray-casts
+     * @param result    What the ray-cast hit
+     * @param nanos     How long the ray-cast took in nanoseconds
+     * @param steps     Number of points or blocks the ray moved through
+     * @param blocks    Number of block types looked up
+     * @param hitboxes  Number of entity hitboxes tested against the ray
+     */
+    void onCast(CastMethod method, @Nullable RayCastUtility.Precision precision, ResultType result, long nanos, int steps, int blocks, int hitboxes);
+}
@@ -0,0 +1,106 @@
+package com.github.yeetmanlord.raycast_util;
+
+import javax.annotation.Nullable;
+
+/**
+ * Extra settings for a ray-cast. Every setter returns the options so they can be chained:
+ * <pre>
+ *     new RayCastOptions().ignoreLiquids(true).liveHitboxes(true)
+ * </pre>
+ */
+public class RayCastOptions {
+
+    private boolean ignoreLiquids;
+
+    private BlockFilter blockFilter;
+
+    private boolean liveHitboxes;
+
+    private boolean blockShapes;
+
+    private boolean refineHits;
+
+    /**
+     * @param ignoreLiquids Whether to factor in liquids. If true, will not stop ray-casting at a liquid.
+     */
+    public RayCastOptions ignoreLiquids(boolean ignoreLiquids) {
+        this.ignoreLiquids = ignoreLiquids;
+        return this;
+    }
+
+    /**
+     * @param blockFilter Which blocks stop the ray. Overrides {@link #ignoreLiquids(boolean)}, may be null to go back to it.
+     */
+    public RayCastOptions blockFilter(@Nullable BlockFilter blockFilter) {
+        this.blockFilter = blockFilter;
+        return this;
+    }
+
+    /**
+     * @param liveHitboxes If true, entity hitboxes are read from the entities themselves instead of this tick's shared
+     *                     {@link HitboxSnapshots snapshot}. Only matters if snapshots are enabled.
+     */
+    public RayCastOptions liveHitboxes(boolean liveHitboxes) {
+        this.liveHitboxes = liveHitboxes;
+        return this;
+    }
+
+    /**
+     * @param blockShapes If true, rays are tested against the real collision shape of blocks (see {@link BlockShapes}), so they can go over
+     *                    slabs and through the gaps in fences. Otherwise every block that stops the ray is a whole cube. Only ray-casts
+     *                    without a precision use shapes, the ones with a precision only check points and always use whole cubes.
+     */
+    public RayCastOptions blockShapes(boolean blockShapes) {
+        this.blockShapes = blockShapes;
+        return this;
+    }
+
+    /**
+     * @param refineHits If true, ray-casts with a precision find the exact point the ray entered the block it hit, so the result has a
+     *                   hit location and distance. The precision's steps still find the block, then only the blocks between the last step
+     *                   that hit nothing and the one that hit are walked exactly, which is a few more block lookups for one hit instead of
+     *                   a finer precision along the whole ray. Ray-casts without a precision are always exact.
+     */
+    public RayCastOptions refineHits(boolean refineHits) {
+        this.refineHits = refineHits;
+        return this;
+    }
+
+    public boolean isIgnoreLiquids() {
+        return ignoreLiquids;
+    }
+
+    /**
+     * @return The block filter set, or {@link BlockFilter#IGNORE_LIQUIDS} or {@link BlockFilter#DEFAULT} depending on
+     * {@link #isIgnoreLiquids()} if none was
+     */
+    public BlockFilter getBlockFilter() {
+        if (blockFilter != null) {
+            return blockFilter;
+        }
+        return ignoreLiquids ? BlockFilter.IGNORE_LIQUIDS : BlockFilter.DEFAULT;
+    }
+
+    public boolean isLiveHitboxes() {
+        return liveHitboxes;
+    }
+
+    public boolean isBlockShapes() {
+        return blockShapes;
+    }
+
+    public boolean isRefineHits() {
+        return refineHits;
+    }
+
+    @Override
+    public String toString() {
+        return "RayCastOptions{" +
+                "ignoreLiquids: " + ignoreLiquids +
+                ", blockFilter: " + blockFilter +
+                ", liveHitboxes: " + liveHitboxes +
+                ", blockShapes: " + blockShapes +
+                ", refineHits: " + refineHits +
+                '}';
+    }
+}
@@ -0,0 +1,306 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes ray-casts to a trace file as they happen, so a laggy stretch on a live server can be replayed and measured offline with
+ * {@link RayCastReplay}. Every ray-cast made through the {@code World} variants of {@link RayCastUtility#rayCastBlocks},
+ * {@link RayCastUtility#rayCastEntities} and {@link RayCastUtility#rayCast} (and so also the {@code LivingEntity} ones) is recorded with its
+ * origin, direction, maximum distance, precision, options, result and how long it took. The other kinds of ray-casts aren't recorded.
+ * <br>
+ * Along with the ray-casts the recorder keeps what they depend on: which blocks stop a ray in every chunk section a ray passes through, as
+ * one bit per block written the first time a section is reached, and the hitboxes each ray enters. The bits are read with the block filter
+ * of the first ray-cast reaching the section, block shapes aren't kept. Reading a section is a few thousand block lookups, so ray-casts
+ * into new sections get slower while recording.
+ * <br>
+ * The trace is written through a {@link FileChannel} in 64 KB blocks. Records are made on the thread doing the ray-cast, one at a time.
+ * <pre>
+ *     RayCastRecorder.start(plugin.getDataFolder().toPath().resolve("casts.trace"));
+ *     // ... an hour later
+ *     RayCastRecorder.stop();
+ * </pre>
+ */
+public class RayCastRecorder {
+
+    /**
+     * "RCTR" in ASCII, first four bytes of every trace file.
+     */
+    static final int MAGIC = 0x52435452;
+
+    static final short VERSION = 1;
+
+    static final byte WORLD = 1;
+
+    static final byte SECTION = 2;
+
+    static final byte CAST = 3;
+
+    /**
+     * Flag of ray-casts made with {@link RayCastOptions#blockShapes(boolean)} turned on.
+     */
+    static final int BLOCK_SHAPES = 1;
+
+    /**
+     * Flag of ray-casts that test hitboxes, the hitboxes the ray enters follow the record.
+     */
+    static final int HITBOXES = 2;
+
+    /**
+     * Flag of ray-casts made with {@link RayCastOptions#refineHits(boolean)} turned on.
+     */
+    static final int REFINE_HITS = 4;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final long NOT_RECORDING = Long.MIN_VALUE;
+
+    private static final Map<World, Short> WORLDS = new HashMap<>();
+
+    private static final Set<SectionKey> SECTIONS = new HashSet<>();
+
+    private static volatile boolean recording;
+
+    private static FileChannel channel;
+
+    private static ByteBuffer buffer;
+
+    private static long startedAt;
+
+    private static long casts;
+
+    private static IOException failure;
+
+    private RayCastRecorder() {
+    }
+
+    /**
+     * Starts recording into a file, replacing it if it exists. Calling this while already recording does nothing.
+     *
+     * @param file File to write the trace to
+     * @throws IOException If the file can't be opened
+     */
+    public static synchronized void start(Path file) throws IOException {
+        if (recording) {
+            return;
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        buffer.putInt(MAGIC).putShort(VERSION);
+        WORLDS.clear();
+        SECTIONS.clear();
+        casts = 0;
+        failure = null;
+        startedAt = System.nanoTime();
+        recording = true;
+    }
+
+    /**
+     * Stops recording, writes what's left and closes the file. Does nothing if not recording.
+     *
+     * @throws IOException If writing the trace failed at any point while recording. Recording stops on the first failure, the trace holds
+     *                     what was written before it.
+     */
+    public static synchronized void stop() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        recording = false;
+        try {
+            if (failure == null) {
+                flush();
+            }
+        } finally {
+            channel.close();
+            channel = null;
+            buffer = null;
+            WORLDS.clear();
+            SECTIONS.clear();
+        }
+        if (failure != null) {
+            IOException thrown = failure;
+            failure = null;
+            throw thrown;
+        }
+    }
+
+    public static boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * @return Number of ray-casts recorded since the last {@link #start(Path)}
+     */
+    public static synchronized long getRecordedCasts() {
+        return casts;
+    }
+
+    /**
+     * Same as {@link RayCastMetrics#begin()}, but for the recorder.
+     *
+     * @return Time to pass to {@link #record}
+     */
+    static long begin() {
+        return recording ? System.nanoTime() : NOT_RECORDING;
+    }
+
+    /**
+     * Writes a ray-cast to the trace, along with the sections it passes through and the hitboxes it enters. Does nothing if not recording.
+     *
+     * @param start     What {@link #begin()} returned when the ray-cast started
+     * @param precision Precision of the ray-cast, null for the exact ray-casts
+     * @param hitboxes  Hitboxes the ray-cast tested, null if it only tests blocks
+     * @param ignored   Entity the ray-cast skipped, its hitbox isn't recorded
+     */
+    static void record(CastMethod method, @Nullable RayCastUtility.Precision precision, long start, World world, double x, double y, double z,
+                       double dirX, double dirY, double dirZ, double maxDistance, @Nullable HitboxSnapshot hitboxes, @Nullable Entity ignored,
+                       RayCastOptions options, ResultType result) {
+        if (start == NOT_RECORDING) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        synchronized (RayCastRecorder.class) {
+            if (!recording) {
+                return;
+            }
+            try {
+                short worldIndex = worldIndex(world);
+                double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+                dirX /= length;
+                dirY /= length;
+                dirZ /= length;
+                if (length > 0) {
+                    recordSections(world, worldIndex, x, y, z, dirX, dirY, dirZ, maxDistance, options.getBlockFilter());
+                }
+                int[] entered = hitboxes == null || length == 0 ? new int[0] : hitboxes.rayCastAll(x, y, z, dirX, dirY, dirZ, maxDistance, ignored);
+                int flags = (options.isBlockShapes() ? BLOCK_SHAPES : 0) | (hitboxes != null ? HITBOXES : 0) | (options.isRefineHits() ? REFINE_HITS : 0);
+
+                ensure(84 + entered.length * 48);
+                buffer.put(CAST).putShort(worldIndex).put((byte) method.ordinal()).put((byte) (precision == null ? -1 : precision.ordinal()))
+                        .put((byte) flags).put((byte) result.ordinal())
+                        .putLong(start - startedAt).putLong(nanos)
+                        .putDouble(x).putDouble(y).putDouble(z).putDouble(dirX).putDouble(dirY).putDouble(dirZ).putDouble(maxDistance);
+                buffer.putInt(entered.length);
+                for (int index : entered) {
+                    buffer.putDouble(hitboxes.getMinX(index)).putDouble(hitboxes.getMinY(index)).putDouble(hitboxes.getMinZ(index))
+                            .putDouble(hitboxes.getMaxX(index)).putDouble(hitboxes.getMaxY(index)).putDouble(hitboxes.getMaxZ(index));
+                }
+                casts++;
+            } catch (IOException e) {
+                failure = e;
+                recording = false;
+            }
+        }
+    }
+
+    private static short worldIndex(World world) throws IOException {
+        Short index = WORLDS.get(world);
+        if (index == null) {
+            index = (short) WORLDS.size();
+            WORLDS.put(world, index);
+            byte[] name = world.getName().getBytes(StandardCharsets.UTF_8);
+            ensure(5 + name.length);
+            buffer.put(WORLD).putShort(index).putShort((short) name.length).put(name);
+        }
+        return index;
+    }
+
+    /**
+     * Writes every chunk section inside the world along the ray that wasn't written yet. Sections no block in stops a ray are written
+     * without their bits.
+     */
+    private static void recordSections(World world, short worldIndex, double x, double y, double z, double dirX, double dirY, double dirZ,
+                                       double maxDistance, BlockFilter filter) throws IOException {
+        int minSection = SnapshotBlockAccess.getMinHeight(world) >> 4, maxSection = (world.getMaxHeight() - 1) >> 4;
+        BlockAccess blocks = null;
+        // Walking a grid 16 times coarser visits exactly the sections the ray passes through
+        VoxelTraversal sections = new VoxelTraversal(x / 16, y / 16, z / 16, dirX, dirY, dirZ, maxDistance / 16);
+        while (sections.next()) {
+            int sectionX = sections.getBlockX(), sectionY = sections.getBlockY(), sectionZ = sections.getBlockZ();
+            if (sectionY < minSection || sectionY > maxSection || !SECTIONS.add(new SectionKey(worldIndex, sectionX, sectionY, sectionZ))) {
+                continue;
+            }
+            if (blocks == null) {
+                blocks = BlockAccess.of(world);
+            }
+            long[] bits = new long[64];
+            boolean empty = true;
+            if (!blocks.isSectionEmpty(sectionX, sectionY, sectionZ)) {
+                for (int bit = 0; bit < 4096; bit++) {
+                    if (blocks.isHit((sectionX << 4) | (bit & 15), (sectionY << 4) | (bit >>> 8), (sectionZ << 4) | ((bit >>> 4) & 15), filter)) {
+                        bits[bit >>> 6] |= 1L << bit;
+                        empty = false;
+                    }
+                }
+            }
+            ensure(16 + (empty ? 0 : 512));
+            buffer.put(SECTION).putShort(worldIndex).putInt(sectionX).putInt(sectionY).putInt(sectionZ).put((byte) (empty ? 0 : 1));
+            if (!empty) {
+                for (long word : bits) {
+                    buffer.putLong(word);
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes room in the buffer for a record, writing the buffer to the file first if it's too full.
+     */
+    private static void ensure(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        flush();
+        if (buffer.capacity() < bytes) {
+            buffer = ByteBuffer.allocate(bytes);
+        }
+    }
+
+    private static void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static class SectionKey {
+
+        private final short world;
+
+        private final int x, y, z;
+
+        SectionKey(short world, int x, int y, int z) {
+            this.world = world;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SectionKey)) {
+                return false;
+            }
+            SectionKey other = (SectionKey) o;
+            return world == other.world && x == other.x && y == other.y && z == other.z;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((world * 31 + x) * 31 + y) * 31 + z;
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.Material;
+import org.bukkit.entity.Entity;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replays a trace written by {@link RayCastRecorder} without a server, to measure and compare ray-casts on the same workload over and over.
+ * The trace file is memory-mapped, the recorded chunk sections become an in-memory world of solid and empty blocks, and every recorded
+ * ray-cast is run again against it through the same {@link RayTracer} steps {@link RayCastUtility} uses, with the hitboxes the ray entered.
+ * <pre>
+ *     RayCastReplay replay = RayCastReplay.load(Paths.get("casts.trace"));
+ *     replay.run(); // Warm up
+ *     replay.run();
+ *     System.out.println(replay);
+ * </pre>
+ * Only the ray-casts {@link RayCastRecorder} records are in a trace, {@link #load(Path)} rejects traces with any other kind.
+ * <br>
+ * Finding the entities near the ray isn't part of a replayed ray-cast, neither are block shapes: blocks that stopped the ray are whole
+ * cubes. Replayed ray-casts usually take less time than the recorded ones for that reason, compare replays with replays.
+ * <br>
+ * Traces are limited to 2 GB. Not thread safe.
+ */
+public class RayCastReplay {
+
+    /**
+     * Passed as the ignored entity, the hitboxes of a replay don't belong to any entity and the ignored one was left out when recording.
+     */
+    private static final Entity NOT_IGNORED = (Entity) Proxy.newProxyInstance(RayCastReplay.class.getClassLoader(), new Class<?>[]{Entity.class},
+            (proxy, method, args) -> {
+                throw new UnsupportedOperationException("Nothing is ignored when replaying");
+            });
+
+    private final MappedByteBuffer trace;
+
+    private final List<String> worlds;
+
+    private final TraceBlockAccess[] blocks;
+
+    private final int[] offsets;
+
+    private final long[] recordedNanos;
+
+    private final long[] replayedNanos;
+
+    private final int sectionCount;
+
+    private int mismatches;
+
+    private boolean replayed;
+
+    private RayCastReplay(MappedByteBuffer trace, List<String> worlds, TraceBlockAccess[] blocks, int[] offsets, long[] recordedNanos, int sectionCount) {
+        this.trace = trace;
+        this.worlds = worlds;
+        this.blocks = blocks;
+        this.offsets = offsets;
+        this.recordedNanos = recordedNanos;
+        this.replayedNanos = new long[offsets.length];
+        this.sectionCount = sectionCount;
+    }
+
+    /**
+     * Maps a trace file and reads its chunk sections. Ray-casts are read from the mapped file while replaying.
+     *
+     * @param file Trace written by {@link RayCastRecorder}
+     * @return The replay, ready to {@link #run()}
+     * @throws IOException If the file can't be read, isn't a trace, is bigger than 2 GB or has ray-casts that can't be replayed
+     */
+    public static RayCastReplay load(Path file) throws IOException {
+        MappedByteBuffer trace;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Traces bigger than 2 GB can't be replayed");
+            }
+            trace = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (trace.remaining() < 6 || trace.getInt() != RayCastRecorder.MAGIC) {
+            throw new IOException("Not a ray-cast trace: " + file);
+        }
+        short version = trace.getShort();
+        if (version != RayCastRecorder.VERSION) {
+            throw new IOException("Unsupported trace version " + version);
+        }
+
+        List<String> worlds = new ArrayList<>();
+        List<Map<Long, long[]>> sections = new ArrayList<>();
+        int sectionCount = 0;
+        int[] offsets = new int[1024];
+        long[] recordedNanos = new long[1024];
+        int casts = 0;
+        try {
+            while (trace.hasRemaining()) {
+                byte tag = trace.get();
+                if (tag == RayCastRecorder.WORLD) {
+                    trace.getShort();
+                    byte[] name = new byte[trace.getShort()];
+                    trace.get(name);
+                    worlds.add(new String(name, StandardCharsets.UTF_8));
+                    sections.add(new HashMap<>());
+                } else if (tag == RayCastRecorder.SECTION) {
+                    short world = trace.getShort();
+                    int sectionX = trace.getInt(), sectionY = trace.getInt(), sectionZ = trace.getInt();
+                    long[] bits = null;
+                    if (trace.get() != 0) {
+                        bits = new long[64];
+                        trace.asLongBuffer().get(bits);
+                        trace.position(trace.position() + 512);
+                    }
+                    sections.get(world).put(TraceBlockAccess.key(sectionX, sectionY, sectionZ), bits);
+                    sectionCount++;
+                } else if (tag == RayCastRecorder.CAST) {
+                    if (casts == offsets.length) {
+                        offsets = Arrays.copyOf(offsets, casts * 2);
+                        recordedNanos = Arrays.copyOf(recordedNanos, casts * 2);
+                    }
+                    byte method = trace.get(trace.position() + 2);
+                    if (method < 0 || method >= CastMethod.values().length || !isReplayable(CastMethod.values()[method])) {
+                        throw new IOException("Can't replay ray-casts made with method " + method + " at " + trace.position());
+                    }
+                    offsets[casts] = trace.position();
+                    recordedNanos[casts] = trace.getLong(trace.position() + 14);
+                    casts++;
+                    int hitboxes = trace.getInt(trace.position() + 78);
+                    trace.position(trace.position() + 82 + hitboxes * 48);
+                } else {
+                    throw new IOException("Broken trace, unknown record " + tag + " at " + (trace.position() - 1));
+                }
+            }
+        } catch (RuntimeException e) {
+            // Buffer underflows and bad world indexes, e.g. from a trace cut off by a crash
+            throw new IOException("Broken trace at " + trace.position(), e);
+        }
+
+        TraceBlockAccess[] blocks = new TraceBlockAccess[worlds.size()];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = new TraceBlockAccess(sections.get(i));
+        }
+        return new RayCastReplay(trace, worlds, blocks, Arrays.copyOf(offsets, casts), Arrays.copyOf(recordedNanos, casts), sectionCount);
+    }
+
+    /**
+     * Runs every recorded ray-cast once, in the recorded order, timing each. Each run replaces the times of the one before, run a few times
+     * to let the JIT warm up before reading them.
+     */
+    public void run() {
+        mismatches = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            int offset = offsets[i];
+            TraceBlockAccess world = blocks[trace.getShort(offset)];
+            CastMethod method = CastMethod.values()[trace.get(offset + 2)];
+            byte precision = trace.get(offset + 3);
+            double advance = precision == -1 ? 0 : RayCastUtility.Precision.values()[precision].getAdvance();
+            byte flags = trace.get(offset + 4);
+            boolean testsHitboxes = (flags & RayCastRecorder.HITBOXES) != 0;
+            boolean refineHits = (flags & RayCastRecorder.REFINE_HITS) != 0;
+            ResultType recorded = ResultType.values()[trace.get(offset + 5)];
+            double x = trace.getDouble(offset + 22), y = trace.getDouble(offset + 30), z = trace.getDouble(offset + 38);
+            double dirX = trace.getDouble(offset + 46), dirY = trace.getDouble(offset + 54), dirZ = trace.getDouble(offset + 62);
+            double maxDistance = trace.getDouble(offset + 70);
+            HitboxSnapshot hitboxes = testsHitboxes ? readHitboxes(offset + 78) : null;
+
+            long start = System.nanoTime();
+            ResultType result = replay(method, advance, refineHits, world, hitboxes, x, y, z, dirX, dirY, dirZ, maxDistance);
+            replayedNanos[i] = System.nanoTime() - start;
+            if (result != recorded) {
+                mismatches++;
+            }
+        }
+        replayed = true;
+    }
+
+    /**
+     * @return Whether ray-casts made with the given method can be replayed, only the ones {@link RayCastRecorder} records can
+     */
+    static boolean isReplayable(CastMethod method) {
+        return method == CastMethod.RAY_CAST_BLOCKS || method == CastMethod.RAY_CAST_ENTITIES || method == CastMethod.RAY_CAST;
+    }
+
+    /**
+     * Same steps as the matching {@code World} method of {@link RayCastUtility}.
+     *
+     * @param advance Advance of the precision, 0 for the exact ray-casts
+     */
+    private static ResultType replay(CastMethod method, double advance, boolean refineHits, TraceBlockAccess blocks, HitboxSnapshot hitboxes,
+                                     double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance) {
+        BlockFilter filter = BlockFilter.DEFAULT;
+        if (method == CastMethod.RAY_CAST_BLOCKS) {
+            if (advance == 0) {
+                return RayTracer.traverseBlocks(blocks, x, y, z, dirX, dirY, dirZ, maxDistance, filter).getType();
+            }
+            RayHit hit = RayTracer.marchBlocks(blocks, x, y, z, dirX, dirY, dirZ, maxDistance, Double.POSITIVE_INFINITY, advance, filter);
+            return (refineHits ? RayTracer.refineBlockHit(blocks, x, y, z, dirX, dirY, dirZ, hit, advance, filter) : hit).getType();
+        }
+        if (method == CastMethod.RAY_CAST_ENTITIES) {
+            int hit = hitboxes.rayCast(x, y, z, dirX, dirY, dirZ, maxDistance, NOT_IGNORED);
+            if (hit == -1) {
+                return ResultType.EMPTY;
+            }
+            double hitDistance = hitboxes.rayIntersect(hit, x, y, z, dirX, dirY, dirZ, maxDistance);
+            RayHit blockHit = advance == 0 ? RayTracer.traverseBlocks(blocks, x, y, z, dirX, dirY, dirZ, hitDistance, filter)
+                    : RayTracer.marchBlocks(blocks, x, y, z, dirX, dirY, dirZ, maxDistance, hitDistance, advance, filter);
+            return blockHit.isEmpty() ? RayTracer.hitEntity(hitboxes, hit, x, y, z, dirX, dirY, dirZ, maxDistance).getType() : ResultType.EMPTY;
+        }
+        if (method != CastMethod.RAY_CAST) {
+            throw new IllegalArgumentException("Can't replay " + method + " ray-casts");
+        }
+        if (advance == 0) {
+            return RayTracer.trace(blocks, hitboxes, NOT_IGNORED, x, y, z, dirX, dirY, dirZ, maxDistance, filter).getType();
+        }
+        int hit = hitboxes.rayCast(x, y, z, dirX, dirY, dirZ, maxDistance, NOT_IGNORED);
+        double hitDistance = hit == -1 ? Double.POSITIVE_INFINITY : hitboxes.rayIntersect(hit, x, y, z, dirX, dirY, dirZ, maxDistance);
+        RayHit blockHit = RayTracer.marchBlocks(blocks, x, y, z, dirX, dirY, dirZ, maxDistance, hitDistance, advance, filter);
+        if (refineHits) {
+            blockHit = RayTracer.refineBlockHit(blocks, x, y, z, dirX, dirY, dirZ, blockHit, advance, filter);
+        }
+        if (!blockHit.isEmpty()) {
+            return ResultType.BLOCK;
+        }
+        return hit == -1 ? ResultType.EMPTY : RayTracer.hitEntity(hitboxes, hit, x, y, z, dirX, dirY, dirZ, maxDistance).getType();
+    }
+
+    private HitboxSnapshot readHitboxes(int offset) {
+        int size = trace.getInt(offset);
+        Entity[] entities = new Entity[size];
+        double[] minX = new double[size], minY = new double[size], minZ = new double[size];
+        double[] maxX = new double[size], maxY = new double[size], maxZ = new double[size];
+        for (int i = 0, box = offset + 4; i < size; i++, box += 48) {
+            minX[i] = trace.getDouble(box);
+            minY[i] = trace.getDouble(box + 8);
+            minZ[i] = trace.getDouble(box + 16);
+            maxX[i] = trace.getDouble(box + 24);
+            maxY[i] = trace.getDouble(box + 32);
+            maxZ[i] = trace.getDouble(box + 40);
+        }
+        return HitboxSnapshot.of(entities, minX, minY, minZ, maxX, maxY, maxZ, 0);
+    }
+
+    /**
+     * @return Number of ray-casts in the trace
+     */
+    public int getCastCount() {
+        return offsets.length;
+    }
+
+    /**
+     * @return Number of chunk sections in the trace, empty ones included
+     */
+    public int getSectionCount() {
+        return sectionCount;
+    }
+
+    /**
+     * @return Names of the worlds the ray-casts were made in
+     */
+    public List<String> getWorlds() {
+        return new ArrayList<>(worlds);
+    }
+
+    /**
+     * @return Number of ray-casts of the last run whose result type differs from the recorded one, e.g. because a block shape or a
+     * block filter other than the one the section was recorded with made the difference
+     */
+    public int getMismatches() {
+        return mismatches;
+    }
+
+    /**
+     * @param percentile Percentile to get, between 0 and 100
+     * @return Time in nanoseconds the given percentage of ray-casts of the last run finished within, 0 if nothing was run yet
+     */
+    public long getPercentileNanos(double percentile) {
+        return replayed ? percentile(replayedNanos, percentile) : 0;
+    }
+
+    /**
+     * @param percentile Percentile to get, between 0 and 100
+     * @return Time in nanoseconds the given percentage of ray-casts finished within when they were recorded
+     */
+    public long getRecordedPercentileNanos(double percentile) {
+        return percentile(recordedNanos, percentile);
+    }
+
+    /**
+     * @return Time in nanoseconds of every ray-cast of the last run, in the recorded order
+     */
+    public long[] getReplayedNanos() {
+        return replayedNanos.clone();
+    }
+
+    /**
+     * @return Time in nanoseconds every ray-cast took when it was recorded
+     */
+    public long[] getRecordedNanos() {
+        return recordedNanos.clone();
+    }
+
+    private static long percentile(long[] nanos, double percentile) {
+        if (nanos.length == 0) {
+            return 0;
+        }
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    @Override
+    public String toString() {
+        return "RayCastReplay{" +
+                "casts: " + offsets.length +
+                ", sections: " + sectionCount +
+                ", mismatches: " + mismatches +
+                ", p50Nanos: " + getPercentileNanos(50) +
+                ", p90Nanos: " + getPercentileNanos(90) +
+                ", p99Nanos: " + getPercentileNanos(99) +
+                ", p999Nanos: " + getPercentileNanos(99.9) +
+                ", maxNanos: " + getPercentileNanos(100) +
+                ", recordedP50Nanos: " + getRecordedPercentileNanos(50) +
+                ", recordedP99Nanos: " + getRecordedPercentileNanos(99) +
+                '}';
+    }
+
+    /**
+     * The recorded chunk sections as a world of solid and empty blocks. Sections that weren't recorded are empty.
+     */
+    private static class TraceBlockAccess implements BlockAccess {
+
+        private final Map<Long, long[]> sections;
+
+        private long lastKey = Long.MIN_VALUE;
+
+        private long[] lastBits;
+
+        TraceBlockAccess(Map<Long, long[]> sections) {
+            this.sections = sections;
+        }
+
+        static long key(int sectionX, int sectionY, int sectionZ) {
+            return ((long) (sectionX & 0x3FFFFF) << 42) | ((long) (sectionZ & 0x3FFFFF) << 20) | (sectionY & 0xFFFFF);
+        }
+
+        @Override
+        public Material getType(int x, int y, int z) {
+            return isHit(x, y, z, BlockFilter.DEFAULT) ? Material.STONE : Material.AIR;
+        }
+
+        /**
+         * The recorded bits already say which blocks stop a ray, the filter isn't used.
+         */
+        @Override
+        public boolean isHit(int x, int y, int z, BlockFilter filter) {
+            long[] bits = getBits(x >> 4, y >> 4, z >> 4);
+            if (bits == null) {
+                return false;
+            }
+            int bit = ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+            return (bits[bit >>> 6] & (1L << bit)) != 0;
+        }
+
+        @Override
+        public boolean isSectionEmpty(int sectionX, int sectionY, int sectionZ) {
+            return getBits(sectionX, sectionY, sectionZ) == null;
+        }
+
+        private long[] getBits(int sectionX, int sectionY, int sectionZ) {
+            long key = key(sectionX, sectionY, sectionZ);
+            if (key != lastKey) {
+                lastKey = key;
+                lastBits = sections.get(key);
+            }
+            return lastBits;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.util.Vector;
+
+import javax.annotation.Nullable;
+import java.util.Objects;
+
+/**
+ * A ray-cast to hand to a {@link RayCastScheduler}. The start and direction of the ray are fixed when the request is created, so a request
+ * from an entity ray-casts from where its eyes were then. Every setter returns the request so they can be chained:
+ * <pre>
+ *     RayCastRequest.from(player, 30).priority(10).deadline(2)
+ * </pre>
+ * Ray-casts are always exact (see {@link RayCastUtility#rayCast(World, double, double, double, double, double, double, double, Entity, RayCastOptions)}).
+ */
+public class RayCastRequest {
+
+    /**
+     * Ticks a request may wait by default before it's dropped.
+     */
+    public static final int DEFAULT_DEADLINE = 10;
+
+    private final World world;
+
+    private final double x, y, z;
+
+    private final double dirX, dirY, dirZ;
+
+    private final double maxDistance;
+
+    @Nullable
+    private Entity ignored;
+
+    private RayCastOptions options = new RayCastOptions();
+
+    private boolean blocksOnly;
+
+    private int priority;
+
+    private int deadline = DEFAULT_DEADLINE;
+
+    private RayCastRequest(World world, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance) {
+        this.world = world;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.dirX = dirX;
+        this.dirY = dirY;
+        this.dirZ = dirZ;
+        this.maxDistance = maxDistance;
+    }
+
+    /**
+     * A ray-cast from an entity's eye location in the direction it's looking. The entity itself can't be hit.
+     *
+     * @param entity      Entity to ray-cast from
+     * @param maxDistance Maximum distance to ray-cast
+     */
+    public static RayCastRequest from(LivingEntity entity, double maxDistance) {
+        Location starting = entity.getEyeLocation();
+        Vector direction = starting.getDirection();
+        return from(starting.getWorld(), starting.getX(), starting.getY(), starting.getZ(), direction.getX(), direction.getY(), direction.getZ(), maxDistance).ignored(entity);
+    }
+
+    /**
+     * A ray-cast from any point in any direction.
+     *
+     * @param world       World to ray-cast in
+     * @param x           X coordinate to ray-cast from
+     * @param y           Y coordinate to ray-cast from
+     * @param z           Z coordinate to ray-cast from
+     * @param dirX        X component of the direction to ray-cast in, does not have to be normalized
+     * @param dirY        Y component of the direction to ray-cast in
+     * @param dirZ        Z component of the direction to ray-cast in
+     * @param maxDistance Maximum distance to ray-cast
+     */
+    public static RayCastRequest from(World world, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance) {
+        return new RayCastRequest(world, x, y, z, dirX, dirY, dirZ, maxDistance);
+    }
+
+    /**
+     * @param ignored Entity the ray can't hit, usually the one ray-casting. May be null.
+     */
+    public RayCastRequest ignored(@Nullable Entity ignored) {
+        this.ignored = ignored;
+        return this;
+    }
+
+    /**
+     * @param options Extra settings for the ray-cast
+     */
+    public RayCastRequest options(RayCastOptions options) {
+        this.options = options;
+        return this;
+    }
+
+    /**
+     * @param blocksOnly If true only blocks are ray-cast and the result is a {@link BlockRayCastResult}
+     */
+    public RayCastRequest blocksOnly(boolean blocksOnly) {
+        this.blocksOnly = blocksOnly;
+        return this;
+    }
+
+    /**
+     * @param priority Requests with a higher priority are ray-cast first, the default is 0
+     */
+    public RayCastRequest priority(int priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    /**
+     * @param deadline Ticks the request may wait after the tick it was submitted in. If it hasn't been ray-cast by then it's dropped.
+     */
+    public RayCastRequest deadline(int deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
+    /**
+     * Ray-casts the request right away. Call on the main thread.
+     */
+    RayCastResult rayCast() {
+        if (blocksOnly) {
+            return RayCastUtility.rayCastBlocks(world, x, y, z, dirX, dirY, dirZ, maxDistance, options);
+        }
+        return RayCastUtility.rayCast(world, x, y, z, dirX, dirY, dirZ, maxDistance, ignored, options);
+    }
+
+    /**
+     * @return Whether both requests ray-cast the same thing and would get the same result, ignoring priority and deadline
+     */
+    boolean isSameCast(RayCastRequest other) {
+        return world == other.world && x == other.x && y == other.y && z == other.z && dirX == other.dirX && dirY == other.dirY && dirZ == other.dirZ
+                && maxDistance == other.maxDistance && ignored == other.ignored && blocksOnly == other.blocksOnly
+                && options.getBlockFilter() == other.options.getBlockFilter() && options.isBlockShapes() == other.options.isBlockShapes()
+                && options.isLiveHitboxes() == other.options.isLiveHitboxes();
+    }
+
+    /**
+     * @return Hash matching {@link #isSameCast(RayCastRequest)}
+     */
+    int castHash() {
+        return Objects.hash(world, x, y, z, dirX, dirY, dirZ, maxDistance, ignored, blocksOnly, options.getBlockFilter());
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public double getMaxDistance() {
+        return maxDistance;
+    }
+
+    @Nullable
+    public Entity getIgnored() {
+        return ignored;
+    }
+
+    public RayCastOptions getOptions() {
+        return options;
+    }
+
+    public boolean isBlocksOnly() {
+        return blocksOnly;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public int getDeadline() {
+        return deadline;
+    }
+}
@@ -0,0 +1,335 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.ServicePriority;
+import org.bukkit.scheduler.BukkitTask;
+
+import javax.annotation.Nullable;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs ray-casts for any number of plugins within one time budget per tick, so busy ticks can't be eaten up by ray-casts. Plugins
+ * {@link #submit(RayCastRequest) submit} requests instead of ray-casting right away, and at the start of every tick the scheduler ray-casts
+ * as many as fit in {@link #budget(double)}, highest {@link RayCastRequest#priority(int) priority} first. Requests that wait longer than
+ * their {@link RayCastRequest#deadline(int) deadline} are dropped.
+ * <br>
+ * Requests submitted during the same tick that ray-cast exactly the same thing (same start, direction, distance, ignored entity and
+ * options) are merged into one ray-cast, and every one of them gets its result.
+ * <pre>
+ *     // In the plugin that owns the scheduler
+ *     new RayCastScheduler().budget(2).start(plugin);
+ *     // Anywhere else
+ *     RayCastScheduler.getRegistered().submit(RayCastRequest.from(player, 30).priority(5), result -> ...);
+ * </pre>
+ * Submit requests and read results on the main thread. Futures and callbacks are completed on the main thread.
+ */
+public class RayCastScheduler {
+
+    /**
+     * Milliseconds the scheduler spends on ray-casts every tick by default.
+     */
+    public static final double DEFAULT_BUDGET_MILLIS = 2D;
+
+    /**
+     * Most requests waiting by default, more are dropped right away.
+     */
+    public static final int DEFAULT_MAX_QUEUE_SIZE = 4096;
+
+    private final PriorityQueue<Pending> queue = new PriorityQueue<>(Comparator.comparingInt((Pending pending) -> pending.priority).reversed()
+            .thenComparingLong(pending -> pending.expiresAt)
+            .thenComparingLong(pending -> pending.sequence));
+
+    /**
+     * Requests submitted this tick, by what they ray-cast. They join the queue at the start of the next tick.
+     */
+    private final Map<CastKey, Pending> incoming = new LinkedHashMap<>();
+
+    private final LongAdder submitted = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    private final LongAdder completed = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder budgetOverruns = new LongAdder();
+
+    private long budgetNanos = (long) (DEFAULT_BUDGET_MILLIS * 1_000_000);
+
+    private int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+
+    private long currentTick;
+
+    private long sequence;
+
+    private BukkitTask tickTask;
+
+    /**
+     * Gets the scheduler another plugin registered with {@link #start(Plugin)}, so every plugin on the server shares one budget.
+     *
+     * @return The registered scheduler, null if no plugin started one
+     */
+    @Nullable
+    public static RayCastScheduler getRegistered() {
+        return Bukkit.getServicesManager().load(RayCastScheduler.class);
+    }
+
+    /**
+     * @param millis Milliseconds to spend on ray-casts every tick. At least one request is ray-cast every tick no matter how small this is.
+     */
+    public RayCastScheduler budget(double millis) {
+        this.budgetNanos = (long) (millis * 1_000_000);
+        return this;
+    }
+
+    /**
+     * @param maxQueueSize Most requests waiting, requests submitted when the queue is full are dropped right away
+     */
+    public RayCastScheduler maxQueueSize(int maxQueueSize) {
+        this.maxQueueSize = maxQueueSize;
+        return this;
+    }
+
+    /**
+     * Starts ray-casting queued requests every tick and registers the scheduler as a Bukkit service so other plugins can find it with
+     * {@link #getRegistered()}. Calling this more than once does nothing.
+     *
+     * @param plugin Plugin to run the task and register the service under
+     */
+    public synchronized RayCastScheduler start(Plugin plugin) {
+        if (tickTask != null) {
+            return this;
+        }
+        tickTask = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+        Bukkit.getServicesManager().register(RayCastScheduler.class, this, plugin, ServicePriority.Normal);
+        return this;
+    }
+
+    /**
+     * Stops the scheduler, unregisters the service and drops every waiting request.
+     */
+    public synchronized void stop() {
+        if (tickTask != null) {
+            tickTask.cancel();
+            tickTask = null;
+            Bukkit.getServicesManager().unregister(this);
+        }
+        for (Pending pending : incoming.values()) {
+            drop(pending, new CancellationException("Ray-cast scheduler stopped"));
+        }
+        incoming.clear();
+        for (Pending pending : queue) {
+            drop(pending, new CancellationException("Ray-cast scheduler stopped"));
+        }
+        queue.clear();
+    }
+
+    public synchronized boolean isStarted() {
+        return tickTask != null;
+    }
+
+    /**
+     * Queues a ray-cast. It's ray-cast at the start of one of the next ticks, or dropped if it can't be before its deadline. Call on the main
+     * thread.
+     *
+     * @param request Ray-cast to run
+     * @return Future completed on the main thread with the result. If the request is dropped it completes exceptionally, with a
+     * {@link TimeoutException} if it missed its deadline or a {@link RejectedExecutionException} if the queue was full.
+     */
+    public CompletableFuture<RayCastResult> submit(RayCastRequest request) {
+        submitted.increment();
+        CastKey key = new CastKey(request);
+        Pending pending = incoming.get(key);
+        if (pending != null) {
+            coalesced.increment();
+            pending.priority = Math.max(pending.priority, request.getPriority());
+            pending.expiresAt = Math.min(pending.expiresAt, expiresAt(request));
+            return pending.future.thenApply(Function.identity());
+        }
+        pending = new Pending(request, request.getPriority(), expiresAt(request), sequence++);
+        if (queue.size() + incoming.size() >= maxQueueSize) {
+            drop(pending, new RejectedExecutionException("Ray-cast queue is full"));
+        } else {
+            incoming.put(key, pending);
+        }
+        return pending.future.thenApply(Function.identity());
+    }
+
+    /**
+     * Same as {@link #submit(RayCastRequest)}, but hands the result to a callback. Nothing is called if the request is dropped. Exceptions
+     * thrown by the ray-cast or the callback are printed, there's no future to hand them to.
+     *
+     * @param request  Ray-cast to run
+     * @param callback Code to run on the main thread with the result
+     */
+    public void submit(RayCastRequest request, Consumer<RayCastResult> callback) {
+        submit(request).whenComplete((result, failure) -> {
+            if (failure == null) {
+                try {
+                    callback.accept(result);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+                return;
+            }
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            if (!(cause instanceof CancellationException || cause instanceof RejectedExecutionException || cause instanceof TimeoutException)) {
+                cause.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Ray-casts queued requests until the budget is used up, then drops the requests that can't make their deadline next tick.
+     */
+    private void tick() {
+        long tick = ++currentTick;
+        queue.addAll(incoming.values());
+        incoming.clear();
+
+        long start = System.nanoTime();
+        boolean first = true;
+        while (!queue.isEmpty() && (first || System.nanoTime() - start < budgetNanos)) {
+            Pending pending = queue.poll();
+            if (pending.expiresAt < tick) {
+                drop(pending, new TimeoutException("Ray-cast missed its deadline"));
+                continue;
+            }
+            first = false;
+            try {
+                pending.future.complete(pending.request.rayCast());
+                completed.increment();
+            } catch (RuntimeException e) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+        if (System.nanoTime() - start > budgetNanos) {
+            budgetOverruns.increment();
+        }
+        queue.removeIf(pending -> {
+            if (pending.expiresAt > tick) {
+                return false;
+            }
+            drop(pending, new TimeoutException("Ray-cast missed its deadline"));
+            return true;
+        });
+    }
+
+    /**
+     * Requests are ray-cast the tick after they're submitted at the earliest, their deadline counts from there.
+     */
+    private long expiresAt(RayCastRequest request) {
+        return currentTick + 1 + request.getDeadline();
+    }
+
+    private void drop(Pending pending, Exception reason) {
+        dropped.increment();
+        pending.future.completeExceptionally(reason);
+    }
+
+    /**
+     * @return Number of requests waiting to be ray-cast
+     */
+    public int getQueueDepth() {
+        return queue.size() + incoming.size();
+    }
+
+    /**
+     * @return Number of requests submitted, merged ones included
+     */
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    /**
+     * @return Number of requests merged into another request from the same tick
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return Number of ray-casts run
+     */
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    /**
+     * @return Number of requests dropped because they missed their deadline, the queue was full or the scheduler stopped
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return Number of ticks the scheduler spent more than its budget
+     */
+    public long getBudgetOverruns() {
+        return budgetOverruns.sum();
+    }
+
+    /**
+     * @return Milliseconds spent on ray-casts every tick
+     */
+    public double getBudget() {
+        return budgetNanos / 1_000_000D;
+    }
+
+    private static class Pending {
+
+        private final RayCastRequest request;
+
+        private final CompletableFuture<RayCastResult> future = new CompletableFuture<>();
+
+        private final long sequence;
+
+        private int priority;
+
+        private long expiresAt;
+
+        Pending(RayCastRequest request, int priority, long expiresAt, long sequence) {
+            this.request = request;
+            this.priority = priority;
+            this.expiresAt = expiresAt;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Makes requests that ray-cast the same thing equal.
+     */
+    private static class CastKey {
+
+        private final RayCastRequest request;
+
+        private final int hash;
+
+        CastKey(RayCastRequest request) {
+            this.request = request;
+            this.hash = request.castHash();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CastKey && request.isSameCast(((CastKey) o).request);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -2,24 +2,28 @@ package com.github.yeetmanlord.raycast_util;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
-import org.bukkit.Material;
-import org.bukkit.block.Block;
-import org.bukkit.block.BlockFace;
+import org.bukkit.World;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
 import org.bukkit.util.Vector;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
 /**
  * Version independent ray-cast. Will ray-cast from an entities eye location with its pitch and yaw.
  * Will stop on hitting either an entity or a block. If it hits neither it will return an
  * {@link ResultType#EMPTY} with a null entity and block.
  * <br>
+ * Every ray-cast also has an overload that takes a {@link World}, a starting point and a direction as plain doubles, for ray-casting from
+ * anywhere. The entity overloads just call those with the entity's eye location.
+ * <br>
+ * The numbers below were timed by hand. The benchmarks module runs every ray-cast at every precision in a synthetic world, use that to get
+ * numbers you can reproduce.
+ * <br>
  * All tests were run using a 1.16.5 server with 2GB of RAM using the highest preciseness. For {@link #rayCastBlocks(LivingEntity, double, boolean, Precision)} I used
  * {@link Precision#PRECISE_BLOCK}, for {@link #rayCastEntities(LivingEntity, double, boolean, Precision)} I used {@link Precision#PRECISE_ENTITY} and for {@link #rayCast(LivingEntity, double, boolean, Precision)}
  * I used {@link Precision#PRECISE_ENTITY}
@@ -98,6 +102,18 @@ import java.util.stream.Collectors;
  */
 public class RayCastUtility {
 
+    /**
+     * Largest distance {@link #executeStepByStepAdaptive(LivingEntity, double, double, boolean, RayCastOptions, Consumer, Consumer)} moves
+     * at once, used when no entity is close to the ray.
+     */
+    public static final double ADAPTIVE_MAX_ADVANCE = 0.25D;
+
+    /**
+     * Smallest distance {@link #executeStepByStepAdaptive(LivingEntity, double, double, boolean, RayCastOptions, Consumer, Consumer)} moves
+     * at once, used right next to an entity. Same as {@link Precision#PRECISE_ENTITY}.
+     */
+    public static final double ADAPTIVE_MIN_ADVANCE = 0.01D;
+
     /**
      * Ray-casts only blocks. Doesn't affect performance very much. Using a 1.16.5 server and calling this 1000 times, there was minimal tps issue. (Using the highest preciseness)
      *
@@ -108,34 +124,55 @@ public class RayCastUtility {
      * @return A ray-casted block result or an empty block result
      */
     public static BlockRayCastResult rayCastBlocks(LivingEntity entity, double maxDistance, boolean ignoreLiquids, Precision precision) {
+        return rayCastBlocks(entity, maxDistance, precision, new RayCastOptions().ignoreLiquids(ignoreLiquids));
+    }
 
+    /**
+     * Ray-casts only blocks.
+     *
+     * @param entity      Entity to ray-cast from
+     * @param maxDistance Maximum distance to ray-cast
+     * @param precision   How many blocks (or fractions of) to advance before every next check
+     * @param options     Extra settings for the ray-cast
+     * @return A ray-casted block result or an empty block result
+     */
+    public static BlockRayCastResult rayCastBlocks(LivingEntity entity, double maxDistance, Precision precision, RayCastOptions options) {
         Location starting = entity.getEyeLocation();
         Vector direction = starting.getDirection();
-        Location check = starting.clone();
-        Location last = starting.clone();
-
-        double distanceTraveled = 0;
-        while (distanceTraveled < maxDistance) {
-            last = check.clone();
-            check = getRayTraceLocation(check, direction, precision.getAdvance());
-            if (check.getBlock().getType() != Material.AIR && !(check.getBlock().isLiquid() && ignoreLiquids)) {
-                break;
-            }
-            distanceTraveled += precision.getAdvance();
-        }
-
-        Block block = check.getBlock();
-        BlockFace face = block.getFace(last.getBlock());
+        return rayCastBlocks(starting.getWorld(), starting.getX(), starting.getY(), starting.getZ(), direction.getX(), direction.getY(), direction.getZ(), maxDistance, precision, options);
+    }
 
+    /**
+     * Ray-casts only blocks by walking every block the ray crosses exactly once (see {@link VoxelTraversal}). This is never less accurate than
+     * {@link Precision#PRECISE_BLOCK} while only looking up one block per block crossed, and the result also contains the exact point the ray
+     * entered the block at.
+     *
+     * @param entity        Entity to ray-cast from
+     * @param maxDistance   Maximum distance to ray-cast
+     * @param ignoreLiquids Whether to factor in liquids. If true, will not stop ray-casting at a liquid.
+     * @return A ray-casted block result or an empty block result
+     */
+    public static BlockRayCastResult rayCastBlocks(LivingEntity entity, double maxDistance, boolean ignoreLiquids) {
+        return rayCastBlocks(entity, maxDistance, new RayCastOptions().ignoreLiquids(ignoreLiquids));
+    }
 
-        if (block.getType() == Material.AIR || (ignoreLiquids && block.isLiquid())) {
-            return new BlockRayCastResult(ResultType.EMPTY, block, face);
-        }
-        return new BlockRayCastResult(ResultType.BLOCK, block, face);
+    /**
+     * Ray-casts only blocks by walking every block the ray crosses exactly once (see {@link VoxelTraversal}).
+     *
+     * @param entity      Entity to ray-cast from
+     * @param maxDistance Maximum distance to ray-cast
+     * @param options     Extra settings for the ray-cast
+     * @return A ray-casted block result or an empty block result
+     */
+    public static BlockRayCastResult rayCastBlocks(LivingEntity entity, double maxDistance, RayCastOptions options) {
+        Location starting = entity.getEyeLocation();
+        Vector direction = starting.getDirection();
+        return rayCastBlocks(starting.getWorld(), starting.getX(), starting.getY(), starting.getZ(), direction.getX(), direction.getY(), direction.getZ(), maxDistance, options);
     }
 
     /**
-     * Ray-casts only entities. Affect performance quite a bit. Using a 1.16.5 server and calling this 1000 time, it took quite a bit of time. (Using the highest preciseness)
+     * Ray-casts only entities. Entity hitboxes are intersected with the ray directly (see {@link BoundingBox#rayIntersect(double, double, double, double, double, double, double)}),
+     * so the precision only decides how often blocks in front of the entity are checked.
      *
      * @param entity        Entity to ray-cast from
      * @param maxDistance   Maximum distance to ray-cast
@@ -144,54 +181,55 @@ public class RayCastUtility {
      * @return A ray-casted entity result or an empty entity result
      */
     public static EntityRayCastResult rayCastEntities(LivingEntity entity, double maxDistance, boolean ignoreLiquids, Precision precision) {
+        return rayCastEntities(entity, maxDistance, precision, new RayCastOptions().ignoreLiquids(ignoreLiquids));
+    }
+
+    /**
+     * Ray-casts only entities. Entity hitboxes are intersected with the ray directly, so the precision only decides how often blocks in front
+     * of the entity are checked.
+     *
+     * @param entity      Entity to ray-cast from
+     * @param maxDistance Maximum distance to ray-cast
+     * @param precision   How many blocks (or fractions of) to advance before every next check
+     * @param options     Extra settings for the ray-cast
+     * @return A ray-casted entity result or an empty entity result
+     */
+    public static EntityRayCastResult rayCastEntities(LivingEntity entity, double maxDistance, Precision precision, RayCastOptions options) {
         Location starting = entity.getEyeLocation();
         Vector direction = starting.getDirection();
-        Location check = starting.clone();
-        List<Entity> entityList = new ArrayList<>(entity.getNearbyEntities(maxDistance + 0.5, maxDistance + 0.5, maxDistance + 0.5)).stream().filter(e -> e != entity).collect(Collectors.toList());
-        Entity hitResult = null;
-        double distanceTraveled = 0;
-        while (distanceTraveled < maxDistance) {
-            check = getRayTraceLocation(check, direction, precision.getAdvance());
-            if (check.getBlock().getType() != Material.AIR && !(check.getBlock().isLiquid() && ignoreLiquids)) {
-                break;
-            }
-            List<Entity> results = new ArrayList<>();
-            for (Entity e : entityList) {
-                try {
-                    Object nmsEntity = e.getClass().getMethod("getHandle").invoke(e);
-                    Object entityBoundingBox = nmsEntity.getClass().getMethod("getBoundingBox").invoke(nmsEntity);
-                    BoundingBox entBB = new BoundingBox(entityBoundingBox);
-                    if (entBB.isWithinBoundingBox(check)) {
-                        results.add(e);
-                    }
-                } catch (Exception ex) {
-                    ex.printStackTrace();
-                }
-            }
-            if (results.size() > 0) {
-                Entity closest = results.get(0);
-                for (int i = 1; i < results.size(); i++) {
-                    if (results.get(i).getLocation().distanceSquared(check) < closest.getLocation().distanceSquared(check)) {
-                        Entity e = results.get(i);
-                        if (e != null) {
-                            closest = results.get(i);
-                        }
-                    }
-                }
-                hitResult = closest;
-                break;
-            }
-            distanceTraveled += precision.getAdvance();
-        }
+        return rayCastEntities(starting.getWorld(), starting.getX(), starting.getY(), starting.getZ(), direction.getX(), direction.getY(), direction.getZ(), maxDistance, precision, entity, options);
+    }
 
-        if (hitResult == null) {
-            return new EntityRayCastResult(ResultType.EMPTY, null);
-        }
-        return new EntityRayCastResult(ResultType.ENTITY, hitResult);
+    /**
+     * Ray-casts only entities without any stepping. Entity hitboxes are intersected with the ray directly and blocks in front of the hit
+     * entity are found with a {@link VoxelTraversal}.
+     *
+     * @param entity        Entity to ray-cast from
+     * @param maxDistance   Maximum distance to ray-cast
+     * @param ignoreLiquids Whether to factor in liquids. If true, will not stop ray-casting at a liquid.
+     * @return A ray-casted entity result or an empty entity result
+     */
+    public static EntityRayCastResult rayCastEntities(LivingEntity entity, double maxDistance, boolean ignoreLiquids) {
+        return rayCastEntities(entity, maxDistance, new RayCastOptions().ignoreLiquids(ignoreLiquids));
     }
 
     /**
-     * Ray-casts entities and blocks. Affect performance quite a bit. Using a 1.16.5 server and calling this 1000 times, it took quite a bit of time. (Using the highest preciseness)
+     * Ray-casts only entities without any stepping. Entity hitboxes are intersected with the ray directly and blocks in front of the hit
+     * entity are found with a {@link VoxelTraversal}.
+     *
+     * @param entity      Entity to ray-cast from
+     * @param maxDistance Maximum distance to ray-cast
+     * @param options     Extra settings for the ray-cast
+     * @return A ray-casted entity result or an empty entity result
+     */
+    public static EntityRayCastResult rayCastEntities(LivingEntity entity, double maxDistance, RayCastOptions options) {
+        Location starting = entity.getEyeLocation();
+        Vector direction = starting.getDirection();
+        return rayCastEntities(starting.getWorld(), starting.getX(), starting.getY(), starting.getZ(), direction.getX(), direction.getY(), direction.getZ(), maxDistance, entity, options);
+    }
+
+    /**
+     * Ray-casts entities and blocks. Entity hitboxes are intersected with the ray directly, the precision decides how often blocks are checked.
      *
      * @param entity        Entity to ray-cast from
      * @param maxDistance   Maximum distance to ray-cast
@@ -200,56 +238,50 @@ public class RayCastUtility {
      * @return A ray-cast result or an empty result
      */
     public static RayCastResult rayCast(LivingEntity entity, double maxDistance, boolean ignoreLiquids, Precision precision) {
+        return rayCast(entity, maxDistance, precision, new RayCastOptions().ignoreLiquids(ignoreLiquids));
+    }
+
+    /**
+     * Ray-casts entities and blocks. Entity hitboxes are intersected with the ray directly, the precision decides how often blocks are checked.
+     *
+     * @param entity      Entity to ray-cast from
+     * @param maxDistance Maximum distance to ray-cast
+     * @param precision   How many blocks (or fractions of) to advance before every next check
+     * @param options     Extra settings for the ray-cast
+     * @return A ray-cast result or an empty result
+     */
+    public static RayCastResult rayCast(LivingEntity entity, double maxDistance, Precision precision, RayCastOptions options) {
         Location starting = entity.getEyeLocation();
         Vector direction = starting.getDirection();
-        Location check = starting.clone();
-        Location last = starting.clone();
-        List<Entity> entityList = new ArrayList<>(entity.getNearbyEntities(maxDistance + 0.5, maxDistance + 0.5, maxDistance + 0.5)).stream().filter(e -> e != entity).collect(Collectors.toList());
-        Entity hitResult = null;
-        double distanceTraveled = 0;
-        Block blockResult = null;
-        while (distanceTraveled < maxDistance) {
-            last = check.clone();
-            check = getRayTraceLocation(check, direction, precision.getAdvance());
-            if (check.getBlock().getType() != Material.AIR && !(check.getBlock().isLiquid() && ignoreLiquids)) {
-                blockResult = check.getBlock();
-                break;
-            }
-            List<Entity> results = new ArrayList<>();
-            for (Entity e : entityList) {
-                try {
-                    BoundingBox entBB = new BoundingBox(e);
-                    if (entBB.isWithinBoundingBox(check)) {
-                        results.add(e);
-                    }
-                } catch (Exception ex) {
-                    ex.printStackTrace();
-                }
-            }
-            if (results.size() > 0) {
-                Entity closest = results.get(0);
-                for (int i = 1; i < results.size(); i++) {
-                    if (results.get(i).getLocation().distanceSquared(check) < closest.getLocation().distanceSquared(check)) {
-                        Entity e = results.get(i);
-                        if (e != null) {
-                            closest = results.get(i);
-                        }
-                    }
-                }
-                hitResult = closest;
-                break;
-            }
-            distanceTraveled += precision.getAdvance();
-        }
+        return rayCast(starting.getWorld(), starting.getX(), starting.getY(), starting.getZ(), direction.getX(), direction.getY(), direction.getZ(), maxDistance, precision, entity, options);
+    }
 
-        if (hitResult == null) {
-            if (blockResult == null) {
-                return new RayCastResult(ResultType.EMPTY, null);
-            } else {
-                return new BlockRayCastResult(ResultType.BLOCK, blockResult, blockResult.getFace(last.getBlock()));
-            }
-        }
-        return new EntityRayCastResult(ResultType.ENTITY, hitResult);
+    /**
+     * Ray-casts entities and blocks without any stepping. Entity hitboxes are intersected with the ray directly and blocks are found with a
+     * {@link VoxelTraversal}, so the result is exact for both.
+     *
+     * @param entity        Entity to ray-cast from
+     * @param maxDistance   Maximum distance to ray-cast
+     * @param ignoreLiquids Whether to factor in liquids. If true, will not stop ray-casting at a liquid.
+     * @return A ray-cast result or an empty result
+     */
+    public static RayCastResult rayCast(LivingEntity entity, double maxDistance, boolean ignoreLiquids) {
+        return rayCast(entity, maxDistance, new RayCastOptions().ignoreLiquids(ignoreLiquids));
+    }
+
+    /**
+     * Ray-casts entities and blocks without any stepping. Entity hitboxes are intersected with the ray directly and blocks are found with a
+     * {@link VoxelTraversal}, so the result is exact for both.
+     *
+     * @param entity      Entity to ray-cast from
+     * @param maxDistance Maximum distance to ray-cast
+     * @param options     Extra settings for the ray-cast
+     * @return A ray-cast result or an empty result
+     */
+    public static RayCastResult rayCast(LivingEntity entity, double maxDistance, RayCastOptions options) {
+        Location starting = entity.getEyeLocation();
+        Vector direction = starting.getDirection();
+        return rayCast(starting.getWorld(), starting.getX(), starting.getY(), starting.getZ(), direction.getX(), direction.getY(), direction.getZ(), maxDistance, entity, options);
     }
 
     /**
@@ -264,64 +296,24 @@ public class RayCastUtility {
      * @param onRayCastFinish Code to execute when ray-casting is finished
      */
     public static void executeStepByStep(LivingEntity entity, double maxDistance, boolean ignoreLiquids, double stepSize, boolean ignoreEntities, Consumer<Location> onStep, @Nullable Consumer<RayCastResult> onRayCastFinish) {
+        executeStepByStep(entity, maxDistance, stepSize, ignoreEntities, new RayCastOptions().ignoreLiquids(ignoreLiquids), onStep, onRayCastFinish);
+    }
+
+    /**
+     * Ray-casts from entities eye location and executes specified code at each step.
+     *
+     * @param entity          Entity to ray-cast from
+     * @param maxDistance     Maximum distance to ray-cast
+     * @param stepSize        How many blocks to advance forward before next check. If you specified 0.5D, it will check every half block.
+     * @param ignoreEntities  Whether to stop the ray-casting once it hits an entity
+     * @param options         Extra settings for the ray-cast
+     * @param onStep          Code to execute at each step
+     * @param onRayCastFinish Code to execute when ray-casting is finished
+     */
+    public static void executeStepByStep(LivingEntity entity, double maxDistance, double stepSize, boolean ignoreEntities, RayCastOptions options, Consumer<Location> onStep, @Nullable Consumer<RayCastResult> onRayCastFinish) {
         Location starting = entity.getEyeLocation();
         Vector direction = starting.getDirection();
-        Location check = starting.clone();
-        Location last;
-        double distanceTraveled = 0;
-        if (ignoreEntities) {
-            while (distanceTraveled < maxDistance) {
-                last = check.clone();
-                check = getRayTraceLocation(check, direction, stepSize);
-                onStep.accept(check);
-                if (check.getBlock().getType() != Material.AIR && !(check.getBlock().isLiquid() && ignoreLiquids)) {
-                    if (onRayCastFinish != null) {
-                        onRayCastFinish.accept(new BlockRayCastResult(ResultType.BLOCK, check.getBlock(), check.getBlock().getFace(last.getBlock())));
-                    }
-                    break;
-                }
-                distanceTraveled += stepSize;
-            }
-        } else {
-            List<Entity> entityList = new ArrayList<>(entity.getNearbyEntities(maxDistance + 0.5, maxDistance + 0.5, maxDistance + 0.5)).stream().filter(e -> e != entity).collect(Collectors.toList());
-            while (distanceTraveled < maxDistance) {
-                last = check.clone();
-                check = getRayTraceLocation(check, direction, stepSize);
-                onStep.accept(check);
-                if (check.getBlock().getType() != Material.AIR && !(check.getBlock().isLiquid() && ignoreLiquids)) {
-                    if (onRayCastFinish != null) {
-                        onRayCastFinish.accept(new BlockRayCastResult(ResultType.BLOCK, check.getBlock(), check.getBlock().getFace(last.getBlock())));
-                    }
-                    break;
-                }
-                List<Entity> results = new ArrayList<>();
-                for (Entity e : entityList) {
-                    try {
-                        Object nmsEntity = e.getClass().getMethod("getHandle").invoke(e);
-                        Object entityBoundingBox = nmsEntity.getClass().getMethod("getBoundingBox").invoke(nmsEntity);
-                        BoundingBox entBB = new BoundingBox(entityBoundingBox);
-                        if (entBB.isWithinBoundingBox(check)) {
-                            results.add(e);
-                        }
-                    } catch (Exception ex) {
-                        ex.printStackTrace();
-                    }
-                }
-                if (results.size() > 0) {
-                    if (onRayCastFinish != null) {
-                        Entity closest = results.get(0);
-                        for (int i = 1; i < results.size(); i++) {
-                            if (results.get(i).getLocation().distanceSquared(check) < closest.getLocation().distanceSquared(check)) {
-                                closest = results.get(i);
-                            }
-                        }
-                        onRayCastFinish.accept(new EntityRayCastResult(ResultType.ENTITY, closest));
-                    }
-                    break;
-                }
-                distanceTraveled += stepSize;
-            }
-        }
+        executeStepByStep(starting.getWorld(), starting.getX(), starting.getY(), starting.getZ(), direction.getX(), direction.getY(), direction.getZ(), maxDistance, stepSize, ignoreEntities, entity, options, onStep, onRayCastFinish);
     }
 
     /**
@@ -338,73 +330,641 @@ public class RayCastUtility {
      * @param onRayCastFinish Code to execute when ray-casting is finished
      */
     public static void executeStepByStepWithPrecision(LivingEntity entity, double maxDistance, boolean ignoreLiquids, double stepSize, boolean ignoreEntities, Precision precision, Consumer<Location> onStep, @Nullable Consumer<RayCastResult> onRayCastFinish) {
+        executeStepByStepWithPrecision(entity, maxDistance, stepSize, ignoreEntities, precision, new RayCastOptions().ignoreLiquids(ignoreLiquids), onStep, onRayCastFinish);
+    }
+
+    /**
+     * Ray-casts from entities eye location and executes specified code at each step. The stepSize and precision are different. stepSize determines when code will run while
+     * precision determines how often a result is checked for (your ray-cast hit something)
+     *
+     * @param entity          Entity to ray-cast from
+     * @param maxDistance     Maximum distance to ray-cast
+     * @param stepSize        How many blocks that have to pass before the next onStep is called. If you specified 0.5D, it will run the onStep every half block.
+     * @param ignoreEntities  Whether to stop the ray-casting once it hits an entity
+     * @param precision       How many blocks (or fractions of) to advance before every next check
+     * @param options         Extra settings for the ray-cast
+     * @param onStep          Code to execute at each step
+     * @param onRayCastFinish Code to execute when ray-casting is finished
+     */
+    public static void executeStepByStepWithPrecision(LivingEntity entity, double maxDistance, double stepSize, boolean ignoreEntities, Precision precision, RayCastOptions options, Consumer<Location> onStep, @Nullable Consumer<RayCastResult> onRayCastFinish) {
         Location starting = entity.getEyeLocation();
         Vector direction = starting.getDirection();
-        Location check = starting.clone();
-        Location last;
-        double distanceTraveled = 0;
-        double distSinceLastStep = 0D;
-        if (ignoreEntities) {
-            while (distanceTraveled < maxDistance) {
-                last = check.clone();
-                check = getRayTraceLocation(check, direction, precision.advance);
-                if (distSinceLastStep >= stepSize) {
-                    onStep.accept(check);
-                    distSinceLastStep = 0D;
-                }
-                if (check.getBlock().getType() != Material.AIR && !(check.getBlock().isLiquid() && ignoreLiquids)) {
-                    if (onRayCastFinish != null) {
-                        onRayCastFinish.accept(new BlockRayCastResult(ResultType.BLOCK, check.getBlock(), check.getBlock().getFace(last.getBlock())));
-                    }
-                    break;
-                }
-                distanceTraveled += precision.advance;
-                distSinceLastStep += precision.advance;
+        executeStepByStepWithPrecision(starting.getWorld(), starting.getX(), starting.getY(), starting.getZ(), direction.getX(), direction.getY(), direction.getZ(), maxDistance, stepSize, ignoreEntities, precision, entity, options, onStep, onRayCastFinish);
+    }
+
+    /**
+     * Ray-casts from entities eye location and executes specified code at each step, picking how far to move before every check on its own.
+     * Far from every entity it moves {@link #ADAPTIVE_MAX_ADVANCE} blocks at a time (as much as {@link Precision#IMPRECISE_ENTITY}), and it
+     * slows down as the ray gets close to an entity's hitbox until it moves {@link #ADAPTIVE_MIN_ADVANCE} blocks at a time (as little as
+     * {@link Precision#PRECISE_ENTITY}). So entities are found as reliably as with the most precise setting while most of the ray is checked
+     * as rarely as with the least precise one.
+     *
+     * @param entity          Entity to ray-cast from
+     * @param maxDistance     Maximum distance to ray-cast
+     * @param stepSize        How many blocks that have to pass before the next onStep is called. If you specified 0.5D, it will run the onStep every half block.
+     * @param ignoreEntities  Whether to stop the ray-casting once it hits an entity
+     * @param options         Extra settings for the ray-cast
+     * @param onStep          Code to execute at each step
+     * @param onRayCastFinish Code to execute when ray-casting is finished
+     */
+    public static void executeStepByStepAdaptive(LivingEntity entity, double maxDistance, double stepSize, boolean ignoreEntities, RayCastOptions options, Consumer<Location> onStep, @Nullable Consumer<RayCastResult> onRayCastFinish) {
+        Location starting = entity.getEyeLocation();
+        Vector direction = starting.getDirection();
+        executeStepByStepAdaptive(starting.getWorld(), starting.getX(), starting.getY(), starting.getZ(), direction.getX(), direction.getY(), direction.getZ(), maxDistance, stepSize, ignoreEntities, entity, options, onStep, onRayCastFinish);
+    }
+
+    /**
+     * Ray-casts only blocks from any point in any direction. Every check only works with primitives, the only objects created are the
+     * blocks looked up and the result. With {@link RayCastOptions#refineHits(boolean)} the hit location is exact too.
+     *
+     * @param world       World to ray-cast in
+     * @param x           X coordinate to ray-cast from
+     * @param y           Y coordinate to ray-cast from
+     * @param z           Z coordinate to ray-cast from
+     * @param dirX        X component of the direction to ray-cast in, does not have to be normalized
+     * @param dirY        Y component of the direction to ray-cast in
+     * @param dirZ        Z component of the direction to ray-cast in
+     * @param maxDistance Maximum distance to ray-cast
+     * @param precision   How many blocks (or fractions of) to advance before every next check
+     * @param options     Extra settings for the ray-cast
+     * @return A ray-casted block result or an empty block result
+     */
+    public static BlockRayCastResult rayCastBlocks(World world, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, Precision precision, RayCastOptions options) {
+        long start = RayCastMetrics.begin();
+        long traced = RayCastRecorder.begin();
+        double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+        dirX /= length;
+        dirY /= length;
+        dirZ /= length;
+
+        BlockAccess blocks = BlockAccess.of(world);
+        RayHit hit = RayTracer.marchBlocks(blocks, x, y, z, dirX, dirY, dirZ, maxDistance, Double.POSITIVE_INFINITY, precision.getAdvance(), options.getBlockFilter());
+        if (options.isRefineHits()) {
+            hit = RayTracer.refineBlockHit(blocks, x, y, z, dirX, dirY, dirZ, hit, precision.getAdvance(), options.getBlockFilter());
+        }
+        BlockRayCastResult result = hit.toBlockResult(world);
+        RayCastMetrics.end(CastMethod.RAY_CAST_BLOCKS, precision, start, result.getType());
+        RayCastRecorder.record(CastMethod.RAY_CAST_BLOCKS, precision, traced, world, x, y, z, dirX, dirY, dirZ, maxDistance, null, null, options, result.getType());
+        return result;
+    }
+
+    /**
+     * Ray-casts only blocks from any point in any direction, walking every block the ray crosses exactly once (see {@link VoxelTraversal}).
+     *
+     * @param world       World to ray-cast in
+     * @param x           X coordinate to ray-cast from
+     * @param y           Y coordinate to ray-cast from
+     * @param z           Z coordinate to ray-cast from
+     * @param dirX        X component of the direction to ray-cast in, does not have to be normalized
+     * @param dirY        Y component of the direction to ray-cast in
+     * @param dirZ        Z component of the direction to ray-cast in
+     * @param maxDistance Maximum distance to ray-cast
+     * @param options     Extra settings for the ray-cast
+     * @return A ray-casted block result or an empty block result
+     */
+    public static BlockRayCastResult rayCastBlocks(World world, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, RayCastOptions options) {
+        long start = RayCastMetrics.begin();
+        long traced = RayCastRecorder.begin();
+        BlockRayCastResult result = RayTracer.traverseBlocks(BlockAccess.of(world, options.isBlockShapes()), x, y, z, dirX, dirY, dirZ, maxDistance, options.getBlockFilter()).toBlockResult(world);
+        RayCastMetrics.end(CastMethod.RAY_CAST_BLOCKS, null, start, result.getType());
+        RayCastRecorder.record(CastMethod.RAY_CAST_BLOCKS, null, traced, world, x, y, z, dirX, dirY, dirZ, maxDistance, null, null, options, result.getType());
+        return result;
+    }
+
+    /**
+     * Ray-casts only entities from any point in any direction. Entity hitboxes are intersected with the ray directly, the precision only
+     * decides how often blocks in front of the entity are checked.
+     *
+     * @param world       World to ray-cast in
+     * @param x           X coordinate to ray-cast from
+     * @param y           Y coordinate to ray-cast from
+     * @param z           Z coordinate to ray-cast from
+     * @param dirX        X component of the direction to ray-cast in, does not have to be normalized
+     * @param dirY        Y component of the direction to ray-cast in
+     * @param dirZ        Z component of the direction to ray-cast in
+     * @param maxDistance Maximum distance to ray-cast
+     * @param precision   How many blocks (or fractions of) to advance before every next check
+     * @param ignored     Entity the ray can't hit, usually the one ray-casting. May be null.
+     * @param options     Extra settings for the ray-cast
+     * @return A ray-casted entity result or an empty entity result
+     */
+    public static EntityRayCastResult rayCastEntities(World world, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, Precision precision, @Nullable Entity ignored, RayCastOptions options) {
+        long start = RayCastMetrics.begin();
+        long traced = RayCastRecorder.begin();
+        double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+        dirX /= length;
+        dirY /= length;
+        dirZ /= length;
+
+        HitboxSnapshot hitboxes = getHitboxes(world, x, y, z, dirX, dirY, dirZ, maxDistance, options);
+        int hit = hitboxes.rayCast(x, y, z, dirX, dirY, dirZ, maxDistance, ignored);
+        EntityRayCastResult result = new EntityRayCastResult(ResultType.EMPTY, null);
+        if (hit != -1) {
+            double hitDistance = hitboxes.rayIntersect(hit, x, y, z, dirX, dirY, dirZ, maxDistance);
+            // A block in front of the entity hides it
+            if (RayTracer.marchBlocks(BlockAccess.of(world), x, y, z, dirX, dirY, dirZ, maxDistance, hitDistance, precision.getAdvance(), options.getBlockFilter()).isEmpty()) {
+                result = RayTracer.hitEntity(hitboxes, hit, x, y, z, dirX, dirY, dirZ, maxDistance).toEntityResult(world);
             }
-        } else {
-            List<Entity> entityList = new ArrayList<>(entity.getNearbyEntities(maxDistance + 0.5, maxDistance + 0.5, maxDistance + 0.5)).stream().filter(e -> e != entity).collect(Collectors.toList());
-            while (distanceTraveled < maxDistance) {
-                last = check.clone();
-                check = getRayTraceLocation(check, direction, precision.advance);
-                if (distSinceLastStep >= stepSize) {
-                    onStep.accept(check);
-                    distSinceLastStep = 0D;
-                }
-                if (check.getBlock().getType() != Material.AIR && !(check.getBlock().isLiquid() && ignoreLiquids)) {
-                    if (onRayCastFinish != null) {
-                        onRayCastFinish.accept(new BlockRayCastResult(ResultType.BLOCK, check.getBlock(), check.getBlock().getFace(last.getBlock())));
-                    }
-                    break;
-                }
-                List<Entity> results = new ArrayList<>();
-                for (Entity e : entityList) {
-                    try {
-                        Object nmsEntity = e.getClass().getMethod("getHandle").invoke(e);
-                        Object entityBoundingBox = nmsEntity.getClass().getMethod("getBoundingBox").invoke(nmsEntity);
-                        BoundingBox entBB = new BoundingBox(entityBoundingBox);
-                        if (entBB.isWithinBoundingBox(check)) {
-                            results.add(e);
-                        }
-                    } catch (Exception ex) {
-                        ex.printStackTrace();
-                    }
-                }
-                if (results.size() > 0) {
-                    if (onRayCastFinish != null) {
-                        Entity closest = results.get(0);
-                        for (int i = 1; i < results.size(); i++) {
-                            if (results.get(i).getLocation().distanceSquared(check) < closest.getLocation().distanceSquared(check)) {
-                                closest = results.get(i);
-                            }
-                        }
-                        onRayCastFinish.accept(new EntityRayCastResult(ResultType.ENTITY, closest));
-                    }
-                    break;
-                }
-                distanceTraveled += precision.advance;
-                distSinceLastStep += precision.advance;
+        }
+        RayCastMetrics.end(CastMethod.RAY_CAST_ENTITIES, precision, start, result.getType());
+        RayCastRecorder.record(CastMethod.RAY_CAST_ENTITIES, precision, traced, world, x, y, z, dirX, dirY, dirZ, maxDistance, hitboxes, ignored, options, result.getType());
+        return result;
+    }
+
+    /**
+     * Ray-casts only entities from any point in any direction without any stepping. Entity hitboxes are intersected with the ray directly
+     * and blocks in front of the hit entity are found with a {@link VoxelTraversal}.
+     *
+     * @param world       World to ray-cast in
+     * @param x           X coordinate to ray-cast from
+     * @param y           Y coordinate to ray-cast from
+     * @param z           Z coordinate to ray-cast from
+     * @param dirX        X component of the direction to ray-cast in, does not have to be normalized
+     * @param dirY        Y component of the direction to ray-cast in
+     * @param dirZ        Z component of the direction to ray-cast in
+     * @param maxDistance Maximum distance to ray-cast
+     * @param ignored     Entity the ray can't hit, usually the one ray-casting. May be null.
+     * @param options     Extra settings for the ray-cast
+     * @return A ray-casted entity result or an empty entity result
+     */
+    public static EntityRayCastResult rayCastEntities(World world, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, @Nullable Entity ignored, RayCastOptions options) {
+        long start = RayCastMetrics.begin();
+        long traced = RayCastRecorder.begin();
+        double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+        dirX /= length;
+        dirY /= length;
+        dirZ /= length;
+
+        HitboxSnapshot hitboxes = getHitboxes(world, x, y, z, dirX, dirY, dirZ, maxDistance, options);
+        int hit = hitboxes.rayCast(x, y, z, dirX, dirY, dirZ, maxDistance, ignored);
+        EntityRayCastResult result = new EntityRayCastResult(ResultType.EMPTY, null);
+        if (hit != -1) {
+            double hitDistance = hitboxes.rayIntersect(hit, x, y, z, dirX, dirY, dirZ, maxDistance);
+            // A block in front of the entity hides it
+            if (RayTracer.traverseBlocks(BlockAccess.of(world, options.isBlockShapes()), x, y, z, dirX, dirY, dirZ, hitDistance, options.getBlockFilter()).isEmpty()) {
+                result = RayTracer.hitEntity(hitboxes, hit, x, y, z, dirX, dirY, dirZ, maxDistance).toEntityResult(world);
             }
         }
+        RayCastMetrics.end(CastMethod.RAY_CAST_ENTITIES, null, start, result.getType());
+        RayCastRecorder.record(CastMethod.RAY_CAST_ENTITIES, null, traced, world, x, y, z, dirX, dirY, dirZ, maxDistance, hitboxes, ignored, options, result.getType());
+        return result;
+    }
+
+    /**
+     * Ray-casts entities and blocks from any point in any direction. Entity hitboxes are intersected with the ray directly, the precision
+     * decides how often blocks are checked. With {@link RayCastOptions#refineHits(boolean)} block hit locations are exact too.
+     *
+     * @param world       World to ray-cast in
+     * @param x           X coordinate to ray-cast from
+     * @param y           Y coordinate to ray-cast from
+     * @param z           Z coordinate to ray-cast from
+     * @param dirX        X component of the direction to ray-cast in, does not have to be normalized
+     * @param dirY        Y component of the direction to ray-cast in
+     * @param dirZ        Z component of the direction to ray-cast in
+     * @param maxDistance Maximum distance to ray-cast
+     * @param precision   How many blocks (or fractions of) to advance before every next check
+     * @param ignored     Entity the ray can't hit, usually the one ray-casting. May be null.
+     * @param options     Extra settings for the ray-cast
+     * @return A ray-cast result or an empty result
+     */
+    public static RayCastResult rayCast(World world, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, Precision precision, @Nullable Entity ignored, RayCastOptions options) {
+        long start = RayCastMetrics.begin();
+        long traced = RayCastRecorder.begin();
+        double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+        dirX /= length;
+        dirY /= length;
+        dirZ /= length;
+
+        HitboxSnapshot hitboxes = getHitboxes(world, x, y, z, dirX, dirY, dirZ, maxDistance, options);
+        int hit = hitboxes.rayCast(x, y, z, dirX, dirY, dirZ, maxDistance, ignored);
+        double hitDistance = hit == -1 ? Double.POSITIVE_INFINITY : hitboxes.rayIntersect(hit, x, y, z, dirX, dirY, dirZ, maxDistance);
+        BlockAccess blocks = BlockAccess.of(world);
+        RayHit blockHit = RayTracer.marchBlocks(blocks, x, y, z, dirX, dirY, dirZ, maxDistance, hitDistance, precision.getAdvance(), options.getBlockFilter());
+        if (options.isRefineHits()) {
+            blockHit = RayTracer.refineBlockHit(blocks, x, y, z, dirX, dirY, dirZ, blockHit, precision.getAdvance(), options.getBlockFilter());
+        }
+        RayCastResult result;
+        if (!blockHit.isEmpty()) {
+            result = blockHit.toBlockResult(world);
+        } else if (hit == -1) {
+            result = new RayCastResult(ResultType.EMPTY, null);
+        } else {
+            result = RayTracer.hitEntity(hitboxes, hit, x, y, z, dirX, dirY, dirZ, maxDistance).toEntityResult(world);
+        }
+        RayCastMetrics.end(CastMethod.RAY_CAST, precision, start, result.getType());
+        RayCastRecorder.record(CastMethod.RAY_CAST, precision, traced, world, x, y, z, dirX, dirY, dirZ, maxDistance, hitboxes, ignored, options, result.getType());
+        return result;
+    }
+
+    /**
+     * Ray-casts entities and blocks from any point in any direction without any stepping. Entity hitboxes are intersected with the ray
+     * directly and blocks are found with a {@link VoxelTraversal}, so the result is exact for both.
+     *
+     * @param world       World to ray-cast in
+     * @param x           X coordinate to ray-cast from
+     * @param y           Y coordinate to ray-cast from
+     * @param z           Z coordinate to ray-cast from
+     * @param dirX        X component of the direction to ray-cast in, does not have to be normalized
+     * @param dirY        Y component of the direction to ray-cast in
+     * @param dirZ        Z component of the direction to ray-cast in
+     * @param maxDistance Maximum distance to ray-cast
+     * @param ignored     Entity the ray can't hit, usually the one ray-casting. May be null.
+     * @param options     Extra settings for the ray-cast
+     * @return A ray-cast result or an empty result
+     */
+    public static RayCastResult rayCast(World world, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, @Nullable Entity ignored, RayCastOptions options) {
+        long start = RayCastMetrics.begin();
+        long traced = RayCastRecorder.begin();
+        double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+        dirX /= length;
+        dirY /= length;
+        dirZ /= length;
+
+        HitboxSnapshot hitboxes = getHitboxes(world, x, y, z, dirX, dirY, dirZ, maxDistance, options);
+        RayCastResult result = RayTracer.trace(BlockAccess.of(world, options.isBlockShapes()), hitboxes, ignored, x, y, z, dirX, dirY, dirZ, maxDistance, options.getBlockFilter()).toResult(world);
+        RayCastMetrics.end(CastMethod.RAY_CAST, null, start, result.getType());
+        RayCastRecorder.record(CastMethod.RAY_CAST, null, traced, world, x, y, z, dirX, dirY, dirZ, maxDistance, hitboxes, ignored, options, result.getType());
+        return result;
+    }
+
+    /**
+     * Ray-casts from entities eye location against entities where they were some time ago, see
+     * {@link #rayCastRewound(World, double, double, double, double, double, double, double, double, Entity, RayCastOptions)}.
+     *
+     * @param entity       Entity to ray-cast from
+     * @param maxDistance  Maximum distance to ray-cast
+     * @param rewindMillis How many milliseconds to go back
+     * @param options      Extra settings for the ray-cast
+     * @return A ray-cast result or an empty result
+     */
+    public static RayCastResult rayCastRewound(LivingEntity entity, double maxDistance, double rewindMillis, RayCastOptions options) {
+        Location starting = entity.getEyeLocation();
+        Vector direction = starting.getDirection();
+        return rayCastRewound(starting.getWorld(), starting.getX(), starting.getY(), starting.getZ(), direction.getX(), direction.getY(), direction.getZ(), maxDistance, rewindMillis, entity, options);
+    }
+
+    /**
+     * Ray-casts from a player's eye location against entities where that player saw them, by going back as far as the player's ping.
+     * Use it to decide whether a player's shot hit without them having to lead their targets by their ping.
+     *
+     * @param shooter     Player to ray-cast from
+     * @param maxDistance Maximum distance to ray-cast
+     * @param options     Extra settings for the ray-cast
+     * @return A ray-cast result or an empty result
+     */
+    public static RayCastResult rayCastLagCompensated(Player shooter, double maxDistance, RayCastOptions options) {
+        return rayCastRewound(shooter, maxDistance, shooter.getPing(), options);
+    }
+
+    /**
+     * Exact ray-cast against blocks as they are now and entities where they were some time ago. Entities tracked by {@link HitboxHistory}
+     * are tested where their hitbox was then, interpolated between the recorded ticks around it, other entities where they are now. If
+     * {@link HitboxHistory} isn't enabled this is the same as
+     * {@link #rayCast(World, double, double, double, double, double, double, double, Entity, RayCastOptions)}.
+     *
+     * @param world        World to ray-cast in
+     * @param x            X coordinate to ray-cast from
+     * @param y            Y coordinate to ray-cast from
+     * @param z            Z coordinate to ray-cast from
+     * @param dirX         X component of the direction to ray-cast in, does not have to be normalized
+     * @param dirY         Y component of the direction to ray-cast in
+     * @param dirZ         Z component of the direction to ray-cast in
+     * @param maxDistance  Maximum distance to ray-cast
+     * @param rewindMillis How many milliseconds to go back, no further than {@link HitboxHistory#getHistoryTicks()} ticks
+     * @param ignored      Entity the ray can't hit, usually the one ray-casting. May be null.
+     * @param options      Extra settings for the ray-cast
+     * @return A ray-cast result or an empty result
+     */
+    public static RayCastResult rayCastRewound(World world, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, double rewindMillis,
+                                               @Nullable Entity ignored, RayCastOptions options) {
+        long start = RayCastMetrics.begin();
+        double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+        dirX /= length;
+        dirY /= length;
+        dirZ /= length;
+
+        HitboxSnapshot current = getHitboxes(world, x, y, z, dirX, dirY, dirZ, maxDistance, HitboxHistory.getRewindMargin(rewindMillis), options);
+        HitboxSnapshot hitboxes = HitboxHistory.rewind(current, rewindMillis, x, y, z, dirX, dirY, dirZ, maxDistance);
+        RayCastResult result = RayTracer.trace(BlockAccess.of(world, options.isBlockShapes()), hitboxes, ignored, x, y, z, dirX, dirY, dirZ, maxDistance, options.getBlockFilter()).toResult(world);
+        RayCastMetrics.end(CastMethod.REWOUND, null, start, result.getType());
+        return result;
+    }
+
+    /**
+     * Moves a sphere from entities eye location in the direction it's looking and returns the first entity or block it touches. Good for
+     * projectiles and "thick" beams that would otherwise take a bundle of parallel ray-casts, and unlike those it has no gaps.
+     *
+     * @param entity      Entity to cast from, it can't be hit itself
+     * @param maxDistance Maximum distance the center of the sphere moves
+     * @param radius      Radius of the sphere
+     * @param options     Extra settings for the cast
+     * @return A ray-cast result or an empty result. The hit location of the result is where the center of the sphere was when it hit.
+     */
+    public static RayCastResult sphereCast(LivingEntity entity, double maxDistance, double radius, RayCastOptions options) {
+        Location starting = entity.getEyeLocation();
+        Vector direction = starting.getDirection();
+        return sphereCast(starting.getWorld(), starting.getX(), starting.getY(), starting.getZ(), direction.getX(), direction.getY(), direction.getZ(), maxDistance, radius, entity, options);
+    }
+
+    /**
+     * Moves a sphere from any point in any direction and returns the first entity or block it touches, see
+     * {@link #sphereCast(LivingEntity, double, double, RayCastOptions)}.
+     *
+     * @param world       World to cast in
+     * @param x           X coordinate the center of the sphere starts at
+     * @param y           Y coordinate the center of the sphere starts at
+     * @param z           Z coordinate the center of the sphere starts at
+     * @param dirX        X component of the direction to cast in, does not have to be normalized
+     * @param dirY        Y component of the direction to cast in
+     * @param dirZ        Z component of the direction to cast in
+     * @param maxDistance Maximum distance the center of the sphere moves
+     * @param radius      Radius of the sphere
+     * @param ignored     Entity the sphere can't hit, usually the one casting. May be null.
+     * @param options     Extra settings for the cast
+     * @return A ray-cast result or an empty result. The hit location of the result is where the center of the sphere was when it hit.
+     */
+    public static RayCastResult sphereCast(World world, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, double radius, @Nullable Entity ignored, RayCastOptions options) {
+        long start = RayCastMetrics.begin();
+        double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+        dirX /= length;
+        dirY /= length;
+        dirZ /= length;
+
+        HitboxSnapshot hitboxes = getHitboxes(world, x, y, z, dirX, dirY, dirZ, maxDistance, radius, options);
+        RayCastResult result = RayTracer.sphereCast(BlockAccess.of(world, options.isBlockShapes()), hitboxes, ignored, x, y, z, dirX, dirY, dirZ, maxDistance, radius, options.getBlockFilter()).toResult(world);
+        RayCastMetrics.end(CastMethod.SWEEP, null, start, result.getType());
+        return result;
+    }
+
+    /**
+     * Moves an axis aligned box from entities eye location in the direction it's looking and returns the first entity or block it touches.
+     * Good for melee sweeps and for checking where something the size of an entity would end up.
+     *
+     * @param entity      Entity to cast from, it can't be hit itself
+     * @param maxDistance Maximum distance the center of the box moves
+     * @param halfX       Half the width of the box along X
+     * @param halfY       Half the height of the box
+     * @param halfZ       Half the width of the box along Z
+     * @param options     Extra settings for the cast
+     * @return A ray-cast result or an empty result. The hit location of the result is where the center of the box was when it hit.
+     */
+    public static RayCastResult boxCast(LivingEntity entity, double maxDistance, double halfX, double halfY, double halfZ, RayCastOptions options) {
+        Location starting = entity.getEyeLocation();
+        Vector direction = starting.getDirection();
+        return boxCast(starting.getWorld(), starting.getX(), starting.getY(), starting.getZ(), direction.getX(), direction.getY(), direction.getZ(), maxDistance, halfX, halfY, halfZ, entity, options);
+    }
+
+    /**
+     * Moves an axis aligned box from any point in any direction and returns the first entity or block it touches, see
+     * {@link #boxCast(LivingEntity, double, double, double, double, RayCastOptions)}.
+     *
+     * @param world       World to cast in
+     * @param x           X coordinate the center of the box starts at
+     * @param y           Y coordinate the center of the box starts at
+     * @param z           Z coordinate the center of the box starts at
+     * @param dirX        X component of the direction to cast in, does not have to be normalized
+     * @param dirY        Y component of the direction to cast in
+     * @param dirZ        Z component of the direction to cast in
+     * @param maxDistance Maximum distance the center of the box moves
+     * @param halfX       Half the width of the box along X
+     * @param halfY       Half the height of the box
+     * @param halfZ       Half the width of the box along Z
+     * @param ignored     Entity the box can't hit, usually the one casting. May be null.
+     * @param options     Extra settings for the cast
+     * @return A ray-cast result or an empty result. The hit location of the result is where the center of the box was when it hit.
+     */
+    public static RayCastResult boxCast(World world, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance,
+                                        double halfX, double halfY, double halfZ, @Nullable Entity ignored, RayCastOptions options) {
+        long start = RayCastMetrics.begin();
+        double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+        dirX /= length;
+        dirY /= length;
+        dirZ /= length;
+
+        HitboxSnapshot hitboxes = getHitboxes(world, x, y, z, dirX, dirY, dirZ, maxDistance, Math.max(halfX, Math.max(halfY, halfZ)), options);
+        RayCastResult result = RayTracer.boxCast(BlockAccess.of(world, options.isBlockShapes()), hitboxes, ignored, x, y, z, dirX, dirY, dirZ, maxDistance, halfX, halfY, halfZ, options.getBlockFilter()).toResult(world);
+        RayCastMetrics.end(CastMethod.SWEEP, null, start, result.getType());
+        return result;
+    }
+
+    /**
+     * Ray-casts from entities eye location and returns everything the ray hits instead of stopping at the first hit. Entities and blocks are
+     * found in one pass, so it's much cheaper than ray-casting again from behind every hit.
+     *
+     * @param entity      Entity to ray-cast from
+     * @param maxDistance Maximum distance to ray-cast
+     * @param pierce      Which blocks the ray goes through, when it stops and how many hits to collect
+     * @param options     Extra settings for the ray-cast
+     * @return Every entity and block hit, closest first. Empty if nothing was hit.
+     */
+    public static List<RayCastResult> rayCastPiercing(LivingEntity entity, double maxDistance, PierceOptions pierce, RayCastOptions options) {
+        Location starting = entity.getEyeLocation();
+        Vector direction = starting.getDirection();
+        return rayCastPiercing(starting.getWorld(), starting.getX(), starting.getY(), starting.getZ(), direction.getX(), direction.getY(), direction.getZ(), maxDistance, entity, pierce, options);
+    }
+
+    /**
+     * Ray-casts from any point in any direction and returns everything the ray hits, see
+     * {@link #rayCastPiercing(LivingEntity, double, PierceOptions, RayCastOptions)}.
+     *
+     * @param world       World to ray-cast in
+     * @param x           X coordinate to ray-cast from
+     * @param y           Y coordinate to ray-cast from
+     * @param z           Z coordinate to ray-cast from
+     * @param dirX        X component of the direction to ray-cast in, does not have to be normalized
+     * @param dirY        Y component of the direction to ray-cast in
+     * @param dirZ        Z component of the direction to ray-cast in
+     * @param maxDistance Maximum distance to ray-cast
+     * @param ignored     Entity the ray can't hit, usually the one ray-casting. May be null.
+     * @param pierce      Which blocks the ray goes through, when it stops and how many hits to collect
+     * @param options     Extra settings for the ray-cast
+     * @return Every entity and block hit, closest first. Empty if nothing was hit.
+     */
+    public static List<RayCastResult> rayCastPiercing(World world, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, @Nullable Entity ignored, PierceOptions pierce, RayCastOptions options) {
+        long start = RayCastMetrics.begin();
+        double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+        dirX /= length;
+        dirY /= length;
+        dirZ /= length;
+
+        HitboxSnapshot hitboxes = getHitboxes(world, x, y, z, dirX, dirY, dirZ, maxDistance, options);
+        List<RayHit> hits = RayTracer.pierce(BlockAccess.of(world, options.isBlockShapes()), hitboxes, ignored, x, y, z, dirX, dirY, dirZ, maxDistance, options.getBlockFilter(), pierce);
+        List<RayCastResult> results = new ArrayList<>(hits.size());
+        for (RayHit hit : hits) {
+            results.add(hit.toResult(world));
+        }
+        RayCastMetrics.end(CastMethod.PIERCING, null, start, results.isEmpty() ? ResultType.EMPTY : results.get(0).getType());
+        return results;
+    }
+
+    /**
+     * Finds every entity an entity can see: inside its field of view, in range and not hidden behind blocks. Instead of ray-casting a fan of
+     * rays and hoping nothing is between them, entities are picked by angle and distance first and then get one line of sight check each.
+     *
+     * @param viewer       Entity looking
+     * @param fov          Angle between where the viewer is looking and the edge of its view in degrees, half of the full field of view. 180
+     *                     looks in every direction.
+     * @param range        How far the viewer can see
+     * @param checkCorners If false, an entity is visible if the center of its hitbox is. If true, entities whose center is hidden are also
+     *                     visible if a point near any corner of their hitbox is, which costs up to 8 more line of sight checks per entity.
+     * @param options      Extra settings, e.g. which blocks can be seen through
+     * @return Every visible entity, closest first
+     */
+    public static List<Entity> getVisibleEntities(LivingEntity viewer, double fov, double range, boolean checkCorners, RayCastOptions options) {
+        Location starting = viewer.getEyeLocation();
+        Vector direction = starting.getDirection();
+        return getVisibleEntities(starting.getWorld(), starting.getX(), starting.getY(), starting.getZ(), direction.getX(), direction.getY(), direction.getZ(), fov, range, checkCorners, viewer, options);
+    }
+
+    /**
+     * Finds every entity visible from any point looking in any direction, see
+     * {@link #getVisibleEntities(LivingEntity, double, double, boolean, RayCastOptions)}.
+     *
+     * @param world        World to look in
+     * @param x            X coordinate to look from
+     * @param y            Y coordinate to look from
+     * @param z            Z coordinate to look from
+     * @param dirX         X component of the direction to look in, does not have to be normalized
+     * @param dirY         Y component of the direction to look in
+     * @param dirZ         Z component of the direction to look in
+     * @param fov          Angle between the direction and the edge of the view in degrees, half of the full field of view
+     * @param range        How far can be seen
+     * @param checkCorners Whether to also look at the corners of hitboxes whose center is hidden
+     * @param ignored      Entity that is never visible, usually the one looking. May be null.
+     * @param options      Extra settings, e.g. which blocks can be seen through
+     * @return Every visible entity, closest first
+     */
+    public static List<Entity> getVisibleEntities(World world, double x, double y, double z, double dirX, double dirY, double dirZ, double fov, double range, boolean checkCorners,
+                                                  @Nullable Entity ignored, RayCastOptions options) {
+        long start = RayCastMetrics.begin();
+        HitboxSnapshot hitboxes;
+        if (!options.isLiveHitboxes() && HitboxSnapshots.isEnabled()) {
+            hitboxes = HitboxSnapshots.getSnapshot(world);
+        } else {
+            hitboxes = HitboxSnapshot.capture(world.getNearbyEntities(new Location(world, x, y, z), range, range, range), HitboxSnapshots.getCurrentTick());
+        }
+        // Rays to nearby entities all start in the same few blocks, look each of them up once
+        BlockAccess blocks = new CachingBlockAccess(BlockAccess.of(world, options.isBlockShapes()));
+        int[] visible = RayTracer.findVisible(blocks, hitboxes, ignored, x, y, z, dirX, dirY, dirZ, fov, range, checkCorners, options.getBlockFilter());
+        List<Entity> entities = new ArrayList<>(visible.length);
+        for (int index : visible) {
+            entities.add(hitboxes.getEntity(index));
+        }
+        RayCastMetrics.end(CastMethod.VISIBLE_ENTITIES, null, start, entities.isEmpty() ? ResultType.EMPTY : ResultType.ENTITY);
+        return entities;
+    }
+
+    /**
+     * Ray-casts from any point in any direction and executes specified code at each step.
+     *
+     * @param world           World to ray-cast in
+     * @param x               X coordinate to ray-cast from
+     * @param y               Y coordinate to ray-cast from
+     * @param z               Z coordinate to ray-cast from
+     * @param dirX            X component of the direction to ray-cast in, does not have to be normalized
+     * @param dirY            Y component of the direction to ray-cast in
+     * @param dirZ            Z component of the direction to ray-cast in
+     * @param maxDistance     Maximum distance to ray-cast
+     * @param stepSize        How many blocks to advance forward before next check. If you specified 0.5D, it will check every half block.
+     * @param ignoreEntities  Whether to stop the ray-casting once it hits an entity
+     * @param ignored         Entity the ray can't hit, usually the one ray-casting. May be null.
+     * @param options         Extra settings for the ray-cast
+     * @param onStep          Code to execute at each step
+     * @param onRayCastFinish Code to execute when ray-casting is finished
+     */
+    public static void executeStepByStep(World world, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, double stepSize, boolean ignoreEntities, @Nullable Entity ignored, RayCastOptions options, Consumer<Location> onStep, @Nullable Consumer<RayCastResult> onRayCastFinish) {
+        long start = RayCastMetrics.begin();
+        ResultType result = step(world, x, y, z, dirX, dirY, dirZ, maxDistance, stepSize, false, stepSize, true, ignoreEntities, ignored, options, onStep, onRayCastFinish);
+        RayCastMetrics.end(CastMethod.EXECUTE_STEP_BY_STEP, null, start, result);
+    }
+
+    /**
+     * Ray-casts from any point in any direction and executes specified code at each step. The stepSize and precision are different. stepSize
+     * determines when code will run while precision determines how often a result is checked for (your ray-cast hit something)
+     *
+     * @param world           World to ray-cast in
+     * @param x               X coordinate to ray-cast from
+     * @param y               Y coordinate to ray-cast from
+     * @param z               Z coordinate to ray-cast from
+     * @param dirX            X component of the direction to ray-cast in, does not have to be normalized
+     * @param dirY            Y component of the direction to ray-cast in
+     * @param dirZ            Z component of the direction to ray-cast in
+     * @param maxDistance     Maximum distance to ray-cast
+     * @param stepSize        How many blocks that have to pass before the next onStep is called. If you specified 0.5D, it will run the onStep every half block.
+     * @param ignoreEntities  Whether to stop the ray-casting once it hits an entity
+     * @param precision       How many blocks (or fractions of) to advance before every next check
+     * @param ignored         Entity the ray can't hit, usually the one ray-casting. May be null.
+     * @param options         Extra settings for the ray-cast
+     * @param onStep          Code to execute at each step
+     * @param onRayCastFinish Code to execute when ray-casting is finished
+     */
+    public static void executeStepByStepWithPrecision(World world, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, double stepSize, boolean ignoreEntities, Precision precision, @Nullable Entity ignored, RayCastOptions options, Consumer<Location> onStep, @Nullable Consumer<RayCastResult> onRayCastFinish) {
+        long start = RayCastMetrics.begin();
+        ResultType result = step(world, x, y, z, dirX, dirY, dirZ, maxDistance, precision.getAdvance(), false, stepSize, false, ignoreEntities, ignored, options, onStep, onRayCastFinish);
+        RayCastMetrics.end(CastMethod.EXECUTE_STEP_BY_STEP_WITH_PRECISION, precision, start, result);
+    }
+
+    /**
+     * Ray-casts from any point in any direction and executes specified code at each step, picking how far to move before every check on its
+     * own (see {@link #executeStepByStepAdaptive(LivingEntity, double, double, boolean, RayCastOptions, Consumer, Consumer)}).
+     *
+     * @param world           World to ray-cast in
+     * @param x               X coordinate to ray-cast from
+     * @param y               Y coordinate to ray-cast from
+     * @param z               Z coordinate to ray-cast from
+     * @param dirX            X component of the direction to ray-cast in, does not have to be normalized
+     * @param dirY            Y component of the direction to ray-cast in
+     * @param dirZ            Z component of the direction to ray-cast in
+     * @param maxDistance     Maximum distance to ray-cast
+     * @param stepSize        How many blocks that have to pass before the next onStep is called. If you specified 0.5D, it will run the onStep every half block.
+     * @param ignoreEntities  Whether to stop the ray-casting once it hits an entity
+     * @param ignored         Entity the ray can't hit, usually the one ray-casting. May be null.
+     * @param options         Extra settings for the ray-cast
+     * @param onStep          Code to execute at each step
+     * @param onRayCastFinish Code to execute when ray-casting is finished
+     */
+    public static void executeStepByStepAdaptive(World world, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, double stepSize, boolean ignoreEntities, @Nullable Entity ignored, RayCastOptions options, Consumer<Location> onStep, @Nullable Consumer<RayCastResult> onRayCastFinish) {
+        long start = RayCastMetrics.begin();
+        ResultType result = step(world, x, y, z, dirX, dirY, dirZ, maxDistance, ADAPTIVE_MAX_ADVANCE, true, stepSize, false, ignoreEntities, ignored, options, onStep, onRayCastFinish);
+        RayCastMetrics.end(CastMethod.EXECUTE_STEP_BY_STEP_ADAPTIVE, null, start, result);
+    }
+
+    /**
+     * Moves along the ray {@code advance} blocks at a time, checking for blocks and entities at each point, in one go (see {@link RayCursor}).
+     *
+     * @param adaptive   If true {@code advance} is only the largest distance to move, close to hitboxes it moves less (see {@link AdaptiveStride})
+     * @param everyCheck If true onStep runs at every check, otherwise once at least stepSize blocks have passed since the last time it ran
+     * @return What the ray hit
+     */
+    private static ResultType step(World world, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, double advance, boolean adaptive, double stepSize, boolean everyCheck,
+                             boolean ignoreEntities, @Nullable Entity ignored, RayCastOptions options, Consumer<Location> onStep, @Nullable Consumer<RayCastResult> onRayCastFinish) {
+        return new RayCursor(world, x, y, z, dirX, dirY, dirZ, maxDistance, stepSize, ignoreEntities, ignored, options, onStep, onRayCastFinish)
+                .stepping(advance, adaptive, everyCheck)
+                .runToEnd();
+    }
+
+    /**
+     * Gets the hitboxes a ray-cast is tested against. That's this tick's shared snapshot if {@link HitboxSnapshots} is enabled, otherwise the
+     * live hitboxes of the entities around the ray.
+     */
+    static HitboxSnapshot getHitboxes(World world, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, RayCastOptions options) {
+        return getHitboxes(world, x, y, z, dirX, dirY, dirZ, maxDistance, 0, options);
+    }
+
+    /**
+     * Same as {@link #getHitboxes(World, double, double, double, double, double, double, double, RayCastOptions)} for a box or sphere cast,
+     * whose live hitboxes are looked for further out from the ray.
+     *
+     * @param margin Largest half-extent or the radius of the cast
+     */
+    static HitboxSnapshot getHitboxes(World world, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, double margin, RayCastOptions options) {
+        if (!options.isLiveHitboxes() && HitboxSnapshots.isEnabled()) {
+            return HitboxSnapshots.getSnapshot(world);
+        }
+        double half = maxDistance / 2;
+        Location center = new Location(world, x + dirX * half, y + dirY * half, z + dirZ * half);
+        return HitboxSnapshot.capture(world.getNearbyEntities(center, Math.abs(dirX) * half + 0.5 + margin, Math.abs(dirY) * half + 0.5 + margin, Math.abs(dirZ) * half + 0.5 + margin),
+                HitboxSnapshots.getCurrentTick());
     }
 
     public static Location getRayTraceLocation(Location starting, Vector direction, double distance) {
@@ -415,6 +975,9 @@ public class RayCastUtility {
     /**
      * My general advice for entity ray-casting is to just use {@link #PRECISE_ENTITY}, sorry or if you're willing to have some hit or miss.
      * Use {@link #ACCURATE_ENTITY}. I'm pretty sure {@link #ACCURATE_BLOCK} will work pretty well for most cases.
+     * <br>
+     * If you only need blocks, {@link #rayCastBlocks(LivingEntity, double, boolean)} doesn't take a precision at all. It visits every block
+     * the ray crosses, so there is no trade-off between accuracy and speed to make.
      */
     public enum Precision {
 
@@ -0,0 +1,393 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.util.Vector;
+
+import javax.annotation.Nullable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * A step by step ray-cast that can be paused and picked up again later, so very long ray-casts (artillery, scanning beams, slow visual
+ * effects) can spread their cost over several ticks instead of doing everything in one call like
+ * {@link RayCastUtility#executeStepByStep(LivingEntity, double, double, boolean, RayCastOptions, Consumer, Consumer)}.
+ * <br>
+ * {@link #advance(long)} checks points along the ray until it hits something, reaches its max distance or runs out of time, and the next
+ * call carries on from the same point. onStep and onRayCastFinish run as the ray gets there, exactly like they would in one go. Each
+ * check can also be pulled one at a time by using the cursor as an {@link Iterator} over the points checked.
+ * <pre>
+ *     // Moves at most 1 millisecond further along the ray every tick
+ *     new RayCursor(player, 1000, 0.5, false, new RayCastOptions(), location -> world.spawnParticle(...), result -> explode(result))
+ *             .runEachTick(plugin, 1_000_000);
+ * </pre>
+ * Entities are read again every time {@link #advance(long)} picks up where it left off, so a ray-cast resumed on a later tick hits entities
+ * where they are then. Blocks are always read from the live world, so only use a cursor on the main thread.
+ */
+public class RayCursor implements Iterator<Location> {
+
+    /**
+     * Number of checks between two reads of the clock, reading it costs about as much as a check.
+     */
+    private static final int CLOCK_INTERVAL = 16;
+
+    private final World world;
+
+    private final double dirX, dirY, dirZ;
+
+    private final float yaw, pitch;
+
+    private final double maxDistance;
+
+    private final double stepSize;
+
+    private final boolean ignoreEntities;
+
+    @Nullable
+    private final Entity ignored;
+
+    private final RayCastOptions options;
+
+    private final BlockFilter filter;
+
+    private final Consumer<Location> onStep;
+
+    @Nullable
+    private final Consumer<RayCastResult> onRayCastFinish;
+
+    private double x, y, z;
+
+    private double advance;
+
+    private double maxAdvance;
+
+    private boolean adaptive;
+
+    private boolean everyCheck = true;
+
+    private BlockAccess blocks;
+
+    private HitboxSnapshot hitboxes;
+
+    private AdaptiveStride stride;
+
+    private boolean started;
+
+    private boolean stale = true;
+
+    private int blockX, blockY, blockZ;
+
+    private boolean solid;
+
+    private boolean looked;
+
+    private int steps, lookups;
+
+    private double distanceTraveled;
+
+    private double distSinceLastStep;
+
+    private boolean done;
+
+    private ResultType resultType = ResultType.EMPTY;
+
+    @Nullable
+    private RayCastResult result;
+
+    /**
+     * Same as {@link #RayCursor(World, double, double, double, double, double, double, double, double, boolean, Entity, RayCastOptions, Consumer, Consumer)}
+     * from the eyes of an entity, in the direction it's looking. The entity itself can't be hit.
+     */
+    public RayCursor(LivingEntity entity, double maxDistance, double stepSize, boolean ignoreEntities, RayCastOptions options, Consumer<Location> onStep, @Nullable Consumer<RayCastResult> onRayCastFinish) {
+        this(entity.getEyeLocation(), entity.getEyeLocation().getDirection(), maxDistance, stepSize, ignoreEntities, entity, options, onStep, onRayCastFinish);
+    }
+
+    private RayCursor(Location starting, Vector direction, double maxDistance, double stepSize, boolean ignoreEntities, @Nullable Entity ignored, RayCastOptions options, Consumer<Location> onStep, @Nullable Consumer<RayCastResult> onRayCastFinish) {
+        this(starting.getWorld(), starting.getX(), starting.getY(), starting.getZ(), direction.getX(), direction.getY(), direction.getZ(), maxDistance, stepSize, ignoreEntities, ignored, options, onStep, onRayCastFinish);
+    }
+
+    /**
+     * Creates a cursor at the start of the ray. Nothing is checked until {@link #advance(long)} or {@link #next()} is called. By default it
+     * moves stepSize blocks before every check and runs onStep at every check, like
+     * {@link RayCastUtility#executeStepByStep(World, double, double, double, double, double, double, double, double, boolean, Entity, RayCastOptions, Consumer, Consumer)}.
+     *
+     * @param world           World to ray-cast in
+     * @param x               X coordinate to ray-cast from
+     * @param y               Y coordinate to ray-cast from
+     * @param z               Z coordinate to ray-cast from
+     * @param dirX            X component of the direction to ray-cast in, does not have to be normalized
+     * @param dirY            Y component of the direction to ray-cast in
+     * @param dirZ            Z component of the direction to ray-cast in
+     * @param maxDistance     Maximum distance to ray-cast
+     * @param stepSize        How many blocks that have to pass before the next onStep is called
+     * @param ignoreEntities  Whether to stop the ray-casting once it hits an entity
+     * @param ignored         Entity the ray can't hit, usually the one ray-casting. May be null.
+     * @param options         Extra settings for the ray-cast
+     * @param onStep          Code to execute at each step
+     * @param onRayCastFinish Code to execute when the ray hits something
+     */
+    public RayCursor(World world, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, double stepSize, boolean ignoreEntities,
+                     @Nullable Entity ignored, RayCastOptions options, Consumer<Location> onStep, @Nullable Consumer<RayCastResult> onRayCastFinish) {
+        double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+        this.world = world;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.dirX = dirX / length;
+        this.dirY = dirY / length;
+        this.dirZ = dirZ / length;
+        // Locations handed to onStep face along the ray, like the eye location they used to be cloned from
+        this.yaw = (float) Math.toDegrees((Math.atan2(-this.dirX, this.dirZ) + Math.PI * 2) % (Math.PI * 2));
+        this.pitch = (float) Math.toDegrees(Math.atan(-this.dirY / Math.sqrt(this.dirX * this.dirX + this.dirZ * this.dirZ)));
+        this.maxDistance = maxDistance;
+        this.stepSize = stepSize;
+        this.advance = stepSize;
+        this.maxAdvance = stepSize;
+        this.ignoreEntities = ignoreEntities;
+        this.ignored = ignored;
+        this.options = options;
+        this.filter = options.getBlockFilter();
+        this.onStep = onStep;
+        this.onRayCastFinish = onRayCastFinish;
+        this.blockX = VoxelTraversal.floor(x);
+        this.blockY = VoxelTraversal.floor(y);
+        this.blockZ = VoxelTraversal.floor(z);
+        this.done = maxDistance <= 0;
+    }
+
+    /**
+     * Checks a point every {@code precision} blocks and runs onStep once stepSize blocks have passed, like
+     * {@link RayCastUtility#executeStepByStepWithPrecision(World, double, double, double, double, double, double, double, double, boolean, RayCastUtility.Precision, Entity, RayCastOptions, Consumer, Consumer)}.
+     * Only call before the first check.
+     */
+    public RayCursor precision(RayCastUtility.Precision precision) {
+        return stepping(precision.getAdvance(), false, false);
+    }
+
+    /**
+     * Picks how far to move before every check on its own, like
+     * {@link RayCastUtility#executeStepByStepAdaptive(World, double, double, double, double, double, double, double, double, boolean, Entity, RayCastOptions, Consumer, Consumer)}.
+     * Only call before the first check.
+     */
+    public RayCursor adaptive() {
+        return stepping(RayCastUtility.ADAPTIVE_MAX_ADVANCE, true, false);
+    }
+
+    /**
+     * @param advance    How far to move before every check, the largest distance if adaptive
+     * @param adaptive   Whether to move less close to hitboxes, see {@link AdaptiveStride}
+     * @param everyCheck If true onStep runs at every check, otherwise once at least stepSize blocks have passed since the last time it ran
+     */
+    RayCursor stepping(double advance, boolean adaptive, boolean everyCheck) {
+        if (started) {
+            throw new IllegalStateException("Cursor already started");
+        }
+        this.advance = advance;
+        this.maxAdvance = advance;
+        this.adaptive = adaptive;
+        this.everyCheck = everyCheck;
+        return this;
+    }
+
+    /**
+     * Checks points along the ray until it hits something, reaches its max distance or the time is up. The time is checked every few
+     * points, so it can run over by a few checks.
+     *
+     * @param budgetNanos Nanoseconds to spend at most, {@link Long#MAX_VALUE} to finish the ray-cast
+     * @return Whether the ray-cast is finished
+     */
+    public boolean advance(long budgetNanos) {
+        if (done) {
+            return true;
+        }
+        long start = RayCastMetrics.begin();
+        long begin = System.nanoTime();
+        int checks = 0;
+        while (check()) {
+            if (++checks % CLOCK_INTERVAL == 0 && System.nanoTime() - begin >= budgetNanos) {
+                break;
+            }
+        }
+        countChecks();
+        stale = true;
+        RayCastMetrics.end(CastMethod.CURSOR, null, start, done ? resultType : ResultType.EMPTY);
+        return done;
+    }
+
+    /**
+     * Calls {@link #advance(long)} every tick until the ray-cast is finished or {@link #cancel()} is called.
+     *
+     * @param plugin      Plugin to run the task under
+     * @param budgetNanos Nanoseconds to spend at most every tick
+     * @return The task, it cancels itself once the ray-cast is finished
+     */
+    public BukkitTask runEachTick(Plugin plugin, long budgetNanos) {
+        BukkitTask[] task = new BukkitTask[1];
+        task[0] = Bukkit.getScheduler().runTaskTimer(plugin, () -> {
+            if (advance(budgetNanos)) {
+                task[0].cancel();
+            }
+        }, 0L, 1L);
+        return task[0];
+    }
+
+    /**
+     * Stops the ray-cast where it is. onRayCastFinish isn't called.
+     */
+    public void cancel() {
+        done = true;
+    }
+
+    /**
+     * @return Whether there are points left to check
+     */
+    @Override
+    public boolean hasNext() {
+        return !done;
+    }
+
+    /**
+     * Checks the next point along the ray.
+     *
+     * @return The point that was checked
+     */
+    @Override
+    public Location next() {
+        if (done) {
+            throw new NoSuchElementException();
+        }
+        check();
+        countChecks();
+        return new Location(world, x, y, z, yaw, pitch);
+    }
+
+    /**
+     * Finishes the ray-cast in one go and returns what it hit, what the executeStepByStep methods of {@link RayCastUtility} do.
+     */
+    ResultType runToEnd() {
+        while (check()) {
+        }
+        countChecks();
+        return resultType;
+    }
+
+    /**
+     * Moves to the next point and checks it for blocks and entities.
+     *
+     * @return Whether there are points left to check
+     */
+    private boolean check() {
+        if (done) {
+            return false;
+        }
+        if (stale) {
+            read();
+        }
+        if (stride != null) {
+            advance = stride.next(x, y, z, RayCastUtility.ADAPTIVE_MIN_ADVANCE, maxAdvance);
+        }
+        steps++;
+        int lastX = blockX, lastY = blockY, lastZ = blockZ;
+        x += dirX * advance;
+        y += dirY * advance;
+        z += dirZ * advance;
+        if (everyCheck || distSinceLastStep >= stepSize) {
+            onStep.accept(new Location(world, x, y, z, yaw, pitch));
+            distSinceLastStep = 0D;
+        }
+        blockX = VoxelTraversal.floor(x);
+        blockY = VoxelTraversal.floor(y);
+        blockZ = VoxelTraversal.floor(z);
+        // Checks inside the same block as the last one can't hit anything new
+        if (!looked || blockX != lastX || blockY != lastY || blockZ != lastZ) {
+            solid = blocks.isHit(blockX, blockY, blockZ, filter);
+            looked = true;
+            lookups++;
+        }
+        if (solid) {
+            finish(new BlockRayCastResult(ResultType.BLOCK, world.getBlockAt(blockX, blockY, blockZ), RayTracer.getFace(lastX - blockX, lastY - blockY, lastZ - blockZ)));
+            return false;
+        }
+        if (hitboxes != null) {
+            int hit = hitboxes.findContaining(x, y, z, ignored);
+            if (hit != -1) {
+                finish(new EntityRayCastResult(ResultType.ENTITY, hitboxes.getEntity(hit)));
+                return false;
+            }
+        }
+        distanceTraveled += advance;
+        distSinceLastStep += advance;
+        if (distanceTraveled >= maxDistance) {
+            done = true;
+        }
+        return !done;
+    }
+
+    /**
+     * Reads the blocks and entities along the rest of the ray, at the start and whenever the ray-cast picks up again.
+     */
+    private void read() {
+        started = true;
+        stale = false;
+        looked = false;
+        blocks = BlockAccess.of(world);
+        double remaining = maxDistance - distanceTraveled;
+        hitboxes = ignoreEntities ? null : RayCastUtility.getHitboxes(world, x, y, z, dirX, dirY, dirZ, remaining, options);
+        stride = adaptive && hitboxes != null ? AdaptiveStride.of(hitboxes, ignored, x, y, z, dirX, dirY, dirZ, remaining, maxAdvance) : null;
+    }
+
+    private void finish(RayCastResult result) {
+        this.done = true;
+        this.result = result;
+        this.resultType = result.getType();
+        if (onRayCastFinish != null) {
+            onRayCastFinish.accept(result);
+        }
+    }
+
+    private void countChecks() {
+        RayCastMetrics.countBlocks(steps, lookups);
+        steps = 0;
+        lookups = 0;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * @return What the ray hit, null if it hasn't hit anything (yet)
+     */
+    @Nullable
+    public RayCastResult getResult() {
+        return result;
+    }
+
+    /**
+     * @return What the ray hit so far, {@link ResultType#EMPTY} if nothing (yet)
+     */
+    public ResultType getResultType() {
+        return resultType;
+    }
+
+    /**
+     * @return How far along the ray the cursor is
+     */
+    public double getDistanceTraveled() {
+        return distanceTraveled;
+    }
+
+    public double getMaxDistance() {
+        return maxDistance;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+}
@@ -0,0 +1,176 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.Entity;
+
+import javax.annotation.Nullable;
+
+/**
+ * What a ray hit, as plain coordinates. Unlike {@link RayCastResult} it doesn't hold any {@link org.bukkit.block.Block}, so it can be
+ * created off the main thread and turned into a result later with {@link #toResult(World)}.
+ */
+public class RayHit {
+
+    private final ResultType type;
+
+    private final int blockX;
+    private final int blockY;
+    private final int blockZ;
+
+    private final BlockFace face;
+
+    private final double x;
+    private final double y;
+    private final double z;
+
+    private final double distance;
+
+    private final Entity entity;
+
+    private RayHit(ResultType type, int blockX, int blockY, int blockZ, BlockFace face, double x, double y, double z, double distance, Entity entity) {
+        this.type = type;
+        this.blockX = blockX;
+        this.blockY = blockY;
+        this.blockZ = blockZ;
+        this.face = face;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.distance = distance;
+        this.entity = entity;
+    }
+
+    /**
+     * @param blockX   X coordinate of the hit block
+     * @param blockY   Y coordinate of the hit block
+     * @param blockZ   Z coordinate of the hit block
+     * @param face     Face of the block the ray entered through
+     * @param x        X coordinate the ray hit the block at, NaN if not known exactly
+     * @param y        Y coordinate the ray hit the block at, NaN if not known exactly
+     * @param z        Z coordinate the ray hit the block at, NaN if not known exactly
+     * @param distance Distance from the ray origin to the hit
+     */
+    public static RayHit block(int blockX, int blockY, int blockZ, @Nullable BlockFace face, double x, double y, double z, double distance) {
+        return new RayHit(ResultType.BLOCK, blockX, blockY, blockZ, face, x, y, z, distance, null);
+    }
+
+    /**
+     * @param entity   Entity that was hit
+     * @param face     Face of the entity's hitbox the ray entered through
+     * @param x        X coordinate the ray entered the hitbox at
+     * @param y        Y coordinate the ray entered the hitbox at
+     * @param z        Z coordinate the ray entered the hitbox at
+     * @param distance Distance from the ray origin to the hit
+     */
+    public static RayHit entity(Entity entity, BlockFace face, double x, double y, double z, double distance) {
+        return new RayHit(ResultType.ENTITY, 0, 0, 0, face, x, y, z, distance, entity);
+    }
+
+    /**
+     * @param blockX X coordinate of the last block the ray was checked in
+     * @param blockY Y coordinate of the last block the ray was checked in
+     * @param blockZ Z coordinate of the last block the ray was checked in
+     * @param face   Face of that block the ray entered through
+     */
+    public static RayHit miss(int blockX, int blockY, int blockZ, @Nullable BlockFace face) {
+        return new RayHit(ResultType.EMPTY, blockX, blockY, blockZ, face, Double.NaN, Double.NaN, Double.NaN, -1, null);
+    }
+
+    /**
+     * Turns the hit into a ray-cast result. Looks up the hit block, so call it on the main thread.
+     *
+     * @param world World the ray was cast in
+     * @return A block, entity or empty result
+     */
+    public RayCastResult toResult(World world) {
+        switch (type) {
+            case BLOCK:
+                return toBlockResult(world);
+            case ENTITY:
+                return new EntityRayCastResult(ResultType.ENTITY, entity, new Location(world, x, y, z), face, distance);
+            default:
+                return new RayCastResult(ResultType.EMPTY, null);
+        }
+    }
+
+    /**
+     * Same as {@link #toResult(World)} for a ray that could only hit blocks. A miss still holds the last block the ray was checked in.
+     */
+    public BlockRayCastResult toBlockResult(World world) {
+        Location hitLocation = type == ResultType.BLOCK && !Double.isNaN(x) ? new Location(world, x, y, z) : null;
+        return new BlockRayCastResult(type, world.getBlockAt(blockX, blockY, blockZ), face, hitLocation, hitLocation == null ? Double.NaN : distance);
+    }
+
+    /**
+     * Same as {@link #toResult(World)} for a ray that could only hit entities.
+     */
+    public EntityRayCastResult toEntityResult(World world) {
+        if (type != ResultType.ENTITY) {
+            return new EntityRayCastResult(ResultType.EMPTY, null);
+        }
+        return new EntityRayCastResult(ResultType.ENTITY, entity, new Location(world, x, y, z), face, distance);
+    }
+
+    public ResultType getType() {
+        return type;
+    }
+
+    public boolean isEmpty() {
+        return type == ResultType.EMPTY;
+    }
+
+    public int getBlockX() {
+        return blockX;
+    }
+
+    public int getBlockY() {
+        return blockY;
+    }
+
+    public int getBlockZ() {
+        return blockZ;
+    }
+
+    public BlockFace getFace() {
+        return face;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    /**
+     * @return Distance from the ray origin to the hit, -1 for a miss
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    public Entity getEntity() {
+        return entity;
+    }
+
+    @Override
+    public String toString() {
+        return "RayHit{" +
+                "type: " + type +
+                ", block: " + blockX + ", " + blockY + ", " + blockZ +
+                ", face: " + face +
+                ", x: " + x +
+                ", y: " + y +
+                ", z: " + z +
+                ", distance: " + distance +
+                ", entity: " + entity +
+                '}';
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.block.BlockFace;
+
+/**
+ * Where a ray entered a {@link BoundingBox}.
+ */
+public class RayIntersection {
+
+    private final double distance;
+
+    private final BlockFace face;
+
+    public RayIntersection(double distance, BlockFace face) {
+        this.distance = distance;
+        this.face = face;
+    }
+
+    /**
+     * @return Distance from the ray origin to the point the ray entered the box at
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return Face of the box the ray entered through, {@link BlockFace#SELF} if the ray started inside the box
+     */
+    public BlockFace getFace() {
+        return face;
+    }
+
+    @Override
+    public String toString() {
+        return "RayIntersection{" +
+                "distance: " + distance +
+                ", face: " + face +
+                '}';
+    }
+}
@@ -0,0 +1,694 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.Entity;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The block and entity tests behind {@link RayCastUtility} and {@link AsyncRayCaster}. Everything here works on a {@link BlockAccess} and
+ * a {@link HitboxSnapshot} and never touches the server, so it runs on any thread as long as the block access does.
+ */
+public class RayTracer {
+
+    /**
+     * How much box and sphere casts are shrunk by when they're tested against blocks, the same margin Minecraft keeps between entities and
+     * the blocks they move against.
+     */
+    public static final double SKIN = 1.0E-7;
+
+    private static final BlockFace[] FACES = faces();
+
+    private RayTracer() {
+    }
+
+    /**
+     * Walks every block along the ray with a {@link VoxelTraversal} until one is hit. Chunk sections the block access knows are empty are
+     * crossed in one go instead of block by block.
+     *
+     * @return The hit block, or a miss holding the last block visited
+     */
+    public static RayHit traverseBlocks(BlockAccess blocks, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, BlockFilter filter) {
+        VoxelTraversal traversal = new VoxelTraversal(x, y, z, dirX, dirY, dirZ, maxDistance);
+        int blockX = VoxelTraversal.floor(x), blockY = VoxelTraversal.floor(y), blockZ = VoxelTraversal.floor(z);
+        BlockFace face = null;
+        long section = Long.MIN_VALUE;
+        int visited = 0;
+        boolean shapes = blocks.hasShapes();
+        while (traversal.next()) {
+            if (sectionKey(traversal) != section) {
+                if (canSkipSection(blocks, traversal, shapes)) {
+                    boolean more = traversal.skipCell(4);
+                    blockX = traversal.getBlockX();
+                    blockY = traversal.getBlockY();
+                    blockZ = traversal.getBlockZ();
+                    face = traversal.getFace();
+                    if (!more) {
+                        break;
+                    }
+                    continue;
+                }
+                section = sectionKey(traversal);
+            }
+            blockX = traversal.getBlockX();
+            blockY = traversal.getBlockY();
+            blockZ = traversal.getBlockZ();
+            face = traversal.getFace();
+            visited++;
+            if (blocks.isHit(blockX, blockY, blockZ, filter)) {
+                double[] shape = blocks.getShape(blockX, blockY, blockZ);
+                if (shape == null || shape == BlockShapes.FULL_BLOCK) {
+                    RayCastMetrics.countBlocks(visited, visited);
+                    return RayHit.block(blockX, blockY, blockZ, face, traversal.getX(), traversal.getY(), traversal.getZ(), traversal.getDistance());
+                }
+                int box = BlockShapes.rayCast(shape, blockX, blockY, blockZ, x, y, z, dirX, dirY, dirZ, maxDistance);
+                if (box != -1) {
+                    RayCastMetrics.countBlocks(visited, visited);
+                    return BlockShapes.hitBox(shape, box, blockX, blockY, blockZ, x, y, z, dirX, dirY, dirZ, maxDistance);
+                }
+            }
+            if (shapes && face != BlockFace.DOWN) {
+                RayHit below = hitShapeBelow(blocks, blockX, blockY, blockZ, x, y, z, dirX, dirY, dirZ, maxDistance, filter);
+                if (below != null) {
+                    RayCastMetrics.countBlocks(visited, visited);
+                    return below;
+                }
+            }
+        }
+        RayCastMetrics.countBlocks(visited, visited);
+        return RayHit.miss(blockX, blockY, blockZ, face);
+    }
+
+    /**
+     * Moves along the ray {@code advance} blocks at a time until a block is hit. Blocks are only looked up when the ray moves into a new one,
+     * and checks inside chunk sections the block access knows are empty are skipped.
+     *
+     * @param dirX        X component of the ray direction, must be normalized
+     * @param dirY        Y component of the ray direction, must be normalized
+     * @param dirZ        Z component of the ray direction, must be normalized
+     * @param hitDistance Stop before any check that would be this far along the ray, e.g. because an entity was hit there
+     * @return The hit block, or a miss holding the last block checked
+     */
+    public static RayHit marchBlocks(BlockAccess blocks, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, double hitDistance, double advance, BlockFilter filter) {
+        double originX = x, originY = y, originZ = z;
+        int blockX = VoxelTraversal.floor(x), blockY = VoxelTraversal.floor(y), blockZ = VoxelTraversal.floor(z);
+        int lastX = blockX, lastY = blockY, lastZ = blockZ;
+        boolean solid = false;
+        boolean looked = false;
+        long section = Long.MIN_VALUE;
+        int steps = 0, lookups = 0;
+        double distanceTraveled = 0;
+        while (distanceTraveled < maxDistance && distanceTraveled + advance < hitDistance) {
+            steps++;
+            lastX = blockX;
+            lastY = blockY;
+            lastZ = blockZ;
+            x += dirX * advance;
+            y += dirY * advance;
+            z += dirZ * advance;
+            blockX = VoxelTraversal.floor(x);
+            blockY = VoxelTraversal.floor(y);
+            blockZ = VoxelTraversal.floor(z);
+            // Checks inside the same block as the last one can't hit anything new
+            if (!looked || blockX != lastX || blockY != lastY || blockZ != lastZ) {
+                if (sectionKey(blockX >> 4, blockY >> 4, blockZ >> 4) != section) {
+                    if (blocks.isSectionEmpty(blockX >> 4, blockY >> 4, blockZ >> 4)) {
+                        // Carry on with the first check past the section, on the same spacing as if every check had been made
+                        double exit = sectionExit(originX, originY, originZ, dirX, dirY, dirZ, blockX >> 4, blockY >> 4, blockZ >> 4);
+                        distanceTraveled = Math.max(distanceTraveled + advance, Math.floor(exit / advance) * advance);
+                        x = originX + dirX * distanceTraveled;
+                        y = originY + dirY * distanceTraveled;
+                        z = originZ + dirZ * distanceTraveled;
+                        // The next check's face is worked out from the block the ray is in now, not the one before the section
+                        blockX = VoxelTraversal.floor(x);
+                        blockY = VoxelTraversal.floor(y);
+                        blockZ = VoxelTraversal.floor(z);
+                        looked = false;
+                        continue;
+                    }
+                    section = sectionKey(blockX >> 4, blockY >> 4, blockZ >> 4);
+                }
+                solid = blocks.isHit(blockX, blockY, blockZ, filter);
+                looked = true;
+                lookups++;
+            }
+            if (solid) {
+                RayCastMetrics.countBlocks(steps, lookups);
+                return RayHit.block(blockX, blockY, blockZ, getFace(lastX - blockX, lastY - blockY, lastZ - blockZ), Double.NaN, Double.NaN, Double.NaN, distanceTraveled + advance);
+            }
+            distanceTraveled += advance;
+        }
+        RayCastMetrics.countBlocks(steps, lookups);
+        return RayHit.miss(blockX, blockY, blockZ, getFace(lastX - blockX, lastY - blockY, lastZ - blockZ));
+    }
+
+    /**
+     * Finds the exact point a ray entered the block {@link #marchBlocks} hit. The hit check is at most {@code advance} past the last check
+     * that hit nothing, so only the blocks in between are walked with a {@link VoxelTraversal}. That can also find a block in front of the
+     * hit one whose corner the checks stepped past.
+     *
+     * @param dirX    X component of the ray direction, must be normalized
+     * @param dirY    Y component of the ray direction, must be normalized
+     * @param dirZ    Z component of the ray direction, must be normalized
+     * @param hit     What {@link #marchBlocks} returned for the same ray
+     * @param advance Advance {@link #marchBlocks} was given
+     * @return The first block hit with its exact position, face and distance, or the given hit if it's a miss
+     */
+    public static RayHit refineBlockHit(BlockAccess blocks, double x, double y, double z, double dirX, double dirY, double dirZ, RayHit hit, double advance, BlockFilter filter) {
+        if (hit.isEmpty()) {
+            return hit;
+        }
+        double from = Math.max(0, hit.getDistance() - advance);
+        VoxelTraversal traversal = new VoxelTraversal(x + dirX * from, y + dirY * from, z + dirZ * from, dirX, dirY, dirZ, hit.getDistance() - from);
+        // The block the last check that hit nothing was in doesn't stop the ray. A hit on the first check may be the block the ray starts in.
+        if (from > 0) {
+            traversal.next();
+        }
+        int visited = 0;
+        while (traversal.next()) {
+            visited++;
+            if (blocks.isHit(traversal.getBlockX(), traversal.getBlockY(), traversal.getBlockZ(), filter)) {
+                RayCastMetrics.countBlocks(visited, visited);
+                return RayHit.block(traversal.getBlockX(), traversal.getBlockY(), traversal.getBlockZ(), traversal.getFace(),
+                        traversal.getX(), traversal.getY(), traversal.getZ(), from + traversal.getDistance());
+            }
+        }
+        // Only when rounding put the hit check right on the boundary of its block
+        RayCastMetrics.countBlocks(visited, visited);
+        return hit;
+    }
+
+    /**
+     * Exact ray-cast against blocks and entities: the closest hitbox the ray enters, unless a block is in front of it.
+     *
+     * @param hitboxes Hitboxes to test, null to only test blocks
+     * @param ignored  Entity the ray can't hit, may be null
+     * @return The closest hit
+     */
+    public static RayHit trace(BlockAccess blocks, @Nullable HitboxSnapshot hitboxes, @Nullable Entity ignored, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, BlockFilter filter) {
+        double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+        dirX /= length;
+        dirY /= length;
+        dirZ /= length;
+
+        int hit = hitboxes == null ? -1 : hitboxes.rayCast(x, y, z, dirX, dirY, dirZ, maxDistance, ignored);
+        double hitDistance = hit == -1 ? maxDistance : hitboxes.rayIntersect(hit, x, y, z, dirX, dirY, dirZ, maxDistance);
+        RayHit blockHit = traverseBlocks(blocks, x, y, z, dirX, dirY, dirZ, hitDistance, filter);
+        if (!blockHit.isEmpty() || hit == -1) {
+            return blockHit;
+        }
+        return hitEntity(hitboxes, hit, x, y, z, dirX, dirY, dirZ, maxDistance);
+    }
+
+    /**
+     * Sphere cast: the closest entity or block a sphere moving along the ray touches. Hitboxes are grown by the radius and tested with one
+     * ray each, and blocks are found with {@link #sweepBlocks(BlockAccess, double, double, double, double, double, double, double, double, double, double, boolean, BlockFilter)},
+     * so one sphere cast replaces a bundle of parallel rays and has no gaps between them.
+     *
+     * @param hitboxes Hitboxes to test, null to only test blocks
+     * @param ignored  Entity the sphere can't hit, may be null
+     * @param radius   Radius of the sphere
+     * @return The closest hit. Its position is where the center of the sphere is when it touches what it hit.
+     */
+    public static RayHit sphereCast(BlockAccess blocks, @Nullable HitboxSnapshot hitboxes, @Nullable Entity ignored, double x, double y, double z, double dirX, double dirY, double dirZ,
+                                    double maxDistance, double radius, BlockFilter filter) {
+        return sweep(blocks, hitboxes, ignored, x, y, z, dirX, dirY, dirZ, maxDistance, radius, radius, radius, true, filter);
+    }
+
+    /**
+     * Box cast: the closest entity or block an axis aligned box moving along the ray touches, see
+     * {@link #sphereCast(BlockAccess, HitboxSnapshot, Entity, double, double, double, double, double, double, double, double, BlockFilter)}.
+     *
+     * @param hitboxes Hitboxes to test, null to only test blocks
+     * @param ignored  Entity the box can't hit, may be null
+     * @param halfX    Half the width of the box along X
+     * @param halfY    Half the height of the box
+     * @param halfZ    Half the width of the box along Z
+     * @return The closest hit. Its position is where the center of the box is when it touches what it hit.
+     */
+    public static RayHit boxCast(BlockAccess blocks, @Nullable HitboxSnapshot hitboxes, @Nullable Entity ignored, double x, double y, double z, double dirX, double dirY, double dirZ,
+                                 double maxDistance, double halfX, double halfY, double halfZ, BlockFilter filter) {
+        return sweep(blocks, hitboxes, ignored, x, y, z, dirX, dirY, dirZ, maxDistance, halfX, halfY, halfZ, false, filter);
+    }
+
+    private static RayHit sweep(BlockAccess blocks, @Nullable HitboxSnapshot hitboxes, @Nullable Entity ignored, double x, double y, double z, double dirX, double dirY, double dirZ,
+                                double maxDistance, double halfX, double halfY, double halfZ, boolean sphere, BlockFilter filter) {
+        double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+        dirX /= length;
+        dirY /= length;
+        dirZ /= length;
+
+        int hit = hitboxes == null ? -1 : sphere ? hitboxes.sphereCast(x, y, z, dirX, dirY, dirZ, maxDistance, halfX, ignored)
+                : hitboxes.boxCast(x, y, z, dirX, dirY, dirZ, maxDistance, halfX, halfY, halfZ, ignored);
+        double hitDistance = maxDistance;
+        if (hit != -1) {
+            hitDistance = sphere
+                    ? SweptVolume.sphereIntersect(hitboxes.getMinX(hit), hitboxes.getMinY(hit), hitboxes.getMinZ(hit), hitboxes.getMaxX(hit), hitboxes.getMaxY(hit), hitboxes.getMaxZ(hit),
+                    x, y, z, dirX, dirY, dirZ, halfX, maxDistance)
+                    : SweptVolume.boxIntersect(hitboxes.getMinX(hit), hitboxes.getMinY(hit), hitboxes.getMinZ(hit), hitboxes.getMaxX(hit), hitboxes.getMaxY(hit), hitboxes.getMaxZ(hit),
+                    x, y, z, dirX, dirY, dirZ, halfX, halfY, halfZ, maxDistance);
+        }
+        RayHit blockHit = sweepBlocks(blocks, x, y, z, dirX, dirY, dirZ, hitDistance, halfX, halfY, halfZ, sphere, filter);
+        if (!blockHit.isEmpty() || hit == -1) {
+            return blockHit;
+        }
+        BlockFace face = SweptVolume.face(hitboxes.getMinX(hit), hitboxes.getMinY(hit), hitboxes.getMinZ(hit), hitboxes.getMaxX(hit), hitboxes.getMaxY(hit), hitboxes.getMaxZ(hit),
+                x, y, z, dirX, dirY, dirZ, halfX, halfY, halfZ, sphere, hitDistance);
+        return RayHit.entity(hitboxes.getEntity(hit), face, x + dirX * hitDistance, y + dirY * hitDistance, z + dirZ * hitDistance, hitDistance);
+    }
+
+    /**
+     * Finds the first block a box or sphere moving along the ray touches. The leading corner of the box around the volume is walked with a
+     * {@link VoxelTraversal}, and every time it enters a new block the layer of blocks the box reaches into is tested, so every block the
+     * volume sweeps over is visited once, in the order the box first reaches them. The exact contact with each block that passes the
+     * filter comes from its shape grown by the volume, and the walk stops once the box can't reach anything closer than the closest hit.
+     * <br>
+     * The volume is shrunk by {@link #SKIN} for blocks, so a volume resting on a block, like a box the size of an entity standing on the
+     * ground, doesn't hit it.
+     *
+     * @param dirX   X component of the direction the volume moves in, must be normalized
+     * @param dirY   Y component of the direction the volume moves in, must be normalized
+     * @param dirZ   Z component of the direction the volume moves in, must be normalized
+     * @param halfX  Half the width of the volume along X, its radius for a sphere
+     * @param halfY  Half the height of the volume, its radius for a sphere
+     * @param halfZ  Half the width of the volume along Z, its radius for a sphere
+     * @param sphere Whether the volume is a sphere, in which case all half-extents must be its radius
+     * @return The hit block, or a miss holding the last block the leading corner visited
+     */
+    public static RayHit sweepBlocks(BlockAccess blocks, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance,
+                                     double halfX, double halfY, double halfZ, boolean sphere, BlockFilter filter) {
+        BlockSweep sweep = new BlockSweep(blocks, x, y, z, dirX, dirY, dirZ, maxDistance, halfX, halfY, halfZ, sphere, filter);
+        int stepX = dirX > 0 ? 1 : dirX < 0 ? -1 : 0;
+        int stepY = dirY > 0 ? 1 : dirY < 0 ? -1 : 0;
+        int stepZ = dirZ > 0 ? 1 : dirZ < 0 ? -1 : 0;
+        VoxelTraversal leading = new VoxelTraversal(x + stepX * halfX, y + stepY * halfY, z + stepZ * halfZ, dirX, dirY, dirZ, maxDistance);
+        // The first block of the leading corner is part of everything the box starts in
+        leading.next();
+        sweep.testLayer(VoxelTraversal.floor(x - halfX), VoxelTraversal.floor(y - halfY), VoxelTraversal.floor(z - halfZ),
+                VoxelTraversal.floor(x + halfX), VoxelTraversal.floor(y + halfY), VoxelTraversal.floor(z + halfZ));
+        int lastX = leading.getBlockX(), lastY = leading.getBlockY(), lastZ = leading.getBlockZ();
+        while (leading.next() && leading.getDistance() <= sweep.closest) {
+            double distance = leading.getDistance();
+            int blockX = leading.getBlockX(), blockY = leading.getBlockY(), blockZ = leading.getBlockZ();
+            double centerX = x + dirX * distance, centerY = y + dirY * distance, centerZ = z + dirZ * distance;
+            // The layer is one block thick on the axis the corner moved along and spans the box on the other two. The corner's own block
+            // is always part of it, in case rounding puts the box a hair short of it.
+            int fromX = blockX, fromY = blockY, fromZ = blockZ;
+            int toX = blockX, toY = blockY, toZ = blockZ;
+            if (blockX == lastX) {
+                fromX = Math.min(blockX, VoxelTraversal.floor(centerX - halfX));
+                toX = Math.max(blockX, VoxelTraversal.floor(centerX + halfX));
+            }
+            if (blockY == lastY) {
+                fromY = Math.min(blockY, VoxelTraversal.floor(centerY - halfY));
+                toY = Math.max(blockY, VoxelTraversal.floor(centerY + halfY));
+            }
+            if (blockZ == lastZ) {
+                fromZ = Math.min(blockZ, VoxelTraversal.floor(centerZ - halfZ));
+                toZ = Math.max(blockZ, VoxelTraversal.floor(centerZ + halfZ));
+            }
+            sweep.testLayer(fromX, fromY, fromZ, toX, toY, toZ);
+            lastX = blockX;
+            lastY = blockY;
+            lastZ = blockZ;
+        }
+        RayCastMetrics.countBlocks(sweep.visited, sweep.visited);
+        return sweep.getHit(leading);
+    }
+
+    /**
+     * Piercing ray-cast: every entity and block along the ray in one pass, instead of ray-casting again from behind each hit. The hitboxes
+     * the ray enters are found once up front, then merged with the blocks as the ray walks through them.
+     *
+     * @param hitboxes Hitboxes to test, null to only test blocks
+     * @param ignored  Entity the ray can't hit, may be null
+     * @param pierce   Which blocks the ray goes through and when it stops
+     * @return Every hit, closest first
+     */
+    public static List<RayHit> pierce(BlockAccess blocks, @Nullable HitboxSnapshot hitboxes, @Nullable Entity ignored, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, BlockFilter filter, PierceOptions pierce) {
+        double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+        dirX /= length;
+        dirY /= length;
+        dirZ /= length;
+
+        int maxHits = pierce.getMaxHits();
+        int[] entities = hitboxes == null ? new int[0] : hitboxes.rayCastAll(x, y, z, dirX, dirY, dirZ, maxDistance, ignored);
+        List<RayHit> hits = new ArrayList<>(Math.min(maxHits, entities.length + 4));
+        int nextEntity = 0;
+        boolean stopped = false;
+
+        VoxelTraversal traversal = new VoxelTraversal(x, y, z, dirX, dirY, dirZ, maxDistance);
+        long section = Long.MIN_VALUE;
+        int visited = 0;
+        boolean shapes = blocks.hasShapes();
+        boolean topHit = false;
+        while (traversal.next()) {
+            // Entities in front of this block come first
+            while (nextEntity < entities.length && hits.size() < maxHits
+                    && hitboxes.rayIntersect(entities[nextEntity], x, y, z, dirX, dirY, dirZ, maxDistance) <= traversal.getDistance()) {
+                hits.add(hitEntity(hitboxes, entities[nextEntity++], x, y, z, dirX, dirY, dirZ, maxDistance));
+            }
+            if (hits.size() >= maxHits) {
+                stopped = true;
+                break;
+            }
+            if (sectionKey(traversal) != section) {
+                if (canSkipSection(blocks, traversal, shapes)) {
+                    if (!traversal.skipCell(4)) {
+                        break;
+                    }
+                    topHit = false;
+                    continue;
+                }
+                section = sectionKey(traversal);
+            }
+            visited++;
+            int blockX = traversal.getBlockX(), blockY = traversal.getBlockY(), blockZ = traversal.getBlockZ();
+            // A block whose top the ray already went through from the block above is only hit once
+            boolean tested = topHit && traversal.getFace() == BlockFace.UP;
+            topHit = false;
+            RayHit hit = null;
+            if (!tested && blocks.isHit(blockX, blockY, blockZ, filter) && !pierce.passesThrough(blocks.getType(blockX, blockY, blockZ))) {
+                double[] shape = blocks.getShape(blockX, blockY, blockZ);
+                if (shape == null || shape == BlockShapes.FULL_BLOCK) {
+                    hit = RayHit.block(blockX, blockY, blockZ, traversal.getFace(), traversal.getX(), traversal.getY(), traversal.getZ(), traversal.getDistance());
+                } else {
+                    int box = BlockShapes.rayCast(shape, blockX, blockY, blockZ, x, y, z, dirX, dirY, dirZ, maxDistance);
+                    if (box != -1) {
+                        hit = BlockShapes.hitBox(shape, box, blockX, blockY, blockZ, x, y, z, dirX, dirY, dirZ, maxDistance);
+                    }
+                }
+            }
+            if (hit == null && shapes && traversal.getFace() != BlockFace.DOWN) {
+                hit = hitShapeBelow(blocks, blockX, blockY, blockZ, x, y, z, dirX, dirY, dirZ, maxDistance, filter);
+                if (hit != null && pierce.passesThrough(blocks.getType(blockX, blockY - 1, blockZ))) {
+                    hit = null;
+                }
+                topHit = hit != null;
+            }
+            if (hit == null) {
+                continue;
+            }
+            // Entities between the edge of the block and the shape inside it come first
+            while (nextEntity < entities.length && hits.size() < maxHits
+                    && hitboxes.rayIntersect(entities[nextEntity], x, y, z, dirX, dirY, dirZ, maxDistance) <= hit.getDistance()) {
+                hits.add(hitEntity(hitboxes, entities[nextEntity++], x, y, z, dirX, dirY, dirZ, maxDistance));
+            }
+            if (hits.size() >= maxHits) {
+                stopped = true;
+                break;
+            }
+            hits.add(hit);
+            if (pierce.isStopAtSolid()) {
+                stopped = true;
+                break;
+            }
+        }
+        RayCastMetrics.countBlocks(visited, visited);
+        while (!stopped && nextEntity < entities.length && hits.size() < maxHits) {
+            hits.add(hitEntity(hitboxes, entities[nextEntity++], x, y, z, dirX, dirY, dirZ, maxDistance));
+        }
+        return hits;
+    }
+
+    /**
+     * Whether the ray can cross the current chunk section without looking at its blocks. With block shapes the section below has to be
+     * empty too, otherwise a fence or wall in its top layer could reach up into the bottom layer of this one.
+     */
+    private static boolean canSkipSection(BlockAccess blocks, VoxelTraversal traversal, boolean shapes) {
+        int sectionX = traversal.getBlockX() >> 4, sectionY = traversal.getBlockY() >> 4, sectionZ = traversal.getBlockZ() >> 4;
+        return blocks.isSectionEmpty(sectionX, sectionY, sectionZ) && (!shapes || blocks.isSectionEmpty(sectionX, sectionY - 1, sectionZ));
+    }
+
+    /**
+     * Tests the part of the block below that sticks up into this one, like the top half of a fence or wall. Rays that only clip that
+     * part never pass through the block itself.
+     *
+     * @return Hit on the block below, or null if its shape doesn't reach into this block or the ray misses it
+     */
+    @Nullable
+    private static RayHit hitShapeBelow(BlockAccess blocks, int blockX, int blockY, int blockZ, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, BlockFilter filter) {
+        // The shape is only read for blocks that can be tall, air and whole blocks below stop at the type
+        if (!blocks.isHit(blockX, blockY - 1, blockZ, filter) || !BlockShapes.TALL.test(blocks.getType(blockX, blockY - 1, blockZ))) {
+            return null;
+        }
+        double[] shape = blocks.getShape(blockX, blockY - 1, blockZ);
+        if (shape == null || !BlockShapes.isTall(shape)) {
+            return null;
+        }
+        int box = BlockShapes.rayCast(shape, blockX, blockY - 1, blockZ, x, y, z, dirX, dirY, dirZ, maxDistance);
+        return box == -1 ? null : BlockShapes.hitBox(shape, box, blockX, blockY - 1, blockZ, x, y, z, dirX, dirY, dirZ, maxDistance);
+    }
+
+    /**
+     * Finds every hitbox inside a view cone that isn't hidden behind blocks. Hitboxes are first picked by distance and angle, treating
+     * each as the sphere around it so ones only partly in view count too. Then one ray is traced from the origin to the center of each,
+     * and if that's blocked and {@code checkCorners} is set, to points just inside each of its corners until one gets through.
+     *
+     * @param hitboxes     Hitboxes to look for
+     * @param ignored      Entity that is never visible, usually the one looking. May be null.
+     * @param dirX         X component of the view direction, does not have to be normalized
+     * @param dirY         Y component of the view direction
+     * @param dirZ         Z component of the view direction
+     * @param fov          Angle between the view direction and the edge of the view in degrees, half of the full field of view
+     * @param range        How far away hitboxes can be seen
+     * @param checkCorners Whether to look at the corners of hitboxes whose center is hidden
+     * @return Indexes of the visible hitboxes, closest first
+     */
+    public static int[] findVisible(BlockAccess blocks, HitboxSnapshot hitboxes, @Nullable Entity ignored, double x, double y, double z, double dirX, double dirY, double dirZ,
+                                    double fov, double range, boolean checkCorners, BlockFilter filter) {
+        double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+        dirX /= length;
+        dirY /= length;
+        dirZ /= length;
+        double halfAngle = Math.toRadians(Math.min(fov, 180));
+        double cosHalf = Math.cos(halfAngle), sinHalf = Math.sin(halfAngle);
+
+        HitList visible = new HitList();
+        for (int i = 0; i < hitboxes.size(); i++) {
+            if (hitboxes.getEntity(i) == ignored) {
+                continue;
+            }
+            double centerX = (hitboxes.getMinX(i) + hitboxes.getMaxX(i)) * 0.5;
+            double centerY = (hitboxes.getMinY(i) + hitboxes.getMaxY(i)) * 0.5;
+            double centerZ = (hitboxes.getMinZ(i) + hitboxes.getMaxZ(i)) * 0.5;
+            double toX = centerX - x, toY = centerY - y, toZ = centerZ - z;
+            double distance = Math.sqrt(toX * toX + toY * toY + toZ * toZ);
+            double sizeX = hitboxes.getMaxX(i) - hitboxes.getMinX(i);
+            double sizeY = hitboxes.getMaxY(i) - hitboxes.getMinY(i);
+            double sizeZ = hitboxes.getMaxZ(i) - hitboxes.getMinZ(i);
+            double radius = Math.sqrt(sizeX * sizeX + sizeY * sizeY + sizeZ * sizeZ) * 0.5;
+            if (distance - radius > range) {
+                continue;
+            }
+            // The sphere is in view if the angle to its center is at most the view angle plus the angle the sphere takes up,
+            // compared through their sines and cosines so there's no inverse trig per hitbox
+            if (distance > radius) {
+                double sinSphere = radius / distance;
+                double cosSphere = Math.sqrt(1 - sinSphere * sinSphere);
+                // The two angles add up to at least 180 degrees, only possible when the view is wider than 90 degrees
+                boolean everywhere = cosHalf < 0 && sinSphere >= sinHalf;
+                double cosAngle = (toX * dirX + toY * dirY + toZ * dirZ) / distance;
+                if (!everywhere && cosAngle < cosHalf * cosSphere - sinHalf * sinSphere) {
+                    continue;
+                }
+            }
+            if (canSee(blocks, x, y, z, centerX, centerY, centerZ, filter)
+                    || checkCorners && canSeeCorner(blocks, hitboxes, i, x, y, z, centerX, centerY, centerZ, filter)) {
+                visible.add(i, distance);
+            }
+        }
+        RayCastMetrics.countHitboxes(hitboxes.size());
+        return visible.toArray();
+    }
+
+    private static boolean canSeeCorner(BlockAccess blocks, HitboxSnapshot hitboxes, int index, double x, double y, double z,
+                                        double centerX, double centerY, double centerZ, BlockFilter filter) {
+        for (int corner = 0; corner < 8; corner++) {
+            // A tenth of the way in from the corner, so the point isn't on the face of the block the entity stands on or leans against
+            double cornerX = (corner & 1) == 0 ? hitboxes.getMinX(index) : hitboxes.getMaxX(index);
+            double cornerY = (corner & 2) == 0 ? hitboxes.getMinY(index) : hitboxes.getMaxY(index);
+            double cornerZ = (corner & 4) == 0 ? hitboxes.getMinZ(index) : hitboxes.getMaxZ(index);
+            if (canSee(blocks, x, y, z, cornerX + (centerX - cornerX) * 0.1, cornerY + (centerY - cornerY) * 0.1, cornerZ + (centerZ - cornerZ) * 0.1, filter)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Whether no block stops a ray between the two points
+     */
+    public static boolean canSee(BlockAccess blocks, double fromX, double fromY, double fromZ, double toX, double toY, double toZ, BlockFilter filter) {
+        double dirX = toX - fromX, dirY = toY - fromY, dirZ = toZ - fromZ;
+        double distance = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+        return distance == 0 || traverseBlocks(blocks, fromX, fromY, fromZ, dirX / distance, dirY / distance, dirZ / distance, distance, filter).isEmpty();
+    }
+
+    /**
+     * Builds the hit for a hitbox the ray is known to enter, including where and through which face.
+     */
+    public static RayHit hitEntity(HitboxSnapshot hitboxes, int index, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance) {
+        RayIntersection intersection = hitboxes.getBoundingBox(index).intersect(x, y, z, dirX, dirY, dirZ, maxDistance);
+        double distance = intersection.getDistance();
+        return RayHit.entity(hitboxes.getEntity(index), intersection.getFace(), x + dirX * distance, y + dirY * distance, z + dirZ * distance, distance);
+    }
+
+    private static long sectionKey(VoxelTraversal traversal) {
+        return sectionKey(traversal.getBlockX() >> 4, traversal.getBlockY() >> 4, traversal.getBlockZ() >> 4);
+    }
+
+    private static long sectionKey(int sectionX, int sectionY, int sectionZ) {
+        return ((long) (sectionX & 0x3FFFFF) << 42) | ((long) (sectionZ & 0x3FFFFF) << 20) | (sectionY & 0xFFFFF);
+    }
+
+    /**
+     * @return Distance along the ray at which it leaves a chunk section it's inside of
+     */
+    private static double sectionExit(double x, double y, double z, double dirX, double dirY, double dirZ, int sectionX, int sectionY, int sectionZ) {
+        double exitX = dirX > 0 ? ((sectionX + 1 << 4) - x) / dirX : dirX < 0 ? ((sectionX << 4) - x) / dirX : Double.POSITIVE_INFINITY;
+        double exitY = dirY > 0 ? ((sectionY + 1 << 4) - y) / dirY : dirY < 0 ? ((sectionY << 4) - y) / dirY : Double.POSITIVE_INFINITY;
+        double exitZ = dirZ > 0 ? ((sectionZ + 1 << 4) - z) / dirZ : dirZ < 0 ? ((sectionZ << 4) - z) / dirZ : Double.POSITIVE_INFINITY;
+        return Math.min(exitX, Math.min(exitY, exitZ));
+    }
+
+    /**
+     * The closest block found so far by {@link #sweepBlocks(BlockAccess, double, double, double, double, double, double, double, double, double, double, boolean, BlockFilter)}.
+     */
+    private static class BlockSweep {
+
+        private final BlockAccess blocks;
+
+        private final double x, y, z;
+
+        private final double dirX, dirY, dirZ;
+
+        private final double halfX, halfY, halfZ;
+
+        private final boolean sphere;
+
+        private final BlockFilter filter;
+
+        private double closest;
+
+        private boolean found;
+
+        private int blockX, blockY, blockZ;
+
+        private final double[] box = new double[6];
+
+        private long section = Long.MIN_VALUE;
+
+        private boolean sectionEmpty;
+
+        private int visited;
+
+        BlockSweep(BlockAccess blocks, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance,
+                   double halfX, double halfY, double halfZ, boolean sphere, BlockFilter filter) {
+            this.blocks = blocks;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.dirX = dirX;
+            this.dirY = dirY;
+            this.dirZ = dirZ;
+            this.closest = maxDistance;
+            this.halfX = Math.max(0, halfX - SKIN);
+            this.halfY = Math.max(0, halfY - SKIN);
+            this.halfZ = Math.max(0, halfZ - SKIN);
+            this.sphere = sphere;
+            this.filter = filter;
+        }
+
+        void testLayer(int fromX, int fromY, int fromZ, int toX, int toY, int toZ) {
+            for (int blockX = fromX; blockX <= toX; blockX++) {
+                for (int blockY = fromY; blockY <= toY; blockY++) {
+                    for (int blockZ = fromZ; blockZ <= toZ; blockZ++) {
+                        test(blockX, blockY, blockZ);
+                    }
+                }
+            }
+        }
+
+        private void test(int blockX, int blockY, int blockZ) {
+            long key = sectionKey(blockX >> 4, blockY >> 4, blockZ >> 4);
+            if (key != section) {
+                section = key;
+                sectionEmpty = blocks.isSectionEmpty(blockX >> 4, blockY >> 4, blockZ >> 4);
+            }
+            if (sectionEmpty) {
+                return;
+            }
+            visited++;
+            if (!blocks.isHit(blockX, blockY, blockZ, filter)) {
+                return;
+            }
+            double[] shape = blocks.getShape(blockX, blockY, blockZ);
+            if (shape == null) {
+                shape = BlockShapes.FULL_BLOCK;
+            }
+            for (int i = 0; i < shape.length; i += 6) {
+                double minX = blockX + shape[i], minY = blockY + shape[i + 1], minZ = blockZ + shape[i + 2];
+                double maxX = blockX + shape[i + 3], maxY = blockY + shape[i + 4], maxZ = blockZ + shape[i + 5];
+                double distance = sphere
+                        ? SweptVolume.sphereIntersect(minX, minY, minZ, maxX, maxY, maxZ, x, y, z, dirX, dirY, dirZ, halfX, closest)
+                        : SweptVolume.boxIntersect(minX, minY, minZ, maxX, maxY, maxZ, x, y, z, dirX, dirY, dirZ, halfX, halfY, halfZ, closest);
+                if (distance < 0 || found && distance >= closest) {
+                    continue;
+                }
+                found = true;
+                closest = distance;
+                this.blockX = blockX;
+                this.blockY = blockY;
+                this.blockZ = blockZ;
+                box[0] = minX;
+                box[1] = minY;
+                box[2] = minZ;
+                box[3] = maxX;
+                box[4] = maxY;
+                box[5] = maxZ;
+            }
+        }
+
+        RayHit getHit(VoxelTraversal leading) {
+            if (!found) {
+                return RayHit.miss(leading.getBlockX(), leading.getBlockY(), leading.getBlockZ(), leading.getFace());
+            }
+            BlockFace face = SweptVolume.face(box[0], box[1], box[2], box[3], box[4], box[5], x, y, z, dirX, dirY, dirZ, halfX, halfY, halfZ, sphere, closest);
+            return RayHit.block(blockX, blockY, blockZ, face, x + dirX * closest, y + dirY * closest, z + dirZ * closest, closest);
+        }
+    }
+
+    /**
+     * Same as {@link org.bukkit.block.Block#getFace(org.bukkit.block.Block)} for two blocks the given distance apart, without looking
+     * either of them up.
+     */
+    @Nullable
+    static BlockFace getFace(int modX, int modY, int modZ) {
+        if (modX < -2 || modX > 2 || modY < -1 || modY > 1 || modZ < -2 || modZ > 2) {
+            return null;
+        }
+        return FACES[((modX + 2) * 3 + modY + 1) * 5 + modZ + 2];
+    }
+
+    /**
+     * Block faces by their offsets, x from -2 to 2, y from -1 to 1 and z from -2 to 2, which covers every face. Where two faces share
+     * an offset the first one in {@link BlockFace#values()} is kept, like {@link org.bukkit.block.Block#getFace(org.bukkit.block.Block)}.
+     */
+    private static BlockFace[] faces() {
+        BlockFace[] faces = new BlockFace[5 * 3 * 5];
+        for (BlockFace face : BlockFace.values()) {
+            int modX = face.getModX(), modY = face.getModY(), modZ = face.getModZ();
+            if (modX < -2 || modX > 2 || modY < -1 || modY > 1 || modZ < -2 || modZ > 2) {
+                continue;
+            }
+            int index = ((modX + 2) * 3 + modY + 1) * 5 + modZ + 2;
+            if (faces[index] == null) {
+                faces[index] = face;
+            }
+        }
+        return faces;
+    }
+}
@@ -0,0 +1,152 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads block types from {@link ChunkSnapshot}s, so it's safe to use from any thread. Blocks in chunks that weren't captured read as
+ * {@link Material#AIR}.
+ * <br>
+ * Reading block types from snapshots needs a 1.13+ server.
+ */
+public class SnapshotBlockAccess implements BlockAccess {
+
+    private final Map<Long, ChunkSnapshot> chunks;
+
+    private final int minHeight;
+
+    private final int maxHeight;
+
+    private final boolean blockShapes;
+
+    /**
+     * @param chunks    Captured chunks, any implementation of {@link ChunkSnapshot} works
+     * @param minHeight Lowest y coordinate blocks can be read at
+     * @param maxHeight Y coordinate above the highest block that can be read
+     */
+    public SnapshotBlockAccess(Collection<? extends ChunkSnapshot> chunks, int minHeight, int maxHeight) {
+        this(chunks, minHeight, maxHeight, false);
+    }
+
+    /**
+     * @param chunks      Captured chunks, any implementation of {@link ChunkSnapshot} works
+     * @param minHeight   Lowest y coordinate blocks can be read at
+     * @param maxHeight   Y coordinate above the highest block that can be read
+     * @param blockShapes Whether to use the collision shapes of blocks. Only shapes {@link BlockShapes} already has cached are used, other
+     *                    blocks are whole cubes.
+     */
+    public SnapshotBlockAccess(Collection<? extends ChunkSnapshot> chunks, int minHeight, int maxHeight, boolean blockShapes) {
+        this.blockShapes = blockShapes;
+        this.chunks = new HashMap<>();
+        for (ChunkSnapshot chunk : chunks) {
+            this.chunks.put(chunkKey(chunk.getX(), chunk.getZ()), chunk);
+        }
+        this.minHeight = minHeight;
+        this.maxHeight = maxHeight;
+    }
+
+    /**
+     * Captures every loaded chunk a ray passes through. Has to be called on the main thread. Unloaded chunks are left out and read as air.
+     *
+     * @param world       World to capture from
+     * @param x           X coordinate the ray starts at
+     * @param y           Y coordinate the ray starts at
+     * @param z           Z coordinate the ray starts at
+     * @param dirX        X component of the ray direction
+     * @param dirY        Y component of the ray direction
+     * @param dirZ        Z component of the ray direction
+     * @param maxDistance Length of the ray
+     * @return Block access over the captured chunks
+     */
+    public static SnapshotBlockAccess capture(World world, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance) {
+        return new SnapshotBlockAccess(captureChunks(world, x, y, z, dirX, dirY, dirZ, maxDistance, null).values(), getMinHeight(world), world.getMaxHeight());
+    }
+
+    /**
+     * Captures every loaded chunk a ray passes through, reusing the snapshots in {@code cache} and adding new ones to it.
+     *
+     * @param cache Snapshots already taken this tick, may be null
+     * @return The captured chunks by {@link #chunkKey(int, int)}
+     */
+    static Map<Long, ChunkSnapshot> captureChunks(World world, double x, double y, double z, double dirX, double dirY, double dirZ, double maxDistance, Map<Long, ChunkSnapshot> cache) {
+        Map<Long, ChunkSnapshot> captured = new HashMap<>();
+        // A traversal scaled down by 16 visits every chunk section the ray passes through, the chunk is all that matters here
+        VoxelTraversal traversal = new VoxelTraversal(x / 16, y / 16, z / 16, dirX, dirY, dirZ, maxDistance / 16);
+        while (traversal.next()) {
+            int chunkX = traversal.getBlockX();
+            int chunkZ = traversal.getBlockZ();
+            long key = chunkKey(chunkX, chunkZ);
+            if (captured.containsKey(key)) {
+                continue;
+            }
+            ChunkSnapshot snapshot = cache == null ? null : cache.get(key);
+            if (snapshot == null) {
+                if (!world.isChunkLoaded(chunkX, chunkZ)) {
+                    continue;
+                }
+                snapshot = world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(false, false, false);
+                if (cache != null) {
+                    cache.put(key, snapshot);
+                }
+            }
+            captured.put(key, snapshot);
+        }
+        return captured;
+    }
+
+    @Override
+    public Material getType(int x, int y, int z) {
+        if (y < minHeight || y >= maxHeight) {
+            return Material.AIR;
+        }
+        ChunkSnapshot chunk = chunks.get(chunkKey(x >> 4, z >> 4));
+        if (chunk == null) {
+            return Material.AIR;
+        }
+        return chunk.getBlockType(x & 15, y, z & 15);
+    }
+
+    @Override
+    public boolean isSectionEmpty(int sectionX, int sectionY, int sectionZ) {
+        if (sectionY << 4 >= maxHeight || (sectionY + 1) << 4 <= minHeight) {
+            return true;
+        }
+        ChunkSnapshot chunk = chunks.get(chunkKey(sectionX, sectionZ));
+        // Snapshots number their sections from the bottom of the world
+        return chunk == null || chunk.isSectionEmpty(((sectionY << 4) - minHeight) >> 4);
+    }
+
+    @Override
+    public double[] getShape(int x, int y, int z) {
+        if (!blockShapes || y < minHeight || y >= maxHeight) {
+            return null;
+        }
+        ChunkSnapshot chunk = chunks.get(chunkKey(x >> 4, z >> 4));
+        return chunk == null ? null : BlockShapes.getCachedShape(chunk.getBlockData(x & 15, y, z & 15));
+    }
+
+    @Override
+    public boolean hasShapes() {
+        return blockShapes;
+    }
+
+    static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Worlds only go below y 0 since 1.17, older servers don't have {@link World#getMinHeight()}.
+     */
+    static int getMinHeight(World world) {
+        try {
+            return world.getMinHeight();
+        } catch (NoSuchMethodError e) {
+            return 0;
+        }
+    }
+}
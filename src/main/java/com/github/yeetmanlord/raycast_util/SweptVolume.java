@@ -0,0 +1,144 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.block.BlockFace;
+
+/**
+ * Intersects boxes and spheres moving along a ray with a bounding box. A box with half-extents {@code h} touches a bounding box exactly
+ * when its center is inside the bounding box grown by {@code h} on every side, so a box cast is one ray test against the grown box. A
+ * sphere touches it when its center is within the radius of the box, which is the grown box with rounded edges and corners.
+ */
+final class SweptVolume {
+
+    private SweptVolume() {
+    }
+
+    /**
+     * @param originX     X coordinate the center of the box starts at
+     * @param originY     Y coordinate the center of the box starts at
+     * @param originZ     Z coordinate the center of the box starts at
+     * @param dirX        X component of the normalized direction the box moves in
+     * @param dirY        Y component of the normalized direction the box moves in
+     * @param dirZ        Z component of the normalized direction the box moves in
+     * @param halfX       Half the width of the moving box along X
+     * @param halfY       Half the height of the moving box
+     * @param halfZ       Half the width of the moving box along Z
+     * @param maxDistance Maximum distance the box moves
+     * @return Distance the box moves before it touches the bounding box, 0 if it starts touching it, or -1 if it never does
+     */
+    static double boxIntersect(double minX, double minY, double minZ, double maxX, double maxY, double maxZ, double originX, double originY, double originZ,
+                               double dirX, double dirY, double dirZ, double halfX, double halfY, double halfZ, double maxDistance) {
+        return BoundingBox.rayIntersect(minX - halfX, minY - halfY, minZ - halfZ, maxX + halfX, maxY + halfY, maxZ + halfZ,
+                originX, originY, originZ, dirX, dirY, dirZ, maxDistance);
+    }
+
+    /**
+     * The distance from the center of the sphere to the bounding box is a quadratic in the distance moved between the points where the
+     * center crosses one of the planes of the box, so the first contact is the first root of one of at most seven quadratics. The stretches
+     * are walked in order by picking the nearest of the six plane crossings past the start of the current one, which needs no array.
+     *
+     * @param radius      Radius of the moving sphere
+     * @param maxDistance Maximum distance the sphere moves
+     * @return Distance the sphere moves before it touches the bounding box, 0 if it starts touching it, or -1 if it never does
+     */
+    static double sphereIntersect(double minX, double minY, double minZ, double maxX, double maxY, double maxZ, double originX, double originY, double originZ,
+                                  double dirX, double dirY, double dirZ, double radius, double maxDistance) {
+        double toMinX = crossing(minX, originX, dirX), toMaxX = crossing(maxX, originX, dirX);
+        double toMinY = crossing(minY, originY, dirY), toMaxY = crossing(maxY, originY, dirY);
+        double toMinZ = crossing(minZ, originZ, dirZ), toMaxZ = crossing(maxZ, originZ, dirZ);
+
+        double start = 0;
+        do {
+            double end = maxDistance;
+            end = next(start, end, toMinX);
+            end = next(start, end, toMaxX);
+            end = next(start, end, toMinY);
+            end = next(start, end, toMaxY);
+            end = next(start, end, toMinZ);
+            end = next(start, end, toMaxZ);
+
+            double middle = (start + end) * 0.5;
+            // Squared distance to the box as a * t^2 + b * t + c, made up of the axes the center is outside the box on in this stretch
+            double a = 0, b = 0, c = -radius * radius;
+            double x = originX + dirX * middle, y = originY + dirY * middle, z = originZ + dirZ * middle;
+            if (x < minX || x > maxX) {
+                double offset = originX - (x < minX ? minX : maxX);
+                a += dirX * dirX;
+                b += 2 * dirX * offset;
+                c += offset * offset;
+            }
+            if (y < minY || y > maxY) {
+                double offset = originY - (y < minY ? minY : maxY);
+                a += dirY * dirY;
+                b += 2 * dirY * offset;
+                c += offset * offset;
+            }
+            if (z < minZ || z > maxZ) {
+                double offset = originZ - (z < minZ ? minZ : maxZ);
+                a += dirZ * dirZ;
+                b += 2 * dirZ * offset;
+                c += offset * offset;
+            }
+            if ((a * start + b) * start + c <= 0) {
+                return start;
+            }
+            double discriminant = b * b - 4 * a * c;
+            if (a != 0 && discriminant >= 0) {
+                double root = (-b - Math.sqrt(discriminant)) / (2 * a);
+                if (root >= start && root <= end) {
+                    return root;
+                }
+            }
+            start = end;
+        } while (start < maxDistance);
+        return -1;
+    }
+
+    /**
+     * @return Distance along the ray to the plane, infinite if the ray runs along it
+     */
+    private static double crossing(double plane, double origin, double direction) {
+        return direction == 0 ? Double.POSITIVE_INFINITY : (plane - origin) / direction;
+    }
+
+    /**
+     * @return The crossing if it lies between the start and the current end of the stretch, otherwise the current end
+     */
+    private static double next(double start, double end, double crossing) {
+        return crossing > start && crossing < end ? crossing : end;
+    }
+
+    /**
+     * @param distance Distance the volume moved before it touched the box
+     * @param sphere   Whether the volume is a sphere, in which case all half-extents are its radius
+     * @return Face of the bounding box the moving volume touched, {@link BlockFace#SELF} if it started touching the box
+     */
+    static BlockFace face(double minX, double minY, double minZ, double maxX, double maxY, double maxZ, double originX, double originY, double originZ,
+                          double dirX, double dirY, double dirZ, double halfX, double halfY, double halfZ, boolean sphere, double distance) {
+        if (distance == 0) {
+            return BlockFace.SELF;
+        }
+        if (sphere) {
+            // The sphere touches the closest point of the box, the face is on the axis the center is furthest outside the box on
+            double x = originX + dirX * distance, y = originY + dirY * distance, z = originZ + dirZ * distance;
+            double outX = x - Math.max(minX, Math.min(maxX, x));
+            double outY = y - Math.max(minY, Math.min(maxY, y));
+            double outZ = z - Math.max(minZ, Math.min(maxZ, z));
+            if (Math.abs(outX) >= Math.abs(outY) && Math.abs(outX) >= Math.abs(outZ)) {
+                return outX > 0 ? BlockFace.EAST : BlockFace.WEST;
+            } else if (Math.abs(outY) >= Math.abs(outZ)) {
+                return outY > 0 ? BlockFace.UP : BlockFace.DOWN;
+            }
+            return outZ > 0 ? BlockFace.SOUTH : BlockFace.NORTH;
+        }
+        // The face is on the axis whose slab of the grown box was entered last
+        double tx = dirX == 0 ? Double.NEGATIVE_INFINITY : ((dirX > 0 ? minX - halfX : maxX + halfX) - originX) / dirX;
+        double ty = dirY == 0 ? Double.NEGATIVE_INFINITY : ((dirY > 0 ? minY - halfY : maxY + halfY) - originY) / dirY;
+        double tz = dirZ == 0 ? Double.NEGATIVE_INFINITY : ((dirZ > 0 ? minZ - halfZ : maxZ + halfZ) - originZ) / dirZ;
+        if (tx >= ty && tx >= tz) {
+            return dirX > 0 ? BlockFace.WEST : BlockFace.EAST;
+        } else if (ty >= tz) {
+            return dirY > 0 ? BlockFace.DOWN : BlockFace.UP;
+        }
+        return dirZ > 0 ? BlockFace.NORTH : BlockFace.SOUTH;
+    }
+}
@@ -0,0 +1,215 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.block.BlockFace;
+
+/**
+ * Walks every block a ray passes through exactly once and in order, using the grid stepping algorithm described by
+ * Amanatides and Woo ("A Fast Voxel Traversal Algorithm for Ray Tracing"). Unlike the fixed step ray-casts this never
+ * skips the corner of a block and never samples the same block twice, so the number of block lookups is the number of
+ * blocks the ray actually crosses.
+ * <br>
+ * The first call to {@link #next()} moves to the block containing the origin, every call after that moves to the
+ * following block along the ray. After each successful call {@link #getBlockX()}, {@link #getBlockY()},
+ * {@link #getBlockZ()}, {@link #getDistance()} and {@link #getFace()} describe the current block.
+ */
+public class VoxelTraversal {
+
+    private final double originX;
+    private final double originY;
+    private final double originZ;
+
+    private final double dirX;
+    private final double dirY;
+    private final double dirZ;
+
+    private final double maxDistance;
+
+    private final int stepX;
+    private final int stepY;
+    private final int stepZ;
+
+    private final double deltaX;
+    private final double deltaY;
+    private final double deltaZ;
+
+    private double nextX;
+    private double nextY;
+    private double nextZ;
+
+    private int blockX;
+    private int blockY;
+    private int blockZ;
+
+    private double distance;
+
+    private BlockFace face;
+
+    private boolean started;
+
+    /**
+     * @param originX     X coordinate the ray starts at
+     * @param originY     Y coordinate the ray starts at
+     * @param originZ     Z coordinate the ray starts at
+     * @param dirX        X component of the ray direction, does not have to be normalized
+     * @param dirY        Y component of the ray direction, does not have to be normalized
+     * @param dirZ        Z component of the ray direction, does not have to be normalized
+     * @param maxDistance How far along the ray to walk. Blocks entered after this distance are not visited.
+     */
+    public VoxelTraversal(double originX, double originY, double originZ, double dirX, double dirY, double dirZ, double maxDistance) {
+        double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+        if (length == 0 || Double.isNaN(length)) {
+            throw new IllegalArgumentException("Ray direction must not be zero");
+        }
+        this.originX = originX;
+        this.originY = originY;
+        this.originZ = originZ;
+        this.dirX = dirX / length;
+        this.dirY = dirY / length;
+        this.dirZ = dirZ / length;
+        this.maxDistance = maxDistance;
+
+        this.blockX = floor(originX);
+        this.blockY = floor(originY);
+        this.blockZ = floor(originZ);
+
+        this.stepX = (int) Math.signum(this.dirX);
+        this.stepY = (int) Math.signum(this.dirY);
+        this.stepZ = (int) Math.signum(this.dirZ);
+
+        this.deltaX = stepX == 0 ? Double.POSITIVE_INFINITY : Math.abs(1D / this.dirX);
+        this.deltaY = stepY == 0 ? Double.POSITIVE_INFINITY : Math.abs(1D / this.dirY);
+        this.deltaZ = stepZ == 0 ? Double.POSITIVE_INFINITY : Math.abs(1D / this.dirZ);
+
+        this.nextX = firstBoundary(originX, blockX, stepX, deltaX);
+        this.nextY = firstBoundary(originY, blockY, stepY, deltaY);
+        this.nextZ = firstBoundary(originZ, blockZ, stepZ, deltaZ);
+    }
+
+    /**
+     * Moves to the next block along the ray.
+     *
+     * @return False if the next block would be entered after the maximum distance, in which case the traversal is over
+     */
+    public boolean next() {
+        if (!started) {
+            started = true;
+            distance = 0;
+            face = BlockFace.SELF;
+            return maxDistance >= 0;
+        }
+        step(nextAxis());
+        return distance <= maxDistance;
+    }
+
+    /**
+     * Moves to the last block along the ray inside the current cell of a coarser grid, without stopping at the blocks in between. Cells are
+     * {@code 1 << shift} blocks wide and aligned the same way chunk sections are (a shift of 4 skips the rest of a chunk section), so the
+     * following {@link #next()} enters the next cell. Only call this after {@link #next()} returned true.
+     *
+     * @param shift Log2 of the cell size
+     * @return False if the ray ends inside the cell, in which case the traversal is over
+     */
+    public boolean skipCell(int shift) {
+        while (true) {
+            int axis = nextAxis();
+            int block = axis == 0 ? blockX : axis == 1 ? blockY : blockZ;
+            int step = axis == 0 ? stepX : axis == 1 ? stepY : stepZ;
+            if ((block + step) >> shift != block >> shift) {
+                return true;
+            }
+            if ((axis == 0 ? nextX : axis == 1 ? nextY : nextZ) > maxDistance) {
+                return false;
+            }
+            step(axis);
+        }
+    }
+
+    /**
+     * @return The axis whose next block boundary is closest: 0 for x, 1 for y, 2 for z
+     */
+    private int nextAxis() {
+        if (nextX < nextY) {
+            return nextX < nextZ ? 0 : 2;
+        }
+        return nextY < nextZ ? 1 : 2;
+    }
+
+    private void step(int axis) {
+        if (axis == 0) {
+            distance = nextX;
+            blockX += stepX;
+            nextX += deltaX;
+            face = stepX > 0 ? BlockFace.WEST : BlockFace.EAST;
+        } else if (axis == 1) {
+            distance = nextY;
+            blockY += stepY;
+            nextY += deltaY;
+            face = stepY > 0 ? BlockFace.DOWN : BlockFace.UP;
+        } else {
+            distance = nextZ;
+            blockZ += stepZ;
+            nextZ += deltaZ;
+            face = stepZ > 0 ? BlockFace.NORTH : BlockFace.SOUTH;
+        }
+    }
+
+    public int getBlockX() {
+        return blockX;
+    }
+
+    public int getBlockY() {
+        return blockY;
+    }
+
+    public int getBlockZ() {
+        return blockZ;
+    }
+
+    /**
+     * @return Distance from the origin at which the ray entered the current block, 0 for the block the ray starts in
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return Face of the current block the ray entered through, {@link BlockFace#SELF} for the block the ray starts in
+     */
+    public BlockFace getFace() {
+        return face;
+    }
+
+    /**
+     * @return X coordinate at which the ray entered the current block
+     */
+    public double getX() {
+        return originX + dirX * distance;
+    }
+
+    /**
+     * @return Y coordinate at which the ray entered the current block
+     */
+    public double getY() {
+        return originY + dirY * distance;
+    }
+
+    /**
+     * @return Z coordinate at which the ray entered the current block
+     */
+    public double getZ() {
+        return originZ + dirZ * distance;
+    }
+
+    private static double firstBoundary(double origin, int block, int step, double delta) {
+        if (step == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double boundary = step > 0 ? block + 1 - origin : origin - block;
+        return boundary * delta;
+    }
+
+    static int floor(double value) {
+        int i = (int) value;
+        return value < i ? i - 1 : i;
+    }
+}
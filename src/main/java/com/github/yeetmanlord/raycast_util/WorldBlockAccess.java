@@ -0,0 +1,78 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+/**
+ * Reads block types straight from a live world. Only use this on the main thread.
+ * <br>
+ * The live world has no cheap way to tell whether a chunk section is empty, so only sections above or below the world and in unloaded
+ * chunks are skipped. Ray-casts that skip sections don't load chunks.
+ */
+public class WorldBlockAccess implements BlockAccess {
+
+    private final World world;
+
+    private final boolean blockShapes;
+
+    private final int minHeight;
+
+    private final int maxHeight;
+
+    /**
+     * Block of the last lookup. A step that tests a block and then reads its shape gets the block from the world once.
+     */
+    private Block lastBlock;
+
+    private int lastX, lastY, lastZ;
+
+    public WorldBlockAccess(World world) {
+        this(world, false);
+    }
+
+    /**
+     * @param world       World to read
+     * @param blockShapes Whether to read the collision shapes of blocks, if false every block is a whole cube
+     */
+    public WorldBlockAccess(World world, boolean blockShapes) {
+        this.world = world;
+        this.blockShapes = blockShapes;
+        this.minHeight = SnapshotBlockAccess.getMinHeight(world);
+        this.maxHeight = world.getMaxHeight();
+    }
+
+    @Override
+    public Material getType(int x, int y, int z) {
+        return getBlock(x, y, z).getType();
+    }
+
+    @Override
+    public boolean isSectionEmpty(int sectionX, int sectionY, int sectionZ) {
+        return sectionY << 4 >= maxHeight || (sectionY + 1) << 4 <= minHeight || !world.isChunkLoaded(sectionX, sectionZ);
+    }
+
+    @Override
+    public double[] getShape(int x, int y, int z) {
+        return blockShapes ? BlockShapes.getShape(getBlock(x, y, z)) : null;
+    }
+
+    @Override
+    public boolean hasShapes() {
+        return blockShapes;
+    }
+
+    private Block getBlock(int x, int y, int z) {
+        if (lastBlock == null || x != lastX || y != lastY || z != lastZ) {
+            lastBlock = world.getBlockAt(x, y, z);
+            lastX = x;
+            lastY = y;
+            lastZ = z;
+        }
+        return lastBlock;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+}
@@ -0,0 +1,88 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.Entity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AsyncRayCasterTest {
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(task -> new Thread(task, "worker"));
+
+    private final ExecutorService mainThread = Executors.newSingleThreadExecutor(task -> new Thread(task, "main"));
+
+    private final AsyncRayCaster caster = new AsyncRayCaster(worker, mainThread);
+
+    @AfterEach
+    void shutDown() {
+        worker.shutdownNow();
+        mainThread.shutdownNow();
+    }
+
+    @Test
+    void tracesStandInSnapshotsOnTheWorker() throws Exception {
+        SnapshotBlockAccess blocks = new StandInWorld(-64, 320).set(0, 60, 10, Material.STONE).blocks();
+        Entity entity = StandInWorld.proxy(Entity.class, (method, args) -> null);
+        HitboxSnapshot hitboxes = HitboxSnapshot.of(new Entity[]{entity}, new double[]{0.2}, new double[]{60}, new double[]{5},
+                new double[]{0.8}, new double[]{61.8}, new double[]{5.6}, 0);
+
+        RayHit hit = get(caster.trace(blocks, hitboxes, null, 0.5, 60.5, 0.5, 0, 0, 1, 20, BlockFilter.DEFAULT));
+        assertEquals(ResultType.ENTITY, hit.getType());
+        assertEquals(entity, hit.getEntity());
+        assertEquals(4.5, hit.getDistance(), 1e-9);
+
+        hit = get(caster.trace(blocks, hitboxes, entity, 0.5, 60.5, 0.5, 0, 0, 1, 20, BlockFilter.DEFAULT));
+        assertEquals(ResultType.BLOCK, hit.getType());
+        assertEquals(10, hit.getBlockZ());
+        assertEquals(BlockFace.NORTH, hit.getFace());
+    }
+
+    @Test
+    void completesOnTheMainThread() throws Exception {
+        // The chunks are captured on the calling thread, which stands in for the server's main thread here
+        World world = new StandInWorld(-64, 320).set(0, 60, 10, Material.STONE).world();
+        CompletableFuture<String> thread = caster.rayCastBlocks(world, 0.5, 60.5, 0.5, 0, 0, 1, 20, new RayCastOptions())
+                .thenApply(result -> {
+                    assertEquals(ResultType.BLOCK, result.getType());
+                    assertEquals(10, result.getBlock().getZ());
+                    return Thread.currentThread().getName();
+                });
+        assertEquals("main", get(thread));
+    }
+
+    @Test
+    void passesFailuresOnFromTheMainThread() {
+        World world = new StandInWorld(-64, 320).set(0, 60, 10, Material.STONE).failing().world();
+        CompletableFuture<String> thread = new CompletableFuture<>();
+        caster.rayCastBlocks(world, 0.5, 60.5, 0.5, 0, 0, 1, 20, new RayCastOptions())
+                .whenComplete((result, failure) -> thread.complete(Thread.currentThread().getName()));
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> get(caster.rayCastBlocks(world, 0.5, 60.5, 0.5, 0, 0, 1, 20, new RayCastOptions())));
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        assertEquals("main", thread.join());
+    }
+
+    @Test
+    void readsUnloadedChunksAsAir() throws Exception {
+        StandInWorld standIn = new StandInWorld(-64, 320);
+        standIn.load(0, 0);
+        BlockRayCastResult result = get(caster.rayCastBlocks(standIn.world(), 0.5, 60.5, 0.5, 0, 0, 1, 40, new RayCastOptions()));
+        assertEquals(ResultType.EMPTY, result.getType());
+    }
+
+    private static <T> T get(CompletableFuture<T> future) throws Exception {
+        return future.get(10, TimeUnit.SECONDS);
+    }
+}
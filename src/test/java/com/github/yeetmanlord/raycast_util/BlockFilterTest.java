@@ -0,0 +1,73 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.Material;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockFilterTest {
+
+    @Test
+    void defaultStopsAtEverythingButAir() {
+        assertFalse(BlockFilter.DEFAULT.test(Material.AIR));
+        assertTrue(BlockFilter.DEFAULT.test(Material.STONE));
+        assertTrue(BlockFilter.DEFAULT.test(Material.WATER));
+        assertTrue(BlockFilter.DEFAULT.passesOnlyAir());
+    }
+
+    @Test
+    void ignoreLiquidsPassesWaterAndLava() {
+        assertFalse(BlockFilter.IGNORE_LIQUIDS.test(Material.WATER));
+        assertFalse(BlockFilter.IGNORE_LIQUIDS.test(Material.LAVA));
+        assertTrue(BlockFilter.IGNORE_LIQUIDS.test(Material.STONE));
+        assertFalse(BlockFilter.IGNORE_LIQUIDS.passesOnlyAir());
+    }
+
+    @Test
+    void copiesLeaveTheOriginalAlone() {
+        BlockFilter glass = BlockFilter.DEFAULT.passingThrough(Material.GLASS);
+        assertFalse(glass.test(Material.GLASS));
+        assertTrue(BlockFilter.DEFAULT.test(Material.GLASS));
+
+        BlockFilter air = glass.stoppingAt(Material.AIR);
+        assertTrue(air.test(Material.AIR));
+        assertFalse(air.test(Material.GLASS));
+        assertFalse(glass.test(Material.AIR));
+    }
+
+    @Test
+    void collectionsStopAtExactlyTheirMaterials() {
+        BlockFilter stone = BlockFilter.of(Arrays.asList(Material.STONE, Material.OAK_FENCE));
+        for (Material type : Material.values()) {
+            assertEquals(type == Material.STONE || type == Material.OAK_FENCE, stone.test(type));
+        }
+    }
+
+    @Test
+    void predicatesAreOnlyAskedOncePerMaterial() {
+        AtomicInteger calls = new AtomicInteger();
+        BlockFilter filter = BlockFilter.of(type -> {
+            calls.incrementAndGet();
+            return type == Material.STONE;
+        });
+        assertEquals(Material.values().length, calls.get());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(filter.test(Material.STONE));
+            assertFalse(filter.test(Material.GLASS));
+        }
+        assertEquals(Material.values().length, calls.get());
+    }
+
+    @Test
+    void findsOnlyExistingMaterials() {
+        Material[] found = BlockFilter.existing("STONE", "NOT_A_MATERIAL", "AIR");
+        assertEquals(2, found.length);
+        assertEquals(Material.STONE, found[0]);
+        assertEquals(Material.AIR, found[1]);
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BoundingBoxTest {
+
+    private final BoundingBox box = new BoundingBox(0, 0, 0, 1, 2, 1);
+
+    @Test
+    void entersFromOutside() {
+        assertEquals(2, box.rayIntersect(-2, 1, 0.5, 1, 0, 0, 10), 1e-12);
+        assertEquals(3, box.rayIntersect(0.5, 5, 0.5, 0, -1, 0, 10), 1e-12);
+    }
+
+    @Test
+    void entersDiagonally() {
+        double dir = Math.sqrt(0.5);
+        assertEquals(Math.sqrt(2), box.rayIntersect(-1, 1, -1, dir, 0, dir, 10), 1e-12);
+    }
+
+    @Test
+    void startsInside() {
+        assertEquals(0, box.rayIntersect(0.5, 1, 0.5, 0, 0, 1, 10), 0);
+    }
+
+    @Test
+    void misses() {
+        assertEquals(-1, box.rayIntersect(-2, 1, 0.5, -1, 0, 0, 10), 0);
+        assertEquals(-1, box.rayIntersect(-2, 3, 0.5, 1, 0, 0, 10), 0);
+        double dir = Math.sqrt(0.5);
+        assertEquals(-1, box.rayIntersect(-2, 1, 0.5, dir, 0, dir, 10), 0);
+    }
+
+    @Test
+    void stopsAtTheMaximumDistance() {
+        assertEquals(-1, box.rayIntersect(-2, 1, 0.5, 1, 0, 0, 1.5), 0);
+        assertEquals(2, box.rayIntersect(-2, 1, 0.5, 1, 0, 0, 2), 1e-12);
+    }
+
+    @Test
+    void parallelRaysOnlyHitInsideTheSlab() {
+        // Parallel to the x slab: the origin has to be between its planes, the faces count as inside
+        assertEquals(1, BoundingBox.rayIntersect(0, 0, 0, 1, 1, 1, 1, 0.5, -1, 0, 0, 1, 10), 1e-12);
+        assertEquals(-1, BoundingBox.rayIntersect(0, 0, 0, 1, 1, 1, 1.01, 0.5, -1, 0, 0, 1, 10), 0);
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.entity.Entity;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HitboxGridTest {
+
+    @Test
+    void findsTheSameHitsAsTestingEveryHitbox() {
+        Random random = new Random(3);
+        HitboxSnapshot hitboxes = randomHitboxes(random, 300);
+        HitboxGrid grid = new HitboxGrid(hitboxes, HitboxGrid.DEFAULT_CELL_SIZE);
+        for (int ray = 0; ray < 2000; ray++) {
+            double x = random.nextDouble() * 60 - 30, y = random.nextDouble() * 20 - 10, z = random.nextDouble() * 60 - 30;
+            double dirX = random.nextGaussian(), dirY = random.nextGaussian() * 0.3, dirZ = random.nextGaussian();
+            double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+            dirX /= length;
+            dirY /= length;
+            dirZ /= length;
+            Entity ignored = ray % 2 == 0 ? null : hitboxes.getEntity(random.nextInt(hitboxes.size()));
+
+            int expected = -1;
+            double closest = Double.POSITIVE_INFINITY;
+            int hits = 0;
+            for (int i = 0; i < hitboxes.size(); i++) {
+                double distance = hitboxes.rayIntersect(i, x, y, z, dirX, dirY, dirZ, 40);
+                if (distance >= 0 && hitboxes.getEntity(i) != ignored) {
+                    hits++;
+                    if (distance < closest) {
+                        closest = distance;
+                        expected = i;
+                    }
+                }
+            }
+
+            int hit = grid.rayCast(x, y, z, dirX, dirY, dirZ, 40, ignored);
+            if (expected == -1) {
+                assertEquals(-1, hit);
+            } else {
+                // Boxes entered at the same distance can come back in either order
+                assertEquals(closest, hitboxes.rayIntersect(hit, x, y, z, dirX, dirY, dirZ, 40), 1e-12);
+            }
+            int[] all = grid.rayCastAll(x, y, z, dirX, dirY, dirZ, 40, ignored);
+            assertEquals(hits, all.length);
+            for (int i = 1; i < all.length; i++) {
+                double previous = hitboxes.rayIntersect(all[i - 1], x, y, z, dirX, dirY, dirZ, 40);
+                assertTrue(previous <= hitboxes.rayIntersect(all[i], x, y, z, dirX, dirY, dirZ, 40));
+            }
+        }
+    }
+
+    @Test
+    void findsTheHitboxContainingAPoint() {
+        Entity first = entity(), second = entity();
+        HitboxSnapshot hitboxes = HitboxSnapshot.of(new Entity[]{first, second},
+                new double[]{0, 10}, new double[]{0, 0}, new double[]{0, 10},
+                new double[]{1, 11}, new double[]{2, 2}, new double[]{1, 11}, 0);
+        HitboxGrid grid = new HitboxGrid(hitboxes, 4);
+        assertEquals(0, grid.findContaining(0.5, 1, 0.5, null));
+        assertEquals(1, grid.findContaining(10.5, 1.5, 10.5, null));
+        assertEquals(-1, grid.findContaining(5, 1, 5, null));
+        assertEquals(-1, grid.findContaining(0.5, 1, 0.5, first));
+    }
+
+    @Test
+    void indexesHitboxesSpanningManyCells() {
+        HitboxSnapshot hitboxes = HitboxSnapshot.of(new Entity[]{entity()},
+                new double[]{-9}, new double[]{0}, new double[]{-1}, new double[]{9}, new double[]{1}, new double[]{1}, 0);
+        HitboxGrid grid = new HitboxGrid(hitboxes, 2);
+        assertEquals(0, grid.rayCast(8.5, 5, 0, 0, -1, 0, 10, null));
+        assertEquals(0, grid.rayCast(-8.5, 5, 0, 0, -1, 0, 10, null));
+        assertArrayEquals(new int[0], grid.rayCastAll(9.5, 5, 0, 0, -1, 0, 10, null));
+    }
+
+    private static HitboxSnapshot randomHitboxes(Random random, int size) {
+        Entity[] entities = new Entity[size];
+        double[] minX = new double[size], minY = new double[size], minZ = new double[size];
+        double[] maxX = new double[size], maxY = new double[size], maxZ = new double[size];
+        for (int i = 0; i < size; i++) {
+            entities[i] = entity();
+            minX[i] = random.nextDouble() * 60 - 30;
+            minY[i] = random.nextDouble() * 20 - 10;
+            minZ[i] = random.nextDouble() * 60 - 30;
+            // Mostly mob sized, a few large enough to span several cells
+            double width = random.nextInt(10) == 0 ? random.nextDouble() * 10 : random.nextDouble();
+            maxX[i] = minX[i] + width;
+            maxY[i] = minY[i] + random.nextDouble() * 2;
+            maxZ[i] = minZ[i] + width;
+        }
+        return HitboxSnapshot.of(entities, minX, minY, minZ, maxX, maxY, maxZ, 0);
+    }
+
+    private static Entity entity() {
+        return StandInWorld.proxy(Entity.class, (method, args) -> null);
+    }
+}
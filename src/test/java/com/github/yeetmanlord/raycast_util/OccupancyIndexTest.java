@@ -0,0 +1,56 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.Material;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class OccupancyIndexTest {
+
+    @Test
+    void setsOneBitPerStoppingBlock() {
+        StandInWorld world = new StandInWorld(-64, 64)
+                .set(3, 17, 5, Material.STONE)
+                .set(15, -64, 15, Material.STONE)
+                .set(0, 20, 0, Material.WATER);
+        long[][] sections = OccupancyIndex.build(world.snapshot(0, 0), -64, 8, BlockFilter.IGNORE_LIQUIDS);
+        assertEquals(8, sections.length);
+
+        // y 17 is 81 blocks above the bottom of the world: section 5, y 1 inside it
+        long[] bits = sections[5];
+        assertNotNull(bits);
+        int bit = (1 << 8) | (5 << 4) | 3;
+        assertEquals(1L << (bit & 63), bits[bit >>> 6]);
+        assertEquals(1, bitCount(bits));
+
+        int corner = (15 << 4) | 15;
+        assertEquals(1L << (corner & 63), sections[0][corner >>> 6]);
+        assertEquals(1, bitCount(sections[0]));
+
+        // Sections with nothing that stops the ray, even if they aren't empty, have no bitmap
+        for (int section = 1; section < 8; section++) {
+            if (section != 5) {
+                assertNull(sections[section]);
+            }
+        }
+    }
+
+    @Test
+    void readsEmptySectionsWhenAirStops() {
+        StandInWorld world = new StandInWorld(0, 32);
+        world.load(0, 0);
+        long[][] sections = OccupancyIndex.build(world.snapshot(0, 0), 0, 2, BlockFilter.of(type -> type == Material.AIR));
+        assertEquals(4096, bitCount(sections[0]));
+        assertEquals(4096, bitCount(sections[1]));
+    }
+
+    private static int bitCount(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
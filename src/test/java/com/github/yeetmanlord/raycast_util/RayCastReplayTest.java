@@ -0,0 +1,83 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RayCastReplayTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void readsSectionBitsTheWayTheRecorderWritesThem() throws IOException {
+        // One solid block at (-3, 70, 21): section (-1, 4, 1), 13 blocks in along x, 6 up and 5 in along z
+        long[] bits = new long[64];
+        int bit = (6 << 8) | (5 << 4) | 13;
+        bits[bit >>> 6] |= 1L << bit;
+
+        ByteBuffer trace = ByteBuffer.allocate(4096);
+        trace.putInt(RayCastRecorder.MAGIC).putShort(RayCastRecorder.VERSION);
+        byte[] name = "world".getBytes(StandardCharsets.UTF_8);
+        trace.put(RayCastRecorder.WORLD).putShort((short) 0).putShort((short) name.length).put(name);
+        trace.put(RayCastRecorder.SECTION).putShort((short) 0).putInt(-1).putInt(4).putInt(1).put((byte) 1);
+        for (long word : bits) {
+            trace.putLong(word);
+        }
+        trace.put(RayCastRecorder.SECTION).putShort((short) 0).putInt(-1).putInt(4).putInt(0).put((byte) 0);
+        // Straight at the block from above, then one block over where there's nothing
+        cast(trace, CastMethod.RAY_CAST_BLOCKS, ResultType.BLOCK, -2.5, 79.5, 21.5, 0, -1, 0);
+        cast(trace, CastMethod.RAY_CAST_BLOCKS, ResultType.EMPTY, -1.5, 79.5, 21.5, 0, -1, 0);
+        cast(trace, CastMethod.RAY_CAST, ResultType.BLOCK, -2.5, 70.5, 10.5, 0, 0, 1);
+        cast(trace, CastMethod.RAY_CAST, ResultType.EMPTY, -2.5, 70.5, 10.5, 0, 0, -1);
+
+        RayCastReplay replay = RayCastReplay.load(write(trace));
+        assertEquals(4, replay.getCastCount());
+        assertEquals(2, replay.getSectionCount());
+        assertEquals("world", replay.getWorlds().get(0));
+        replay.run();
+        assertEquals(0, replay.getMismatches());
+        assertEquals(4, replay.getReplayedNanos().length);
+    }
+
+    @Test
+    void rejectsCastsItCantReplay() throws IOException {
+        ByteBuffer trace = ByteBuffer.allocate(256);
+        trace.putInt(RayCastRecorder.MAGIC).putShort(RayCastRecorder.VERSION);
+        cast(trace, CastMethod.SWEEP, ResultType.EMPTY, 0, 0, 0, 1, 0, 0);
+        Path file = write(trace);
+        assertThrows(IOException.class, () -> RayCastReplay.load(file));
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path file = folder.resolve("other.trace");
+        Files.write(file, "not a trace".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> RayCastReplay.load(file));
+    }
+
+    /**
+     * Writes a cast record without hitboxes, laid out like {@link RayCastRecorder} writes them.
+     */
+    private static void cast(ByteBuffer trace, CastMethod method, ResultType result, double x, double y, double z, double dirX, double dirY, double dirZ) {
+        trace.put(RayCastRecorder.CAST).putShort((short) 0).put((byte) method.ordinal()).put((byte) -1).put((byte) 0).put((byte) result.ordinal())
+                .putLong(0).putLong(1000)
+                .putDouble(x).putDouble(y).putDouble(z).putDouble(dirX).putDouble(dirY).putDouble(dirZ).putDouble(20)
+                .putInt(0);
+    }
+
+    private Path write(ByteBuffer trace) throws IOException {
+        Path file = Files.createTempFile(folder, "casts", ".trace");
+        Files.write(file, Arrays.copyOf(trace.array(), trace.position()));
+        return file;
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.Material;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RayTracerTest {
+
+    private static final double[] FENCE_POST = {0.375, 0, 0.375, 0.625, 1.5, 0.625};
+
+    @Test
+    void hitsFencesReachingUpIntoAnEmptySection() {
+        // The fence is in the top layer of section 0, the ray only crosses the bottom layer of the empty section 1 above it
+        BlockAccess blocks = fenceAt(5, 15, 0);
+        RayHit hit = RayTracer.traverseBlocks(blocks, 0.5, 16.25, 0.5, 1, 0, 0, 10, BlockFilter.DEFAULT);
+        assertEquals(ResultType.BLOCK, hit.getType());
+        assertEquals(5, hit.getBlockX());
+        assertEquals(15, hit.getBlockY());
+        assertEquals(4.875, hit.getDistance(), 1e-9);
+
+        assertTrue(RayTracer.traverseBlocks(blocks, 0.5, 16.75, 0.5, 1, 0, 0, 10, BlockFilter.DEFAULT).isEmpty());
+    }
+
+    @Test
+    void piercesFencesReachingUpIntoAnEmptySection() {
+        BlockAccess blocks = fenceAt(5, 15, 0);
+        List<RayHit> hits = RayTracer.pierce(blocks, null, null, 0.5, 16.25, 0.5, 1, 0, 0, 10, BlockFilter.DEFAULT, new PierceOptions());
+        assertEquals(1, hits.size());
+        assertEquals(15, hits.get(0).getBlockY());
+        assertEquals(4.875, hits.get(0).getDistance(), 1e-9);
+    }
+
+    @Test
+    void hitsFencesFromTheSectionBelowWhenFallingIntoIt() {
+        // Straight down onto the post, entering its top half from the empty section above
+        RayHit hit = RayTracer.traverseBlocks(fenceAt(5, 15, 0), 5.5, 40, 0.5, 0, -1, 0, 40, BlockFilter.DEFAULT);
+        assertEquals(ResultType.BLOCK, hit.getType());
+        assertEquals(15, hit.getBlockY());
+        assertEquals(40 - 16.5, hit.getDistance(), 1e-9);
+    }
+
+    /**
+     * Air everywhere but one fence post, with every section but the fence's reported empty.
+     */
+    private static BlockAccess fenceAt(int fenceX, int fenceY, int fenceZ) {
+        return new BlockAccess() {
+
+            @Override
+            public Material getType(int x, int y, int z) {
+                return x == fenceX && y == fenceY && z == fenceZ ? Material.OAK_FENCE : Material.AIR;
+            }
+
+            @Override
+            public double[] getShape(int x, int y, int z) {
+                return x == fenceX && y == fenceY && z == fenceZ ? FENCE_POST : null;
+            }
+
+            @Override
+            public boolean hasShapes() {
+                return true;
+            }
+
+            @Override
+            public boolean isSectionEmpty(int sectionX, int sectionY, int sectionZ) {
+                return sectionX != fenceX >> 4 || sectionY != fenceY >> 4 || sectionZ != fenceZ >> 4;
+            }
+        };
+    }
+}
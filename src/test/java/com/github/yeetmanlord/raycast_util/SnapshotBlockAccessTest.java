@@ -0,0 +1,57 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.Material;
+import org.bukkit.block.BlockFace;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotBlockAccessTest {
+
+    @Test
+    void readsTheRightChunk() {
+        SnapshotBlockAccess blocks = new StandInWorld(-64, 320)
+                .set(-1, -64, -1, Material.STONE)
+                .set(16, 100, 0, Material.GLASS)
+                .set(0, 319, 0, Material.WATER)
+                .blocks();
+        assertEquals(Material.STONE, blocks.getType(-1, -64, -1));
+        assertEquals(Material.GLASS, blocks.getType(16, 100, 0));
+        assertEquals(Material.WATER, blocks.getType(0, 319, 0));
+        assertEquals(Material.AIR, blocks.getType(15, -64, 15));
+        assertEquals(Material.AIR, blocks.getType(0, 100, 0));
+    }
+
+    @Test
+    void readsAirOutsideTheSnapshots() {
+        SnapshotBlockAccess blocks = new StandInWorld(0, 64).set(0, 0, 0, Material.STONE).blocks();
+        assertEquals(Material.AIR, blocks.getType(0, -1, 0));
+        assertEquals(Material.AIR, blocks.getType(0, 64, 0));
+        assertEquals(Material.AIR, blocks.getType(16, 0, 0));
+        assertTrue(blocks.isSectionEmpty(1, 0, 0));
+        assertTrue(blocks.isSectionEmpty(0, -1, 0));
+        assertTrue(blocks.isSectionEmpty(0, 4, 0));
+    }
+
+    @Test
+    void numbersSectionsFromTheBottomOfTheWorld() {
+        SnapshotBlockAccess blocks = new StandInWorld(-64, 320).set(5, -60, 5, Material.STONE).set(5, 40, 5, Material.STONE).blocks();
+        assertFalse(blocks.isSectionEmpty(0, -4, 0));
+        assertTrue(blocks.isSectionEmpty(0, -3, 0));
+        assertFalse(blocks.isSectionEmpty(0, 2, 0));
+        assertTrue(blocks.isSectionEmpty(0, 0, 0));
+    }
+
+    @Test
+    void tracesThroughSnapshots() {
+        SnapshotBlockAccess blocks = new StandInWorld(-64, 320).set(40, 70, 3, Material.STONE).blocks();
+        RayHit hit = RayTracer.traverseBlocks(blocks, 0.5, 70.5, 3.5, 1, 0, 0, 60, BlockFilter.DEFAULT);
+        assertEquals(ResultType.BLOCK, hit.getType());
+        assertEquals(40, hit.getBlockX());
+        assertEquals(BlockFace.WEST, hit.getFace());
+        assertEquals(39.5, hit.getDistance(), 1e-9);
+        assertTrue(RayTracer.traverseBlocks(blocks, 0.5, 71.5, 3.5, 1, 0, 0, 60, BlockFilter.DEFAULT).isEmpty());
+    }
+}
@@ -0,0 +1,191 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiFunction;
+
+/**
+ * Blocks in memory behind stand-in {@link ChunkSnapshot}s and a stand-in {@link World}, so ray-casts can be tested without a server. Only
+ * the methods the library calls are answered, every other method throws.
+ */
+final class StandInWorld {
+
+    private static final UUID ID = new UUID(0, 1);
+
+    private final int minHeight;
+
+    private final int maxHeight;
+
+    private final Map<Long, Material[]> chunks = new HashMap<>();
+
+    private boolean failing;
+
+    /**
+     * @param minHeight Lowest y coordinate of the world
+     * @param maxHeight Y coordinate above the highest block
+     */
+    StandInWorld(int minHeight, int maxHeight) {
+        this.minHeight = minHeight;
+        this.maxHeight = maxHeight;
+    }
+
+    /**
+     * Sets a block, loading its chunk as all air first if it isn't yet.
+     */
+    StandInWorld set(int x, int y, int z, Material type) {
+        load(x >> 4, z >> 4)[index(x & 15, y, z & 15)] = type;
+        return this;
+    }
+
+    /**
+     * Loads a chunk as all air if it isn't loaded yet.
+     */
+    Material[] load(int chunkX, int chunkZ) {
+        return chunks.computeIfAbsent(SnapshotBlockAccess.chunkKey(chunkX, chunkZ), key -> {
+            Material[] types = new Material[(maxHeight - minHeight) << 8];
+            Arrays.fill(types, Material.AIR);
+            return types;
+        });
+    }
+
+    /**
+     * Makes the snapshots taken after this throw when a block is read, like a chunk that can't be read on the worker.
+     */
+    StandInWorld failing() {
+        failing = true;
+        return this;
+    }
+
+    /**
+     * @return Block access over snapshots of every loaded chunk
+     */
+    SnapshotBlockAccess blocks() {
+        List<ChunkSnapshot> snapshots = new ArrayList<>();
+        for (long key : chunks.keySet()) {
+            snapshots.add(snapshot((int) (key >> 32), (int) key));
+        }
+        return new SnapshotBlockAccess(snapshots, minHeight, maxHeight);
+    }
+
+    ChunkSnapshot snapshot(int chunkX, int chunkZ) {
+        Material[] types = load(chunkX, chunkZ);
+        boolean failing = this.failing;
+        return proxy(ChunkSnapshot.class, (method, args) -> {
+            switch (method) {
+                case "getX":
+                    return chunkX;
+                case "getZ":
+                    return chunkZ;
+                case "getWorldName":
+                    return "world";
+                case "getBlockType":
+                    if (failing) {
+                        throw new IllegalStateException("Stand-in chunk failed");
+                    }
+                    return types[index((int) args[0], (int) args[1], (int) args[2])];
+                case "isSectionEmpty":
+                    int from = ((int) args[0]) << 12;
+                    for (int i = from; i < from + 4096 && i < types.length; i++) {
+                        if (types[i] != Material.AIR) {
+                            return false;
+                        }
+                    }
+                    return true;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    World world() {
+        return proxy(World.class, (method, args) -> {
+            switch (method) {
+                case "getName":
+                    return "world";
+                case "getUID":
+                    return ID;
+                case "getMinHeight":
+                    return minHeight;
+                case "getMaxHeight":
+                    return maxHeight;
+                case "isChunkLoaded":
+                    return chunks.containsKey(SnapshotBlockAccess.chunkKey((int) args[0], (int) args[1]));
+                case "getChunkAt":
+                    return chunk((int) args[0], (int) args[1]);
+                case "getBlockAt":
+                    return block((int) args[0], (int) args[1], (int) args[2]);
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private Chunk chunk(int chunkX, int chunkZ) {
+        return proxy(Chunk.class, (method, args) -> {
+            switch (method) {
+                case "getX":
+                    return chunkX;
+                case "getZ":
+                    return chunkZ;
+                case "getChunkSnapshot":
+                    return snapshot(chunkX, chunkZ);
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private Block block(int x, int y, int z) {
+        return proxy(Block.class, (method, args) -> {
+            switch (method) {
+                case "getX":
+                    return x;
+                case "getY":
+                    return y;
+                case "getZ":
+                    return z;
+                case "getType":
+                    return y < minHeight || y >= maxHeight ? Material.AIR : load(x >> 4, z >> 4)[index(x & 15, y, z & 15)];
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private int index(int x, int y, int z) {
+        return ((y - minHeight) << 8) | (z << 4) | x;
+    }
+
+    /**
+     * @param answer Answers a call by method name, null for methods the stand-in doesn't support
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T proxy(Class<T> type, BiFunction<String, Object[], Object> answer) {
+        return (T) Proxy.newProxyInstance(StandInWorld.class.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "StandIn" + type.getSimpleName();
+            }
+            Object result = answer.apply(method.getName(), args);
+            if (result == null) {
+                throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName() + " isn't supported by the stand-in");
+            }
+            return result;
+        });
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SweptVolumeTest {
+
+    @Test
+    void touchesAFaceHeadOn() {
+        assertEquals(2.5, sphere(-3, 0.5, 0.5, 1, 0, 0, 0.5, 10), 1e-9);
+        assertEquals(2.5, SweptVolume.boxIntersect(0, 0, 0, 1, 1, 1, -3, 0.5, 0.5, 1, 0, 0, 0.5, 0.5, 0.5, 10), 1e-9);
+    }
+
+    @Test
+    void touchesAnEdge() {
+        // Passing 0.3 above the top, the sphere reaches the top edge 0.4 before the box starts along x
+        assertEquals(2.6, sphere(-3, 1.3, 0.5, 1, 0, 0, 0.5, 10), 1e-9);
+    }
+
+    @Test
+    void touchesACorner() {
+        // Heading straight at the corner (1, 1, 1) along the diagonal, it touches when the center is one radius from the corner
+        double dir = Math.sqrt(1D / 3);
+        assertEquals(Math.sqrt(12) - 0.5, sphere(3, 3, 3, -dir, -dir, -dir, 0.5, 10), 1e-9);
+    }
+
+    @Test
+    void startsTouching() {
+        assertEquals(0, sphere(1.2, 0.5, 0.5, 1, 0, 0, 0.5, 10), 0);
+        assertEquals(0, sphere(0.5, 0.5, 0.5, 0, 1, 0, 0.5, 10), 0);
+    }
+
+    @Test
+    void passesBy() {
+        assertEquals(-1, sphere(-3, 1.6, 0.5, 1, 0, 0, 0.5, 10), 0);
+        assertEquals(-1, sphere(-3, 0.5, 0.5, -1, 0, 0, 0.5, 10), 0);
+        assertEquals(-1, sphere(-3, 0.5, 0.5, 1, 0, 0, 0.5, 2), 0);
+    }
+
+    @Test
+    void neverGoesDeeperThanTheRadius() {
+        Random random = new Random(2);
+        for (int i = 0; i < 10000; i++) {
+            double x = random.nextDouble() * 10 - 5, y = random.nextDouble() * 10 - 5, z = random.nextDouble() * 10 - 5;
+            double dirX = random.nextGaussian(), dirY = random.nextGaussian(), dirZ = random.nextGaussian();
+            double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+            dirX /= length;
+            dirY /= length;
+            dirZ /= length;
+            double radius = random.nextDouble();
+            double distance = sphere(x, y, z, dirX, dirY, dirZ, radius, 10);
+            if (distance <= 0) {
+                continue;
+            }
+            // At the contact the center is exactly one radius from the box, and further away just before it
+            assertEquals(radius, distanceToBox(x + dirX * distance, y + dirY * distance, z + dirZ * distance), 1e-6);
+            double before = distance * 0.999;
+            assertTrue(distanceToBox(x + dirX * before, y + dirY * before, z + dirZ * before) > radius - 1e-9);
+        }
+    }
+
+    private static double sphere(double x, double y, double z, double dirX, double dirY, double dirZ, double radius, double maxDistance) {
+        return SweptVolume.sphereIntersect(0, 0, 0, 1, 1, 1, x, y, z, dirX, dirY, dirZ, radius, maxDistance);
+    }
+
+    private static double distanceToBox(double x, double y, double z) {
+        double outX = x - Math.max(0, Math.min(1, x)), outY = y - Math.max(0, Math.min(1, y)), outZ = z - Math.max(0, Math.min(1, z));
+        return Math.sqrt(outX * outX + outY * outY + outZ * outZ);
+    }
+}
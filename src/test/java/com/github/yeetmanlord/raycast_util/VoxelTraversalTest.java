@@ -0,0 +1,103 @@
+package com.github.yeetmanlord.raycast_util;
+
+import org.bukkit.block.BlockFace;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VoxelTraversalTest {
+
+    @Test
+    void walksAlongAnAxis() {
+        VoxelTraversal traversal = new VoxelTraversal(0.5, 0.5, 0.5, 1, 0, 0, 3);
+        BlockFace[] faces = {BlockFace.SELF, BlockFace.WEST, BlockFace.WEST, BlockFace.WEST};
+        double[] distances = {0, 0.5, 1.5, 2.5};
+        for (int i = 0; i < 4; i++) {
+            assertTrue(traversal.next());
+            assertEquals(i, traversal.getBlockX());
+            assertEquals(0, traversal.getBlockY());
+            assertEquals(0, traversal.getBlockZ());
+            assertEquals(faces[i], traversal.getFace());
+            assertEquals(distances[i], traversal.getDistance(), 1e-12);
+        }
+        assertFalse(traversal.next());
+    }
+
+    @Test
+    void entersThroughTheFaceItCrosses() {
+        assertEnteredThrough(BlockFace.EAST, -1, 0, 0);
+        assertEnteredThrough(BlockFace.WEST, 1, 0, 0);
+        assertEnteredThrough(BlockFace.UP, 0, -1, 0);
+        assertEnteredThrough(BlockFace.DOWN, 0, 1, 0);
+        assertEnteredThrough(BlockFace.SOUTH, 0, 0, -1);
+        assertEnteredThrough(BlockFace.NORTH, 0, 0, 1);
+    }
+
+    private static void assertEnteredThrough(BlockFace face, int dirX, int dirY, int dirZ) {
+        VoxelTraversal traversal = new VoxelTraversal(0.5, 0.5, 0.5, dirX, dirY, dirZ, 2);
+        traversal.next();
+        traversal.next();
+        assertEquals(dirX, traversal.getBlockX());
+        assertEquals(dirY, traversal.getBlockY());
+        assertEquals(dirZ, traversal.getBlockZ());
+        assertEquals(face, traversal.getFace());
+    }
+
+    @Test
+    void visitsEveryCrossedBlockOnce() {
+        Random random = new Random(1);
+        for (int ray = 0; ray < 1000; ray++) {
+            double x = random.nextDouble() * 32 - 16, y = random.nextDouble() * 32 - 16, z = random.nextDouble() * 32 - 16;
+            double dirX = random.nextGaussian(), dirY = random.nextGaussian(), dirZ = random.nextGaussian();
+            double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+            VoxelTraversal traversal = new VoxelTraversal(x, y, z, dirX, dirY, dirZ, 20);
+            assertTrue(traversal.next());
+            assertEquals(VoxelTraversal.floor(x), traversal.getBlockX());
+            int lastX = traversal.getBlockX(), lastY = traversal.getBlockY(), lastZ = traversal.getBlockZ();
+            double lastDistance = 0;
+            while (traversal.next()) {
+                // Each step moves exactly one block along one axis, further along the ray
+                int moved = Math.abs(traversal.getBlockX() - lastX) + Math.abs(traversal.getBlockY() - lastY) + Math.abs(traversal.getBlockZ() - lastZ);
+                assertEquals(1, moved);
+                assertTrue(traversal.getDistance() >= lastDistance);
+                assertTrue(traversal.getDistance() <= 20);
+                // The point the ray entered at is on the boundary of the block
+                double entryX = x + dirX / length * traversal.getDistance();
+                assertTrue(entryX >= traversal.getBlockX() - 1e-9 && entryX <= traversal.getBlockX() + 1 + 1e-9);
+                lastX = traversal.getBlockX();
+                lastY = traversal.getBlockY();
+                lastZ = traversal.getBlockZ();
+                lastDistance = traversal.getDistance();
+            }
+        }
+    }
+
+    @Test
+    void skipsToTheEndOfTheCell() {
+        VoxelTraversal traversal = new VoxelTraversal(1.5, 0.5, 0.5, 1, 0, 0, 40);
+        assertTrue(traversal.next());
+        assertTrue(traversal.skipCell(4));
+        assertEquals(15, traversal.getBlockX());
+        assertTrue(traversal.next());
+        assertEquals(16, traversal.getBlockX());
+        assertEquals(BlockFace.WEST, traversal.getFace());
+        assertEquals(14.5, traversal.getDistance(), 1e-12);
+    }
+
+    @Test
+    void skipEndsWithTheRay() {
+        VoxelTraversal traversal = new VoxelTraversal(1.5, 0.5, 0.5, 1, 0, 0, 5);
+        assertTrue(traversal.next());
+        assertFalse(traversal.skipCell(4));
+    }
+
+    @Test
+    void rejectsZeroDirections() {
+        assertThrows(IllegalArgumentException.class, () -> new VoxelTraversal(0, 0, 0, 0, 0, 0, 10));
+    }
+}